@@ -0,0 +1,105 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Placement cost of VmAllocationPolicyEnergyAware, which includes host
+ * selection.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AllocationPolicyBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int hostCount;
+
+    @Param({"1000", "10000", "50000"})
+    public int vmCount;
+
+    private List<Host> hosts;
+    private List<Vm> vms;
+    private VmAllocationPolicyEnergyAware policy;
+    private Vm probe;
+
+    @State(Scope.Thread)
+    public static class EmptyDatacenter {
+        VmAllocationPolicyEnergyAware policy;
+        List<Vm> vms;
+
+        @Setup(Level.Invocation)
+        public void setUp(AllocationPolicyBenchmark benchmark) {
+            BenchmarkFixtures.initCloudSim();
+            policy = new VmAllocationPolicyEnergyAware(BenchmarkFixtures.createHosts(benchmark.hostCount));
+            vms = BenchmarkFixtures.createVms(benchmark.vmCount, 0);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFixtures.initCloudSim();
+        hosts = BenchmarkFixtures.createHosts(hostCount);
+        policy = new VmAllocationPolicyEnergyAware(hosts);
+        vms = BenchmarkFixtures.createVms(vmCount, 0);
+        BenchmarkFixtures.allocateAll(policy, vms);
+        probe = BenchmarkFixtures.createVms(1, vmCount).get(0);
+    }
+
+    /**
+     * Places every VM into an empty datacenter, as the broker's initial submission does
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public void allocateAll(EmptyDatacenter datacenter, Blackhole blackhole) {
+        for (Vm vm : datacenter.vms) {
+            blackhole.consume(datacenter.policy.allocateHostForVm(vm));
+        }
+    }
+
+    /**
+     * Places the same submission in one batch with best-fit decreasing
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public boolean[] allocateAllBestFitDecreasing(EmptyDatacenter datacenter) {
+        return datacenter.policy.allocateHostsForVms(datacenter.vms, VmPacker.Strategy.BEST_FIT_DECREASING);
+    }
+
+    /**
+     * Places the same submission in one batch with first-fit decreasing
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public boolean[] allocateAllFirstFitDecreasing(EmptyDatacenter datacenter) {
+        return datacenter.policy.allocateHostsForVms(datacenter.vms, VmPacker.Strategy.FIRST_FIT_DECREASING);
+    }
+
+    /**
+     * Selects a host for one VM in a datacenter already holding vmCount VMs,
+     * then releases it again
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean allocateAndDeallocateOne() {
+        boolean allocated = policy.allocateHostForVm(probe);
+        if (allocated) {
+            policy.deallocateHostForVm(probe);
+        }
+        probe.setBeingInstantiated(true);
+        return allocated;
+    }
+}
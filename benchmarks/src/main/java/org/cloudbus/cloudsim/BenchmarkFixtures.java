@@ -0,0 +1,72 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+
+/**
+ * Deterministic hosts, VMs and cloudlets shared by the benchmarks.
+ */
+final class BenchmarkFixtures {
+    private static final int[] HOST_MIPS = {1000, 1500, 2000, 2500};
+    private static final int[] VM_MIPS = {250, 500, 750, 1000};
+
+    private BenchmarkFixtures() {
+    }
+
+    static void initCloudSim() {
+        Log.setDisabled(true);
+        CloudSim.init(1, Calendar.getInstance(), false);
+    }
+
+    /**
+     * Hosts with 4 PEs each and RAM for 32 of the fixture VMs
+     */
+    static List<Host> createHosts(int hostCount) {
+        List<Host> hosts = new ArrayList<>(hostCount);
+        for (int i = 0; i < hostCount; i++) {
+            List<Pe> peList = new ArrayList<>(4);
+            for (int p = 0; p < 4; p++) {
+                peList.add(new Pe(p, new PeProvisionerSimple(HOST_MIPS[i % HOST_MIPS.length])));
+            }
+            hosts.add(new Host(i, new RamProvisionerSimple(16384), new BwProvisionerSimple(100000),
+                1000000, peList, new VmSchedulerTimeShared(peList)));
+        }
+        return hosts;
+    }
+
+    static List<Vm> createVms(int vmCount, int firstId) {
+        List<Vm> vms = new ArrayList<>(vmCount);
+        for (int i = 0; i < vmCount; i++) {
+            vms.add(new Vm(firstId + i, 1, VM_MIPS[i % VM_MIPS.length], 1, 512, 1000, 10000, "Xen",
+                new CloudletSchedulerTimeShared()));
+        }
+        return vms;
+    }
+
+    static List<Cloudlet> createFinishedCloudlets(int cloudletCount) throws Exception {
+        UtilizationModel full = new UtilizationModelFull();
+        List<Cloudlet> cloudlets = new ArrayList<>(cloudletCount);
+        for (int i = 0; i < cloudletCount; i++) {
+            Cloudlet cloudlet = new Cloudlet(i, 10000, 1, 300, 300, full, full, full);
+            cloudlet.setUserId(1);
+            cloudlet.setCloudletStatus(i % 10 == 0 ? Cloudlet.FAILED : Cloudlet.SUCCESS);
+            cloudlets.add(cloudlet);
+        }
+        return cloudlets;
+    }
+
+    /**
+     * Allocates VMs and marks them instantiated, as Datacenter.processVmCreate does
+     */
+    static void allocateAll(VmAllocationPolicyEnergyAware policy, List<Vm> vms) {
+        for (Vm vm : vms) {
+            if (policy.allocateHostForVm(vm)) {
+                vm.setBeingInstantiated(false);
+                policy.updateVmMips(vm);
+            }
+        }
+    }
+}
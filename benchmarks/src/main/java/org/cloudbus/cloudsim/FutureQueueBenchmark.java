@@ -0,0 +1,70 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.cloudbus.cloudsim.core.BenchmarkEvents;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * CloudSim's TreeSet FutureQueue against HeapFutureQueue in the classic hold
+ * model: the queue is filled with pendingEvents events, then every operation
+ * takes the first event the way runClockTick does (iterator().next(),
+ * remove, then a second iterator looking for events at the same time) and
+ * schedules a new one a random delay later, so the size stays constant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FutureQueueBenchmark {
+
+    @Param({"stock", "heap"})
+    public String queueKind;
+
+    @Param({"1000000", "10000000"})
+    public int pendingEvents;
+
+    private static final int DELAYS = 1 << 16;
+
+    private FutureQueue queue;
+    private final double[] delays = new double[DELAYS];
+    private int nextDelay = 0;
+    private int nextTag = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = "heap".equals(queueKind) ? new HeapFutureQueue() : new FutureQueue();
+        Random random = new Random(42);
+        for (int i = 0; i < DELAYS; i++) {
+            // Exponential delays with coarse rounding, so some events share a time
+            delays[i] = Math.ceil(-Math.log(1.0 - random.nextDouble()) * pendingEvents) / 10.0;
+        }
+        for (int i = 0; i < pendingEvents; i++) {
+            queue.addEvent(BenchmarkEvents.create(delays[i & (DELAYS - 1)], nextTag++));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.clear();
+        queue = null;
+    }
+
+    @Benchmark
+    public SimEvent hold() {
+        Iterator<SimEvent> iterator = queue.iterator();
+        SimEvent first = iterator.next();
+        queue.remove(first);
+        iterator = queue.iterator();
+        if (iterator.hasNext() && iterator.next().eventTime() == first.eventTime()) {
+            nextTag++;
+        }
+        double delay = delays[nextDelay++ & (DELAYS - 1)];
+        queue.addEvent(BenchmarkEvents.create(first.eventTime() + delay, nextTag++));
+        return first;
+    }
+}
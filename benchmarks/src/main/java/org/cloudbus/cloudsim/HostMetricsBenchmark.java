@@ -0,0 +1,83 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-host metric reads and updates on VmAllocationPolicyEnergyAware.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HostMetricsBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int hostCount;
+
+    @Param({"4"})
+    public int vmsPerHost;
+
+    @Param({"100", "10000"})
+    public int historyLength;
+
+    /** Distinct host power tables, assigned round-robin */
+    @Param({"1", "4"})
+    public int powerTables;
+
+    private List<Host> hosts;
+    private VmAllocationPolicyEnergyAware policy;
+    private double time = 0.0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFixtures.initCloudSim();
+        hosts = BenchmarkFixtures.createHosts(hostCount);
+        policy = new VmAllocationPolicyEnergyAware(hosts);
+        BenchmarkFixtures.allocateAll(policy, BenchmarkFixtures.createVms(hostCount * vmsPerHost, 0));
+        if (powerTables > 1) {
+            PowerTable[] tables = new PowerTable[powerTables];
+            for (int i = 0; i < powerTables; i++) {
+                tables[i] = PowerTable.linear("type" + i, 50 + 20 * i, 150 + 50 * i);
+            }
+            for (int i = 0; i < hosts.size(); i++) {
+                policy.setPowerTable(hosts.get(i), tables[i % powerTables]);
+            }
+        }
+
+        Random random = new Random(42);
+        for (int sample = 0; sample < historyLength; sample++) {
+            for (Host host : hosts) {
+                policy.recordHostUtilization(host, random.nextDouble());
+            }
+        }
+    }
+
+    @Benchmark
+    public void calculateCurrentUtilization(Blackhole blackhole) {
+        for (Host host : hosts) {
+            blackhole.consume(policy.calculateCurrentUtilization(host));
+        }
+    }
+
+    @Benchmark
+    public void averageAndPeakUtilization(Blackhole blackhole) {
+        for (Host host : hosts) {
+            blackhole.consume(policy.getAverageUtilization(host.getId()));
+            blackhole.consume(policy.getPeakUtilization(host.getId()));
+        }
+    }
+
+    /**
+     * One sampling tick over every host
+     */
+    @Benchmark
+    public void sampleHosts() {
+        time += Constants.SCHEDULING_INTERVAL;
+        policy.sampleHosts(time);
+    }
+}
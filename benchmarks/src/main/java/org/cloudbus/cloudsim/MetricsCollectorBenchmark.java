@@ -0,0 +1,48 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of exporting the end-of-run metrics, and of merging two snapshots as
+ * a sweep or multi-datacenter run would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MetricsCollectorBenchmark {
+
+    @Param({"100", "10000"})
+    public int hostCount;
+
+    @Param({"10000", "1000000"})
+    public int cloudletCount;
+
+    private List<Cloudlet> cloudlets;
+    private VmAllocationPolicyEnergyAware policy;
+    private MetricsSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkFixtures.initCloudSim();
+        policy = new VmAllocationPolicyEnergyAware(BenchmarkFixtures.createHosts(hostCount));
+        BenchmarkFixtures.allocateAll(policy, BenchmarkFixtures.createVms(hostCount * 2, 0));
+        policy.sampleHosts(Constants.SCHEDULING_INTERVAL);
+        cloudlets = BenchmarkFixtures.createFinishedCloudlets(cloudletCount);
+        snapshot = MetricsSnapshot.of(cloudlets, policy);
+    }
+
+    @Benchmark
+    public Map<String, Object> exportAllMetrics() {
+        return MetricsCollector.exportAllMetrics(cloudlets, policy);
+    }
+
+    @Benchmark
+    public MetricsSnapshot mergeSnapshots() {
+        return snapshot.merge(snapshot);
+    }
+}
@@ -0,0 +1,438 @@
+package org.cloudbus.cloudsim;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * End-to-end benchmark of Main-style runs at several scales: a scenario of
+ * N hosts and N VMs replays a generated task trace of M cloudlets through a
+ * TraceDrivenBroker that does not retain finished cloudlets, with the heap
+ * event queue and host sampling as in Main.
+ *
+ * Each run is a fresh JVM, so JIT, heap and CloudSim's static state never
+ * carry over between tiers. A run reports simulated seconds per wall
+ * second, processed events per second, peak heap (the sum of the heap
+ * pools' peaks), GC time and the time from JVM start to the first
+ * processed event, which covers building the scenario.
+ *
+ * Results go to a CSV, one row per tier, keyed by the configured hosts,
+ * VMs and cloudlets. Given a baseline CSV from an earlier run, the
+ * throughputs of matching tiers are compared and the benchmark exits with
+ * status 1 if any dropped by more than the threshold, or if a tier has no
+ * usable baseline.
+ *
+ * Every event updates every host, so the cost per cloudlet grows with the
+ * host count; the default tiers shrink the cloudlet count as hosts grow.
+ * Pass e.g. --tiers 1000:2000000 for a run of millions of cloudlets.
+ *
+ * Usage:
+ *   ScaleBenchmark [--tiers 1000:200000,10000:20000,100000:2000]
+ *                  [--repeat N] [--heap 8g] [--output results/scale.csv]
+ *                  [--baseline FILE] [--threshold PERCENT]
+ *                  [--work-dir DIR]
+ */
+public class ScaleBenchmark {
+    private static final String DEFAULT_TIERS = "1000:200000,10000:20000,100000:2000";
+    private static final double REFERENCE_MIPS = 1000;
+    // Mean trace task duration is 5.5 s; arrivals keep about half the VMs busy
+    private static final double MEAN_DURATION = 5.5;
+    private static final double BUSY_VM_FRACTION = 0.5;
+    private static final long TRACE_SEED = 42;
+
+    // Throughput columns compared against a baseline
+    private static final String[] THROUGHPUT_COLUMNS = {"sim_seconds_per_wall_second", "events_per_second"};
+    private static final String[] KEY_COLUMNS = {"hosts", "vms", "cloudlets"};
+
+    public static void main(String[] args) {
+        try {
+            Map<String, String> options = SweepRunner.parseOptions(args);
+            if (options.containsKey("run-scenario")) {
+                runFork(options);
+                return;
+            }
+            List<long[]> tiers = parseTiers(options.getOrDefault("tiers", DEFAULT_TIERS));
+            int repeat = Integer.parseInt(options.getOrDefault("repeat", "1"));
+            String heap = options.getOrDefault("heap", "8g");
+            Path output = Paths.get(options.getOrDefault("output", "results/scale.csv"));
+            Path workDir = Paths.get(options.getOrDefault("work-dir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "scale-benchmark").toString()));
+            Files.createDirectories(workDir);
+
+            List<Map<String, String>> rows = new ArrayList<>();
+            for (long[] tier : tiers) {
+                int hosts = (int) tier[0];
+                long cloudlets = tier[1];
+                Path scenario = writeScenario(workDir, hosts);
+                Path trace = writeTrace(workDir, hosts, cloudlets);
+                Map<String, String> best = null;
+                for (int i = 0; i < repeat; i++) {
+                    System.out.printf("Tier %d hosts, %d VMs, %d cloudlets: run %d of %d%n",
+                        hosts, hosts, cloudlets, i + 1, repeat);
+                    Map<String, String> result = fork(heap, scenario, trace, cloudlets, workDir);
+                    System.out.println("  " + describe(result));
+                    if (best == null || number(result, THROUGHPUT_COLUMNS[0]) > number(best, THROUGHPUT_COLUMNS[0])) {
+                        best = result;
+                    }
+                }
+                rows.add(best);
+            }
+            writeResults(output, rows);
+            System.out.println("Scale benchmark results saved to " + output);
+
+            String baseline = options.get("baseline");
+            if (baseline != null) {
+                double threshold = Double.parseDouble(options.getOrDefault("threshold", "10"));
+                if (!compare(readResults(Paths.get(baseline)), rows, threshold)) {
+                    System.out.println("Throughput regressed by more than " + threshold + "% against " + baseline
+                        + ", or a tier has no usable baseline");
+                    System.exit(1);
+                }
+                System.out.println("No throughput regression beyond " + threshold + "% against " + baseline);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Scale benchmark failed!");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * @return (hosts, cloudlets) pairs from "hosts:cloudlets,..."; VMs
+     *         equal hosts
+     */
+    static List<long[]> parseTiers(String tiers) {
+        List<long[]> parsed = new ArrayList<>();
+        for (String tier : tiers.split(",")) {
+            String[] parts = tier.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected hosts:cloudlets, got: " + tier);
+            }
+            parsed.add(new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1])});
+        }
+        return parsed;
+    }
+
+    private static Path writeScenario(Path workDir, int hosts) throws IOException {
+        Properties scenario = new Properties();
+        scenario.setProperty("datacenter.name", "ScaleDatacenter");
+        scenario.setProperty("seed", "1");
+        scenario.setProperty("host.compute.count", String.valueOf(hosts));
+        scenario.setProperty("host.compute.mips", "2000,3000");
+        scenario.setProperty("host.compute.pes", "4");
+        scenario.setProperty("host.compute.ram", "16384");
+        scenario.setProperty("vm.small.count", String.valueOf(hosts));
+        scenario.setProperty("vm.small.mips", "500,1000");
+        scenario.setProperty("vm.small.ram", "1024");
+        // Cloudlets come from the trace
+        scenario.setProperty("cloudlet.none.count", "0");
+        Path file = workDir.resolve("scale-" + hosts + ".properties");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            scenario.store(writer, "ScaleBenchmark tier of " + hosts + " hosts");
+        }
+        return file;
+    }
+
+    /**
+     * Writes a simple-format task trace with Poisson arrivals and uniform
+     * 1-10 s durations, unless an earlier run already wrote it
+     */
+    private static Path writeTrace(Path workDir, int vms, long cloudlets) throws IOException {
+        Path file = workDir.resolve("scale-" + vms + "-" + cloudlets + ".csv");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Path partial = workDir.resolve(file.getFileName() + ".tmp");
+        double rate = vms * BUSY_VM_FRACTION / MEAN_DURATION;
+        SplittableRandom random = new SplittableRandom(TRACE_SEED);
+        double arrival = 0.0;
+        try (BufferedWriter writer = Files.newBufferedWriter(partial, StandardCharsets.US_ASCII)) {
+            writer.write("arrival,duration,pes");
+            writer.newLine();
+            for (long i = 0; i < cloudlets; i++) {
+                arrival += -Math.log(1.0 - random.nextDouble()) / rate;
+                writer.write(String.format(Locale.ROOT, "%.3f,%.2f,1", arrival, 1.0 + 9.0 * random.nextDouble()));
+                writer.newLine();
+            }
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+
+    private static Map<String, String> fork(String heap, Path scenario, Path trace, long cloudlets, Path workDir)
+            throws IOException, InterruptedException {
+        Path result = Files.createTempFile(workDir, "result", ".properties");
+        try {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-Xmx" + heap);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(ScaleBenchmark.class.getName());
+            command.add("--run-scenario");
+            command.add(scenario.toString());
+            command.add("--trace");
+            command.add(trace.toString());
+            command.add("--cloudlets");
+            command.add(String.valueOf(cloudlets));
+            command.add("--result");
+            command.add(result.toString());
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            int status = process.waitFor();
+            if (status != 0) {
+                throw new IllegalStateException("Benchmark run exited with status " + status);
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(result, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            Map<String, String> row = new LinkedHashMap<>();
+            for (String column : ForkResult.COLUMNS) {
+                row.put(column, properties.getProperty(column, ""));
+            }
+            return row;
+        } finally {
+            Files.deleteIfExists(result);
+        }
+    }
+
+    /**
+     * Body of a forked run: builds the tier the way Main does, runs it and
+     * writes its measurements to the --result file
+     */
+    private static void runFork(Map<String, String> options) throws Exception {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long gcStart = gcMillis();
+        Log.setDisabled(true);
+
+        long setupStart = System.nanoTime();
+        CloudSim.init(1, Calendar.getInstance(), false);
+        CloudSimInternals.installFutureQueue("heap");
+        ScenarioBuilder builder = new ScenarioBuilder(Scenario.load(Paths.get(options.get("run-scenario"))));
+        List<Host> hosts = builder.createHosts();
+        Datacenter datacenter = builder.createDatacenter(hosts);
+        TraceDrivenBroker broker = new TraceDrivenBroker("Broker", new TaskTableTrace(
+            Paths.get(options.get("trace")), TaskTableFormat.forName("simple"), REFERENCE_MIPS, 1));
+        broker.setRetainFinishedCloudlets(false);
+        CloudletStats stats = new CloudletStats();
+        broker.addCompletionListener(stats);
+        new UtilizationSampler("UtilizationSampler", (VmAllocationPolicyEnergyAware) datacenter.getVmAllocationPolicy(),
+            Constants.SCHEDULING_INTERVAL, broker);
+        List<Vm> vms = builder.createVms(broker.getId());
+        broker.submitVmList(vms);
+        RunProbe probe = new RunProbe("RunProbe");
+        double setupSeconds = (System.nanoTime() - setupStart) / 1e9;
+
+        long start = System.nanoTime();
+        CloudSim.startSimulation();
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+        ForkResult result = new ForkResult();
+        result.put("hosts", hosts.size());
+        result.put("vms", vms.size());
+        // The tier's size, the baseline key; a run that drops cloudlets must not change it
+        result.put("cloudlets", Long.parseLong(options.get("cloudlets")));
+        result.put("completed_cloudlets", stats.getCount());
+        result.put("simulated_seconds", probe.endTime);
+        result.put("wall_seconds", wallSeconds);
+        result.put("sim_seconds_per_wall_second", probe.endTime / wallSeconds);
+        result.put("events", probe.events);
+        result.put("events_per_second", probe.events / wallSeconds);
+        result.put("setup_seconds", setupSeconds);
+        result.put("first_event_ms", probe.firstEventMillis - ManagementFactory.getRuntimeMXBean().getStartTime());
+        result.put("peak_heap_mb", peakHeapBytes() / (1024.0 * 1024.0));
+        result.put("gc_ms", gcMillis() - gcStart);
+        result.write(Paths.get(options.get("result")));
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long peakHeapBytes() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+
+    private static String describe(Map<String, String> result) {
+        return String.format(Locale.ROOT,
+            "%.0f simulated s in %.2f s: %.1f sim s/s, %.0f events/s, first event at %s ms, peak heap %.0f MB, GC %s ms",
+            number(result, "simulated_seconds"), number(result, "wall_seconds"),
+            number(result, "sim_seconds_per_wall_second"), number(result, "events_per_second"),
+            result.get("first_event_ms"), number(result, "peak_heap_mb"), result.get("gc_ms"));
+    }
+
+    private static double number(Map<String, String> row, String column) {
+        String value = row.get(column);
+        return value == null || value.isEmpty() ? Double.NaN : Double.parseDouble(value);
+    }
+
+    private static void writeResults(Path output, List<Map<String, String>> rows) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(String.join(",", ForkResult.COLUMNS));
+            writer.newLine();
+            for (Map<String, String> row : rows) {
+                writer.write(String.join(",", row.values()));
+                writer.newLine();
+            }
+        }
+    }
+
+    static List<Map<String, String>> readResults(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("Empty baseline: " + file);
+        }
+        String[] header = lines.get(0).split(",");
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] values = line.split(",", -1);
+            Map<String, String> row = new LinkedHashMap<>();
+            for (int i = 0; i < header.length; i++) {
+                row.put(header[i], i < values.length ? values[i] : "");
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Prints every throughput of the current run against the baseline tier
+     * with the same hosts, VMs and cloudlets
+     * @return false if any dropped by more than threshold percent, or if a
+     *         tier is missing from the baseline or has a throughput there or
+     *         now that is blank, zero or not finite
+     */
+    static boolean compare(List<Map<String, String>> baseline, List<Map<String, String>> current,
+                           double threshold) {
+        boolean passed = true;
+        System.out.printf("%-24s | %-28s | %14s | %14s | %8s%n", "Tier", "Metric", "Baseline", "Current", "Change");
+        for (Map<String, String> row : current) {
+            Map<String, String> reference = null;
+            for (Map<String, String> candidate : baseline) {
+                if (sameTier(candidate, row)) {
+                    reference = candidate;
+                }
+            }
+            String tier = row.get("hosts") + "h/" + row.get("vms") + "v/" + row.get("cloudlets") + "c";
+            if (reference == null) {
+                System.out.printf("%-24s | not in baseline  MISSING%n", tier);
+                passed = false;
+                continue;
+            }
+            for (String column : THROUGHPUT_COLUMNS) {
+                double before = number(reference, column);
+                double after = number(row, column);
+                if (!(before > 0) || Double.isInfinite(before) || !(after >= 0) || Double.isInfinite(after)) {
+                    System.out.printf("%-24s | %-28s | %14s | %14s | %8s  INVALID%n",
+                        tier, column, reference.get(column), row.get(column), "n/a");
+                    passed = false;
+                    continue;
+                }
+                double change = (after - before) / before * 100;
+                boolean regressed = change < -threshold;
+                passed &= !regressed;
+                System.out.printf(Locale.ROOT, "%-24s | %-28s | %14.2f | %14.2f | %+7.1f%%%s%n",
+                    tier, column, before, after, change, regressed ? "  REGRESSION" : "");
+            }
+        }
+        return passed;
+    }
+
+    private static boolean sameTier(Map<String, String> a, Map<String, String> b) {
+        for (String column : KEY_COLUMNS) {
+            if (!Objects.equals(a.get(column), b.get(column))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Measurements of one forked run, in CSV column order
+     */
+    private static final class ForkResult {
+        static final String[] COLUMNS = {"hosts", "vms", "cloudlets", "completed_cloudlets", "simulated_seconds",
+            "wall_seconds", "sim_seconds_per_wall_second", "events", "events_per_second", "setup_seconds",
+            "first_event_ms", "peak_heap_mb", "gc_ms"};
+
+        private final Properties values = new Properties();
+
+        void put(String column, double value) {
+            values.setProperty(column, String.format(Locale.ROOT, "%.3f", value));
+        }
+
+        void put(String column, long value) {
+            values.setProperty(column, String.valueOf(value));
+        }
+
+        void write(Path file) throws IOException {
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                values.store(writer, null);
+            }
+        }
+    }
+
+    /**
+     * Notes the wall clock time of the first clock tick (its event is due at
+     * time 0, so it runs with the first events of the other entities), and
+     * the clock and event count at shutdown, before CloudSim resets them
+     */
+    private static final class RunProbe extends SimEntity {
+        private static final int FIRST_EVENT = 91005;
+
+        long firstEventMillis;
+        double endTime;
+        long events;
+
+        RunProbe(String name) {
+            super(name);
+        }
+
+        @Override
+        public void startEntity() {
+            schedule(getId(), 0, FIRST_EVENT);
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            if (firstEventMillis == 0) {
+                firstEventMillis = System.currentTimeMillis();
+            }
+        }
+
+        @Override
+        public void shutdownEntity() {
+            endTime = CloudSim.clock();
+            events = CloudSimInternals.getScheduledEventCount();
+        }
+    }
+}
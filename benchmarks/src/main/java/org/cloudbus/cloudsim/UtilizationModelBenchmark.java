@@ -0,0 +1,52 @@
+package org.cloudbus.cloudsim;
+
+import java.util.concurrent.TimeUnit;
+import org.cloudbus.cloudsim.utils.CpuUtilizationGenerator;
+import org.cloudbus.cloudsim.utils.CpuUtilizationGenerator.UtilizationPattern;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * getUtilization of every CpuUtilizationGenerator model, called with a
+ * simulation clock that advances by one scheduling interval per call.
+ * With precomputed=true the model is first tabulated over one day.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class UtilizationModelBenchmark {
+
+    @Param({"CONSTANT", "RANDOM", "SINUSOIDAL", "SPIKING", "STOCHASTIC"})
+    public UtilizationPattern pattern;
+
+    @Param({"false", "true"})
+    public boolean precomputed;
+
+    private UtilizationModel model;
+    private double time = 0.0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = CpuUtilizationGenerator.create(pattern, 42);
+        if (precomputed) {
+            model = CpuUtilizationGenerator.precomputeCompact(model, Constants.SCHEDULING_INTERVAL, 86400);
+        }
+    }
+
+    @Benchmark
+    public double getUtilization() {
+        time = time >= 86400 ? 0.0 : time + Constants.SCHEDULING_INTERVAL;
+        return model.getUtilization(time);
+    }
+
+    /**
+     * Repeated queries for the same simulated time, as several schedulers do
+     * within one tick
+     */
+    @Benchmark
+    public double getUtilizationSameTime() {
+        return model.getUtilization(time);
+    }
+}
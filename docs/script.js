@@ -9,10 +9,16 @@ document.addEventListener('DOMContentLoaded', function() {
     const activeHosts = document.getElementById('active-hosts');
     const totalVms = document.getElementById('total-vms');
     const totalEnergy = document.getElementById('total-energy');
-    
+
+    // The run writes these next to summary.csv; see DashboardBundle
+    const DASHBOARD_URL = '../results/dashboard.json';
+    const HOSTS_URL = '../results/hosts.csv';
+    // Rows rendered in the hosts table; the search covers every host
+    const MAX_HOST_ROWS = 500;
+
     // Chart objects
     let executionTimeChart, energyConsumptionChart, cpuUtilizationChart, vmAllocationChart;
-    
+
     // Chart configuration and themes
     const chartConfig = {
         executionTime: {
@@ -37,7 +43,17 @@ document.addEventListener('DOMContentLoaded', function() {
                 from: 'rgba(16, 185, 129, 0.8)',
                 to: 'rgba(6, 95, 70, 0.8)'
             },
-            border: 'rgba(6, 95, 70, 1)'
+            border: 'rgba(6, 95, 70, 1)',
+            hostColors: [
+                'rgba(59, 130, 246, 0.7)',
+                'rgba(239, 68, 68, 0.7)',
+                'rgba(245, 158, 11, 0.7)',
+                'rgba(139, 92, 246, 0.7)',
+                'rgba(236, 72, 153, 0.7)',
+                'rgba(14, 165, 233, 0.7)',
+                'rgba(132, 204, 22, 0.7)',
+                'rgba(100, 116, 139, 0.7)'
+            ]
         },
         vmAllocation: {
             type: 'doughnut',
@@ -51,17 +67,15 @@ document.addEventListener('DOMContentLoaded', function() {
             ]
         }
     };
-    
+
     // Application data storage
-    let appData = {
-        cloudlets: [],
-        hosts: [],
-        vms: []
-    };
-    
+    let dashboard = null;
+    // Per-host rows from hosts.csv, loaded when the hosts tab is first shown
+    let hostRows = null;
+
     // Initial load
     loadResults();
-    
+
     // Event listeners
     refreshBtn.addEventListener('click', function() {
         refreshBtn.innerHTML = '<i class="fas fa-sync-alt fa-spin"></i> Refreshing...';
@@ -69,21 +83,21 @@ document.addEventListener('DOMContentLoaded', function() {
             refreshBtn.innerHTML = '<i class="fas fa-sync-alt"></i> Refresh Data';
         });
     });
-    
+
     searchInput.addEventListener('input', function() {
         filterTableData();
     });
-    
+
     filterSelect.addEventListener('change', function() {
         filterTableData();
     });
-    
+
     // Add animation to card action buttons
     document.querySelectorAll('.card-action-btn').forEach(btn => {
         btn.addEventListener('click', function() {
             const card = this.closest('.card');
             card.classList.toggle('expanded');
-            
+
             const icon = this.querySelector('i');
             if (icon.classList.contains('fa-expand')) {
                 icon.classList.remove('fa-expand');
@@ -94,13 +108,18 @@ document.addEventListener('DOMContentLoaded', function() {
             }
         });
     });
-    
+
     function loadResults() {
-        return fetch('../results/summary.csv')
-            .then(response => response.text())
+        hostRows = null;
+        return fetch(DASHBOARD_URL, { cache: 'no-store' })
+            .then(response => {
+                if (!response.ok) {
+                    throw new Error(response.status + ' ' + response.statusText);
+                }
+                return response.json();
+            })
             .then(data => {
-                const results = parseCSV(data);
-                processData(results);
+                dashboard = data;
                 displayResults();
                 updateCharts();
                 updateSummaryStats();
@@ -111,682 +130,682 @@ document.addEventListener('DOMContentLoaded', function() {
                 resultsTable.innerHTML = `
                     <div class="error">
                         <i class="fas fa-exclamation-circle"></i>
-                        <span>Error loading results. Make sure summary.csv exists.</span>
+                        <span>Error loading results. Make sure results/dashboard.json exists (run Main first).</span>
                     </div>`;
             });
     }
-    
-    function parseCSV(csvData) {
-        const lines = csvData.trim().split('\n');
-        const headers = lines[0].split(',').map(h => h.trim());
-        const results = [];
-        
-        for (let i = 1; i < lines.length; i++) {
-            if (lines[i].trim() === '') continue;
-            
-            const values = lines[i].split(',');
-            const entry = {};
-            
-            headers.forEach((header, index) => {
-                entry[header] = values[index] ? values[index].trim() : '';
+
+    function loadHosts() {
+        if (hostRows) {
+            return Promise.resolve(hostRows);
+        }
+        return fetch(HOSTS_URL, { cache: 'no-store' })
+            .then(response => response.text())
+            .then(text => {
+                const lines = text.trim().split('\n');
+                hostRows = [];
+                for (let i = 1; i < lines.length; i++) {
+                    const values = lines[i].split(',');
+                    hostRows.push({
+                        id: parseInt(values[0]),
+                        utilization: parseFloat(values[1]),
+                        peakUtilization: parseFloat(values[2]),
+                        energy: parseFloat(values[3]),
+                        maxVms: parseInt(values[4])
+                    });
+                }
+                return hostRows;
             });
-            
-            results.push(entry);
+    }
+
+    function formatEnergy(joules) {
+        const units = ['J', 'kJ', 'MJ', 'GJ', 'TJ'];
+        let value = joules;
+        let unit = 0;
+        while (Math.abs(value) >= 1000 && unit < units.length - 1) {
+            value /= 1000;
+            unit++;
         }
-        
-        return { headers, data: results };
+        return value.toFixed(2) + ' ' + units[unit];
     }
-    
-    function processData(results) {
-        // Reset data
-        appData = {
-            cloudlets: [],
-            hosts: [],
-            vms: []
-        };
-        
-        // Sort and organize data
-        results.data.forEach(row => {
-            const type = row.Type;
-            const metric = row.Metric;
-            const id = parseInt(row.ID);
-            const value = row.Value;
-            
-            if (type === 'Cloudlet') {
-                if (!appData.cloudlets[id]) {
-                    appData.cloudlets[id] = { id };
-                }
-                appData.cloudlets[id][metric] = value;
-            } else if (type === 'Host') {
-                if (!appData.hosts[id]) {
-                    appData.hosts[id] = { id };
-                }
-                appData.hosts[id][metric] = value;
-            } else if (type === 'VM') {
-                if (!appData.vms[id]) {
-                    appData.vms[id] = { id };
-                }
-                appData.vms[id][metric] = value;
-            }
-        });
-        
-        // Clean up arrays (remove null entries)
-        appData.cloudlets = appData.cloudlets.filter(Boolean);
-        appData.hosts = appData.hosts.filter(Boolean);
-        appData.vms = appData.vms.filter(Boolean);
+
+    function formatSeconds(seconds) {
+        return seconds >= 100 ? seconds.toFixed(0) + ' s' : seconds.toFixed(2) + ' s';
+    }
+
+    // Bin labels like "1.25-2.50" from histogram edges
+    function binLabels(histogram, digits) {
+        return histogram.counts.map((count, i) =>
+            histogram.edges[i].toFixed(digits) + '-' + histogram.edges[i + 1].toFixed(digits));
     }
-    
+
     function updateSummaryStats() {
-        totalCloudlets.textContent = appData.cloudlets.length;
-        
-        const activeHostCount = appData.hosts.filter(host => 
-            parseFloat(host.CPUUtilization) > 0 || parseInt(host.VMsCount) > 0
-        ).length;
-        activeHosts.textContent = activeHostCount + '/' + appData.hosts.length;
-        
-        totalVms.textContent = appData.vms.length;
-        
-        const totalEnergyValue = appData.hosts.reduce((sum, host) => 
-            sum + parseFloat(host.EnergyConsumed || 0), 0
-        );
-        totalEnergy.textContent = totalEnergyValue.toFixed(2) + ' Wh';
+        const summary = dashboard.summary;
+        totalCloudlets.textContent = summary.cloudlets.toLocaleString('en-US');
+        activeHosts.textContent = summary.hostsUtilized.toLocaleString('en-US') + '/' +
+            summary.hosts.toLocaleString('en-US');
+        totalVms.textContent = summary.vms.toLocaleString('en-US');
+        totalEnergy.textContent = formatEnergy(summary.totalEnergy);
     }
-    
+
     function displayResults() {
-        if (appData.cloudlets.length === 0 && appData.hosts.length === 0 && appData.vms.length === 0) {
+        const summary = dashboard.summary;
+        if (summary.cloudlets === 0 && summary.hosts === 0) {
             resultsTable.innerHTML = `
                 <div class="no-data">
                     <i class="fas fa-database"></i>
-                    <span>No results found in summary.csv</span>
+                    <span>No results found in dashboard.json</span>
                 </div>`;
             return;
         }
-        
-        // Create tables for each data type
+
         let html = '<div class="tabs-container">';
         html += `<div class="tabs">
                     <button class="tab-btn active" data-tab="cloudlets-table">Cloudlets</button>
                     <button class="tab-btn" data-tab="hosts-table">Hosts</button>
                     <button class="tab-btn" data-tab="vms-table">Virtual Machines</button>
                 </div>`;
-        
-        // Cloudlets Table
+
+        // Cloudlet aggregates; the run may have had millions of cloudlets
+        const failed = summary.cloudlets - summary.successfulCloudlets;
+        const execution = dashboard.histograms.executionTime;
         html += `<div id="cloudlets-table" class="tab-content active">
                     <table>
                         <thead>
                             <tr>
-                                <th>ID</th>
-                                <th>Start Time</th>
-                                <th>Finish Time</th>
-                                <th>Execution Time</th>
-                                <th>Status</th>
+                                <th>Metric</th>
+                                <th>Value</th>
                             </tr>
                         </thead>
-                        <tbody>`;
-        
-        appData.cloudlets.forEach(cloudlet => {
-            html += `<tr>
-                        <td>${cloudlet.id}</td>
-                        <td>${parseFloat(cloudlet.StartTime).toFixed(2)}</td>
-                        <td>${parseFloat(cloudlet.FinishTime).toFixed(2)}</td>
-                        <td>${parseFloat(cloudlet.ExecutionTime).toFixed(2)}</td>
-                        <td>
-                            <span class="status-badge ${cloudlet.Status === 'Success' ? 'success' : 'failed'}">
-                                ${cloudlet.Status}
-                            </span>
-                        </td>
-                    </tr>`;
-        });
-        
-        html += `</tbody></table></div>`;
-        
-        // Hosts Table
+                        <tbody>
+                            <tr><td>Simulated time</td><td>${formatSeconds(summary.simulatedTime)}</td></tr>
+                            <tr><td>Cloudlets</td><td>${summary.cloudlets.toLocaleString('en-US')}</td></tr>
+                            <tr><td>Successful</td><td>
+                                <span class="status-badge success">${summary.successfulCloudlets.toLocaleString('en-US')}</span>
+                            </td></tr>
+                            <tr><td>Failed</td><td>
+                                <span class="status-badge ${failed > 0 ? 'failed' : 'success'}">${failed.toLocaleString('en-US')}</span>
+                            </td></tr>
+                            <tr><td>Execution time range</td><td>${execution.edges.length > 0
+                                ? formatSeconds(execution.edges[0]) + ' - ' + formatSeconds(execution.edges[execution.edges.length - 1])
+                                : '-'}</td></tr>
+                            <tr><td>Mean completion time</td><td>${formatSeconds(summary.meanCompletionTime)}</td></tr>
+                            <tr><td>P99 completion time</td><td>${formatSeconds(summary.p99CompletionTime)}</td></tr>
+                            <tr><td>Mean wait time</td><td>${formatSeconds(summary.meanWaitTime)}</td></tr>
+                            <tr><td>P99 wait time</td><td>${formatSeconds(summary.p99WaitTime)}</td></tr>
+                        </tbody>
+                    </table>
+                </div>`;
+
+        // Hosts table, filled from hosts.csv on demand
         html += `<div id="hosts-table" class="tab-content">
                     <table>
                         <thead>
                             <tr>
                                 <th>ID</th>
                                 <th>CPU Utilization</th>
+                                <th>Peak Utilization</th>
                                 <th>Energy Consumed</th>
-                                <th>VMs Count</th>
+                                <th>Peak VMs</th>
                             </tr>
                         </thead>
-                        <tbody>`;
-        
-        appData.hosts.forEach(host => {
-            html += `<tr>
-                        <td>${host.id}</td>
-                        <td>${(parseFloat(host.CPUUtilization) * 100).toFixed(2)}%</td>
-                        <td>${parseFloat(host.EnergyConsumed).toFixed(2)} Wh</td>
-                        <td>${host.VMsCount}</td>
-                    </tr>`;
-        });
-        
-        html += `</tbody></table></div>`;
-        
-        // VMs Table
+                        <tbody>
+                            <tr><td colspan="5">Loading hosts...</td></tr>
+                        </tbody>
+                    </table>
+                    <p class="table-note" id="hosts-note"></p>
+                </div>`;
+
+        // Hosts per peak VM count
+        const vmCounts = dashboard.vmsPerHost.hosts;
         html += `<div id="vms-table" class="tab-content">
                     <table>
                         <thead>
                             <tr>
-                                <th>ID</th>
-                                <th>Host</th>
+                                <th>Peak VMs on Host</th>
+                                <th>Hosts</th>
                             </tr>
                         </thead>
                         <tbody>`;
-        
-        appData.vms.forEach(vm => {
+
+        vmCounts.forEach((hosts, vms) => {
+            if (hosts === 0) {
+                return;
+            }
+            const label = dashboard.vmsPerHost.openEnded && vms === vmCounts.length - 1 ? vms + ' or more' : vms;
             html += `<tr>
-                        <td>${vm.id}</td>
-                        <td>${vm.Host === '-1' ? 'Unallocated' : 'Host ' + vm.Host}</td>
+                        <td>${label}</td>
+                        <td>${hosts.toLocaleString('en-US')}</td>
                     </tr>`;
+        });
+
+        html += `</tbody></table></div>`;
+
+        html += '</div>'; // Close tabs-container
+
+        resultsTable.innerHTML = html;
+
+        // Add tab switching functionality
+        document.querySelectorAll('.tab-btn').forEach(button => {
+            button.addEventListener('click', function() {
+                // Deactivate all tabs
+                document.querySelectorAll('.tab-btn').forEach(btn => {
+                    btn.classList.remove('active');
                 });
-        
-                html += `</tbody></table></div>`;
-                
-                html += '</div>'; // Close tabs-container
-                
-                resultsTable.innerHTML = html;
-                
-                // Add tab switching functionality
-                document.querySelectorAll('.tab-btn').forEach(button => {
-                    button.addEventListener('click', function() {
-                        // Deactivate all tabs
-                        document.querySelectorAll('.tab-btn').forEach(btn => {
-                            btn.classList.remove('active');
-                        });
-                        document.querySelectorAll('.tab-content').forEach(content => {
-                            content.classList.remove('active');
-                        });
-                        
-                        // Activate the clicked tab
-                        this.classList.add('active');
-                        document.getElementById(this.getAttribute('data-tab')).classList.add('active');
-                    });
+                document.querySelectorAll('.tab-content').forEach(content => {
+                    content.classList.remove('active');
                 });
-            }
-            
-            function filterTableData() {
+
+                // Activate the clicked tab
+                this.classList.add('active');
+                document.getElementById(this.getAttribute('data-tab')).classList.add('active');
+                if (this.getAttribute('data-tab') === 'hosts-table') {
+                    displayHosts();
+                }
+            });
+        });
+    }
+
+    function displayHosts() {
+        const tbody = document.querySelector('#hosts-table tbody');
+        const note = document.getElementById('hosts-note');
+        loadHosts()
+            .then(rows => {
                 const searchTerm = searchInput.value.toLowerCase();
-                const filterType = filterSelect.value;
-                
-                // Apply filters to table rows
-                document.querySelectorAll('.tab-content table tbody tr').forEach(row => {
-                    const rowText = row.textContent.toLowerCase();
-                    const rowParent = row.closest('.tab-content');
-                    let rowType = '';
-                    
-                    if (rowParent.id === 'cloudlets-table') rowType = 'Cloudlet';
-                    else if (rowParent.id === 'hosts-table') rowType = 'Host';
-                    else if (rowParent.id === 'vms-table') rowType = 'VM';
-                    
-                    const matchesSearch = rowText.includes(searchTerm);
-                    const matchesFilter = filterType === 'all' || rowType === filterType;
-                    
-                    row.style.display = matchesSearch && matchesFilter ? '' : 'none';
+                let shown = 0;
+                let matched = 0;
+                let html = '';
+                rows.forEach(host => {
+                    const text = `${host.id} ${host.utilization.toFixed(2)}% ${host.peakUtilization.toFixed(2)}% ` +
+                        `${formatEnergy(host.energy)} ${host.maxVms}`;
+                    if (searchTerm && !text.toLowerCase().includes(searchTerm)) {
+                        return;
+                    }
+                    matched++;
+                    if (shown >= MAX_HOST_ROWS) {
+                        return;
+                    }
+                    shown++;
+                    html += `<tr>
+                                <td>${host.id}</td>
+                                <td>${host.utilization.toFixed(2)}%</td>
+                                <td>${host.peakUtilization.toFixed(2)}%</td>
+                                <td>${formatEnergy(host.energy)}</td>
+                                <td>${host.maxVms}</td>
+                            </tr>`;
                 });
-            }
-            
-            function updateCharts() {
-                createExecutionTimeChart();
-                createEnergyConsumptionChart();
-                createCPUUtilizationChart();
-                createVMAllocationChart();
-            }
-            
-            function createExecutionTimeChart() {
-                const ctx = document.getElementById('executionTimeChart').getContext('2d');
-                
-                // Create gradient for bar chart
-                const gradient = ctx.createLinearGradient(0, 0, 0, 400);
-                gradient.addColorStop(0, chartConfig.executionTime.gradient.from);
-                gradient.addColorStop(1, chartConfig.executionTime.gradient.to);
-                
-                // Sort cloudlets by ID for consistency
-                const sortedCloudlets = [...appData.cloudlets].sort((a, b) => a.id - b.id);
-                
-                if (executionTimeChart) {
-                    executionTimeChart.destroy();
-                }
-                
-                executionTimeChart = new Chart(ctx, {
-                    type: chartConfig.executionTime.type,
-                    data: {
-                        labels: sortedCloudlets.map(item => `Cloudlet ${item.id}`),
-                        datasets: [{
-                            label: 'Execution Time (seconds)',
-                            data: sortedCloudlets.map(item => parseFloat(item.ExecutionTime)),
-                            backgroundColor: gradient,
-                            borderColor: chartConfig.executionTime.border,
-                            borderWidth: 1,
-                            borderRadius: 4,
-                            barThickness: 20,
-                            maxBarThickness: 30
-                        }]
+                tbody.innerHTML = html || '<tr><td colspan="5">No matching hosts</td></tr>';
+                note.textContent = matched > shown
+                    ? `Showing ${shown} of ${matched.toLocaleString('en-US')} hosts; search to narrow down.`
+                    : '';
+            })
+            .catch(error => {
+                console.error('Error loading hosts:', error);
+                tbody.innerHTML = '<tr><td colspan="5">Could not load results/hosts.csv</td></tr>';
+            });
+    }
+
+    function filterTableData() {
+        const searchTerm = searchInput.value.toLowerCase();
+        const filterType = filterSelect.value;
+
+        document.querySelectorAll('.tab-content').forEach(content => {
+            let rowType = '';
+            if (content.id === 'cloudlets-table') rowType = 'Cloudlet';
+            else if (content.id === 'hosts-table') rowType = 'Host';
+            else if (content.id === 'vms-table') rowType = 'VM';
+            content.style.display = filterType === 'all' || rowType === filterType ? '' : 'none';
+        });
+
+        // The hosts table searches all hosts, not just the rendered rows
+        if (document.getElementById('hosts-table').classList.contains('active')) {
+            displayHosts();
+        }
+        document.querySelectorAll('#cloudlets-table tbody tr, #vms-table tbody tr').forEach(row => {
+            const rowText = row.textContent.toLowerCase();
+            row.style.display = rowText.includes(searchTerm) ? '' : 'none';
+        });
+    }
+
+    function updateCharts() {
+        createExecutionTimeChart();
+        createEnergyConsumptionChart();
+        createCPUUtilizationChart();
+        createVMAllocationChart();
+    }
+
+    const tooltipStyle = {
+        backgroundColor: 'rgba(0, 0, 0, 0.7)',
+        padding: 10,
+        titleFont: {
+            size: 14,
+            weight: 'bold'
+        },
+        bodyFont: {
+            size: 13
+        }
+    };
+
+    function axisTitle(text) {
+        return {
+            display: true,
+            text: text,
+            font: {
+                size: 13,
+                weight: 'bold'
+            },
+            padding: 10
+        };
+    }
+
+    function createExecutionTimeChart() {
+        const ctx = document.getElementById('executionTimeChart').getContext('2d');
+
+        // Create gradient for bar chart
+        const gradient = ctx.createLinearGradient(0, 0, 0, 400);
+        gradient.addColorStop(0, chartConfig.executionTime.gradient.from);
+        gradient.addColorStop(1, chartConfig.executionTime.gradient.to);
+
+        // Pre-bucketed by the run, so the chart size is fixed
+        const histogram = dashboard.histograms.executionTime;
+
+        if (executionTimeChart) {
+            executionTimeChart.destroy();
+        }
+
+        executionTimeChart = new Chart(ctx, {
+            type: chartConfig.executionTime.type,
+            data: {
+                labels: binLabels(histogram, 2),
+                datasets: [{
+                    label: 'Cloudlets',
+                    data: histogram.counts,
+                    backgroundColor: gradient,
+                    borderColor: chartConfig.executionTime.border,
+                    borderWidth: 1,
+                    borderRadius: 4,
+                    barPercentage: 1.0,
+                    categoryPercentage: 0.95
+                }]
+            },
+            options: {
+                responsive: true,
+                maintainAspectRatio: false,
+                animation: false,
+                plugins: {
+                    legend: {
+                        display: false
                     },
-                    options: {
-                        responsive: true,
-                        maintainAspectRatio: false,
-                        plugins: {
-                            legend: {
-                                display: false
+                    tooltip: Object.assign({}, tooltipStyle, {
+                        callbacks: {
+                            title: function(items) {
+                                return `Execution time ${items[0].label} s`;
                             },
-                            tooltip: {
-                                backgroundColor: 'rgba(0, 0, 0, 0.7)',
-                                padding: 10,
-                                titleFont: {
-                                    size: 14,
-                                    weight: 'bold'
-                                },
-                                bodyFont: {
-                                    size: 13
-                                },
-                                callbacks: {
-                                    label: function(context) {
-                                        return `Execution time: ${context.parsed.y.toFixed(2)} seconds`;
-                                    }
-                                }
+                            label: function(context) {
+                                return `Cloudlets: ${context.parsed.y.toLocaleString('en-US')}`;
                             }
+                        }
+                    })
+                },
+                scales: {
+                    y: {
+                        beginAtZero: true,
+                        grid: {
+                            color: 'rgba(0, 0, 0, 0.05)',
+                            drawBorder: false
                         },
-                        scales: {
-                            y: {
-                                beginAtZero: true,
-                                grid: {
-                                    color: 'rgba(0, 0, 0, 0.05)',
-                                    drawBorder: false
-                                },
-                                ticks: {
-                                    font: {
-                                        size: 12
-                                    }
-                                },
-                                title: {
-                                    display: true,
-                                    text: 'Time (seconds)',
-                                    font: {
-                                        size: 13,
-                                        weight: 'bold'
-                                    },
-                                    padding: 10
-                                }
-                            },
-                            x: {
-                                grid: {
-                                    display: false
-                                },
-                                ticks: {
-                                    font: {
-                                        size: 12
-                                    }
-                                }
+                        title: axisTitle('Cloudlets')
+                    },
+                    x: {
+                        grid: {
+                            display: false
+                        },
+                        ticks: {
+                            maxRotation: 0,
+                            autoSkip: true,
+                            callback: function(value, index) {
+                                return histogram.edges[index].toFixed(1);
                             }
-                        }
+                        },
+                        title: axisTitle('Execution time (seconds)')
                     }
-                });
-            }
-            
-            function createEnergyConsumptionChart() {
-                const ctx = document.getElementById('energyConsumptionChart').getContext('2d');
-                
-                // Create gradient for bar chart
-                const gradient = ctx.createLinearGradient(0, 0, 0, 400);
-                gradient.addColorStop(0, chartConfig.energyConsumption.gradient.from);
-                gradient.addColorStop(1, chartConfig.energyConsumption.gradient.to);
-                
-                // Sort hosts by ID for consistency
-                const sortedHosts = [...appData.hosts].sort((a, b) => a.id - b.id);
-                
-                if (energyConsumptionChart) {
-                    energyConsumptionChart.destroy();
                 }
-                
-                energyConsumptionChart = new Chart(ctx, {
-                    type: chartConfig.energyConsumption.type,
-                    data: {
-                        labels: sortedHosts.map(item => `Host ${item.id}`),
-                        datasets: [{
-                            label: 'Energy Consumed (Wh)',
-                            data: sortedHosts.map(item => parseFloat(item.EnergyConsumed)),
-                            backgroundColor: gradient,
-                            borderColor: chartConfig.energyConsumption.border,
-                            borderWidth: 1,
-                            borderRadius: 4,
-                            barThickness: 20,
-                            maxBarThickness: 30
-                        }]
+            }
+        });
+    }
+
+    function createEnergyConsumptionChart() {
+        const ctx = document.getElementById('energyConsumptionChart').getContext('2d');
+
+        // Create gradient for bar chart
+        const gradient = ctx.createLinearGradient(0, 0, 0, 400);
+        gradient.addColorStop(0, chartConfig.energyConsumption.gradient.from);
+        gradient.addColorStop(1, chartConfig.energyConsumption.gradient.to);
+
+        // Hosts with the most energy, most first
+        const topHosts = dashboard.topHosts;
+
+        if (energyConsumptionChart) {
+            energyConsumptionChart.destroy();
+        }
+
+        energyConsumptionChart = new Chart(ctx, {
+            type: chartConfig.energyConsumption.type,
+            data: {
+                labels: topHosts.id.map(id => `Host ${id}`),
+                datasets: [{
+                    label: 'Energy Consumed (J)',
+                    data: topHosts.energy,
+                    backgroundColor: gradient,
+                    borderColor: chartConfig.energyConsumption.border,
+                    borderWidth: 1,
+                    borderRadius: 4,
+                    maxBarThickness: 30
+                }]
+            },
+            options: {
+                responsive: true,
+                maintainAspectRatio: false,
+                animation: false,
+                plugins: {
+                    legend: {
+                        display: false
                     },
-                    options: {
-                        responsive: true,
-                        maintainAspectRatio: false,
-                        plugins: {
-                            legend: {
-                                display: false
-                            },
-                            tooltip: {
-                                backgroundColor: 'rgba(0, 0, 0, 0.7)',
-                                padding: 10,
-                                titleFont: {
-                                    size: 14,
-                                    weight: 'bold'
-                                },
-                                bodyFont: {
-                                    size: 13
-                                },
-                                callbacks: {
-                                    label: function(context) {
-                                        return `Energy: ${context.parsed.y.toFixed(2)} Wh`;
-                                    }
-                                }
+                    tooltip: Object.assign({}, tooltipStyle, {
+                        callbacks: {
+                            label: function(context) {
+                                return `Energy: ${formatEnergy(context.parsed.y)}, ` +
+                                    `utilization ${topHosts.utilization[context.dataIndex].toFixed(2)}%`;
                             }
+                        }
+                    })
+                },
+                scales: {
+                    y: {
+                        beginAtZero: true,
+                        grid: {
+                            color: 'rgba(0, 0, 0, 0.05)',
+                            drawBorder: false
                         },
-                        scales: {
-                            y: {
-                                beginAtZero: true,
-                                grid: {
-                                    color: 'rgba(0, 0, 0, 0.05)',
-                                    drawBorder: false
-                                },
-                                ticks: {
-                                    font: {
-                                        size: 12
-                                    }
-                                },
-                                title: {
-                                    display: true,
-                                    text: 'Energy (Wh)',
-                                    font: {
-                                        size: 13,
-                                        weight: 'bold'
-                                    },
-                                    padding: 10
-                                }
-                            },
-                            x: {
-                                grid: {
-                                    display: false
-                                },
-                                ticks: {
-                                    font: {
-                                        size: 12
-                                    }
-                                }
+                        ticks: {
+                            callback: function(value) {
+                                return formatEnergy(value);
                             }
+                        },
+                        title: axisTitle('Energy')
+                    },
+                    x: {
+                        grid: {
+                            display: false
                         }
                     }
-                });
-            }
-            
-            function createCPUUtilizationChart() {
-                const ctx = document.getElementById('cpuUtilizationChart').getContext('2d');
-                
-                // Sort hosts by ID for consistency
-                const sortedHosts = [...appData.hosts].sort((a, b) => a.id - b.id);
-                
-                // Create gradient for line area
-                const gradient = ctx.createLinearGradient(0, 0, 0, 400);
-                gradient.addColorStop(0, 'rgba(16, 185, 129, 0.3)');
-                gradient.addColorStop(1, 'rgba(16, 185, 129, 0.0)');
-                
-                if (cpuUtilizationChart) {
-                    cpuUtilizationChart.destroy();
                 }
-                
-                cpuUtilizationChart = new Chart(ctx, {
-                    type: chartConfig.cpuUtilization.type,
-                    data: {
-                        labels: sortedHosts.map(item => `Host ${item.id}`),
-                        datasets: [{
-                            label: 'CPU Utilization (%)',
-                            data: sortedHosts.map(item => parseFloat(item.CPUUtilization) * 100),
-                            backgroundColor: gradient,
-                            borderColor: chartConfig.cpuUtilization.border,
-                            borderWidth: 2,
-                            pointBackgroundColor: chartConfig.cpuUtilization.border,
-                            pointBorderColor: '#fff',
-                            pointBorderWidth: 2,
-                            pointRadius: 5,
-                            pointHoverRadius: 7,
-                            tension: 0.3,
-                            fill: true
-                        }]
+            }
+        });
+    }
+
+    function createCPUUtilizationChart() {
+        const ctx = document.getElementById('cpuUtilizationChart').getContext('2d');
+
+        // Create gradient for line area
+        const gradient = ctx.createLinearGradient(0, 0, 0, 400);
+        gradient.addColorStop(0, 'rgba(16, 185, 129, 0.3)');
+        gradient.addColorStop(1, 'rgba(16, 185, 129, 0.0)');
+
+        // Series were downsampled with LTTB by the run
+        const toPoints = series => series.time.map((time, i) => ({ x: time, y: series.value[i] }));
+        const datasets = [];
+        if (dashboard.cluster.samples > 0) {
+            datasets.push({
+                label: 'All hosts (mean)',
+                data: toPoints(dashboard.cluster.utilization),
+                backgroundColor: gradient,
+                borderColor: chartConfig.cpuUtilization.border,
+                borderWidth: 2,
+                pointRadius: 0,
+                fill: true
+            });
+        }
+        dashboard.hostSeries.forEach((host, i) => {
+            const color = chartConfig.cpuUtilization.hostColors[i % chartConfig.cpuUtilization.hostColors.length];
+            datasets.push({
+                label: `Host ${host.host}`,
+                data: toPoints(host.utilization),
+                borderColor: color,
+                backgroundColor: color,
+                borderWidth: 1,
+                pointRadius: 0,
+                fill: false,
+                hidden: i >= 3
+            });
+        });
+
+        if (cpuUtilizationChart) {
+            cpuUtilizationChart.destroy();
+        }
+
+        cpuUtilizationChart = new Chart(ctx, {
+            type: chartConfig.cpuUtilization.type,
+            data: {
+                datasets: datasets
+            },
+            options: {
+                responsive: true,
+                maintainAspectRatio: false,
+                animation: false,
+                parsing: false,
+                interaction: {
+                    mode: 'nearest',
+                    axis: 'x',
+                    intersect: false
+                },
+                plugins: {
+                    legend: {
+                        display: datasets.length > 1,
+                        labels: {
+                            boxWidth: 12,
+                            font: {
+                                size: 11
+                            }
+                        }
                     },
-                    options: {
-                        responsive: true,
-                        maintainAspectRatio: false,
-                        plugins: {
-                            legend: {
-                                display: false
+                    tooltip: Object.assign({}, tooltipStyle, {
+                        callbacks: {
+                            title: function(items) {
+                                return `t = ${formatSeconds(items[0].parsed.x)}`;
                             },
-                            tooltip: {
-                                backgroundColor: 'rgba(0, 0, 0, 0.7)',
-                                padding: 10,
-                                titleFont: {
-                                    size: 14,
-                                    weight: 'bold'
-                                },
-                                bodyFont: {
-                                    size: 13
-                                },
-                                callbacks: {
-                                    label: function(context) {
-                                        return `Utilization: ${context.parsed.y.toFixed(2)}%`;
-                                    }
-                                }
+                            label: function(context) {
+                                return `${context.dataset.label}: ${context.parsed.y.toFixed(2)}%`;
                             }
+                        }
+                    })
+                },
+                scales: {
+                    y: {
+                        beginAtZero: true,
+                        suggestedMax: 100,
+                        grid: {
+                            color: 'rgba(0, 0, 0, 0.05)',
+                            drawBorder: false
                         },
-                        scales: {
-                            y: {
-                                beginAtZero: true,
-                                suggestedMax: 100,
-                                grid: {
-                                    color: 'rgba(0, 0, 0, 0.05)',
-                                    drawBorder: false
-                                },
-                                ticks: {
-                                    font: {
-                                        size: 12
-                                    },
-                                    callback: function(value) {
-                                        return value + '%';
-                                    }
-                                },
-                                title: {
-                                    display: true,
-                                    text: 'Utilization (%)',
-                                    font: {
-                                        size: 13,
-                                        weight: 'bold'
-                                    },
-                                    padding: 10
-                                }
-                            },
-                            x: {
-                                grid: {
-                                    display: false
-                                },
-                                ticks: {
-                                    font: {
-                                        size: 12
-                                    }
-                                }
+                        ticks: {
+                            callback: function(value) {
+                                return value + '%';
                             }
-                        }
-                    }
-                });
-            }
-            
-            function createVMAllocationChart() {
-                const ctx = document.getElementById('vmAllocationChart').getContext('2d');
-                
-                // Count VMs per host
-                const hostCounts = {};
-                appData.vms.forEach(vm => {
-                    const hostId = vm.Host;
-                    if (!hostCounts[hostId]) {
-                        hostCounts[hostId] = 0;
+                        },
+                        title: axisTitle('Utilization (%)')
+                    },
+                    x: {
+                        type: 'linear',
+                        grid: {
+                            display: false
+                        },
+                        title: axisTitle('Simulated time (seconds)')
                     }
-                    hostCounts[hostId]++;
-                });
-                
-                // Prepare data for chart
-                const labels = Object.keys(hostCounts).sort((a, b) => {
-                    if (a === '-1') return 1;
-                    if (b === '-1') return -1;
-                    return parseInt(a) - parseInt(b);
-                }).map(hostId => hostId === '-1' ? 'Unallocated' : `Host ${hostId}`);
-                
-                const values = labels.map(label => {
-                    const hostId = label === 'Unallocated' ? '-1' : label.replace('Host ', '');
-                    return hostCounts[hostId] || 0;
-                });
-                
-                if (vmAllocationChart) {
-                    vmAllocationChart.destroy();
                 }
-                
-                vmAllocationChart = new Chart(ctx, {
-                    type: chartConfig.vmAllocation.type,
-                    data: {
-                        labels: labels,
-                        datasets: [{
-                            data: values,
-                            backgroundColor: chartConfig.vmAllocation.colors,
-                            borderColor: '#ffffff',
-                            borderWidth: 2,
-                            hoverOffset: 15
-                        }]
-                    },
-                    options: {
-                        responsive: true,
-                        maintainAspectRatio: false,
-                        cutout: '60%',
-                        plugins: {
-                            legend: {
-                                position: 'right',
-                                labels: {
-                                    font: {
-                                        size: 12
-                                    },
-                                    padding: 15,
-                                    boxWidth: 15,
-                                    boxHeight: 15
-                                }
+            }
+        });
+    }
+
+    function createVMAllocationChart() {
+        const ctx = document.getElementById('vmAllocationChart').getContext('2d');
+
+        // Hosts per peak VM count, skipping counts no host had
+        const vmCounts = dashboard.vmsPerHost.hosts;
+        const labels = [];
+        const values = [];
+        vmCounts.forEach((hosts, vms) => {
+            if (hosts > 0) {
+                const more = dashboard.vmsPerHost.openEnded && vms === vmCounts.length - 1 ? '+' : '';
+                labels.push(vms === 0 ? 'No VMs' : `${vms}${more} VM${vms === 1 && !more ? '' : 's'}`);
+                values.push(hosts);
+            }
+        });
+
+        if (vmAllocationChart) {
+            vmAllocationChart.destroy();
+        }
+
+        vmAllocationChart = new Chart(ctx, {
+            type: chartConfig.vmAllocation.type,
+            data: {
+                labels: labels,
+                datasets: [{
+                    data: values,
+                    backgroundColor: chartConfig.vmAllocation.colors,
+                    borderColor: '#ffffff',
+                    borderWidth: 2,
+                    hoverOffset: 15
+                }]
+            },
+            options: {
+                responsive: true,
+                maintainAspectRatio: false,
+                cutout: '60%',
+                plugins: {
+                    legend: {
+                        position: 'right',
+                        labels: {
+                            font: {
+                                size: 12
                             },
-                            tooltip: {
-                                backgroundColor: 'rgba(0, 0, 0, 0.7)',
-                                padding: 10,
-                                titleFont: {
-                                    size: 14,
-                                    weight: 'bold'
-                                },
-                                bodyFont: {
-                                    size: 13
-                                },
-                                callbacks: {
-                                    label: function(context) {
-                                        const value = context.parsed;
-                                        const total = context.dataset.data.reduce((acc, data) => acc + data, 0);
-                                        const percentage = ((value / total) * 100).toFixed(1);
-                                        return `VMs: ${value} (${percentage}%)`;
-                                    }
-                                }
+                            padding: 15,
+                            boxWidth: 15,
+                            boxHeight: 15
+                        }
+                    },
+                    tooltip: Object.assign({}, tooltipStyle, {
+                        callbacks: {
+                            label: function(context) {
+                                const value = context.parsed;
+                                const total = context.dataset.data.reduce((acc, data) => acc + data, 0);
+                                const percentage = ((value / total) * 100).toFixed(1);
+                                return `Hosts: ${value.toLocaleString('en-US')} (${percentage}%)`;
                             }
                         }
-                    }
-                });
-            }
-            
-            function updateTimestamp() {
-                const now = new Date();
-                const options = { 
-                    year: 'numeric', 
-                    month: 'short', 
-                    day: 'numeric', 
-                    hour: '2-digit', 
-                    minute: '2-digit', 
-                    second: '2-digit' 
-                };
-                lastUpdated.innerHTML = `<i class="fas fa-clock"></i> Last updated: ${now.toLocaleDateString('en-US', options)}`;
-            }
-            
-            // Add CSS for additional styling
-            const style = document.createElement('style');
-            style.textContent = `
-                .tabs-container {
-                    width: 100%;
-                }
-                
-                .tabs {
-                    display: flex;
-                    margin-bottom: 15px;
-                    border-bottom: 1px solid var(--border-color);
-                }
-                
-                .tab-btn {
-                    padding: 10px 20px;
-                    background: none;
-                    border: none;
-                    border-bottom: 3px solid transparent;
-                    font-size: 14px;
-                    font-weight: 500;
-                    color: var(--text-light);
-                    cursor: pointer;
-                    transition: all 0.3s ease;
-                }
-                
-                .tab-btn:hover {
-                    color: var(--primary-color);
-                }
-                
-                .tab-btn.active {
-                    color: var(--primary-color);
-                    border-bottom-color: var(--primary-color);
-                }
-                
-                .tab-content {
-                    display: none;
-                }
-                
-                .tab-content.active {
-                    display: block;
+                    })
                 }
-                
-                .status-badge {
-                    display: inline-block;
-                    padding: 4px 8px;
-                    border-radius: 12px;
-                    font-size: 12px;
-                    font-weight: 500;
-                }
-                
-                .status-badge.success {
-                    background-color: rgba(16, 185, 129, 0.1);
-                    color: var(--secondary-color);
-                }
-                
-                .status-badge.failed {
-                    background-color: rgba(239, 68, 68, 0.1);
-                    color: var(--danger-color);
-                }
-                
-                .card.expanded {
-                    grid-column: 1 / -1;
-                    transition: all 0.3s ease;
-                }
-                
-                .card.expanded .chart-container {
-                    height: 400px;
-                }
-                
-                /* Animation for refresh */
-                @keyframes fadeIn {
-                    from { opacity: 0; }
-                    to { opacity: 1; }
-                }
-                
-                .fade-in {
-                    animation: fadeIn 0.5s ease-in-out;
-                }
-            `;
-            document.head.appendChild(style);
-        });
\ No newline at end of file
+            }
+        });
+    }
+
+    function updateTimestamp() {
+        const now = new Date();
+        const options = {
+            year: 'numeric',
+            month: 'short',
+            day: 'numeric',
+            hour: '2-digit',
+            minute: '2-digit',
+            second: '2-digit'
+        };
+        lastUpdated.innerHTML = `<i class="fas fa-clock"></i> Last updated: ${now.toLocaleDateString('en-US', options)}`;
+    }
+
+    // Add CSS for additional styling
+    const style = document.createElement('style');
+    style.textContent = `
+        .tabs-container {
+            width: 100%;
+        }
+
+        .tabs {
+            display: flex;
+            margin-bottom: 15px;
+            border-bottom: 1px solid var(--border-color);
+        }
+
+        .tab-btn {
+            padding: 10px 20px;
+            background: none;
+            border: none;
+            border-bottom: 3px solid transparent;
+            font-size: 14px;
+            font-weight: 500;
+            color: var(--text-light);
+            cursor: pointer;
+            transition: all 0.3s ease;
+        }
+
+        .tab-btn:hover {
+            color: var(--primary-color);
+        }
+
+        .tab-btn.active {
+            color: var(--primary-color);
+            border-bottom-color: var(--primary-color);
+        }
+
+        .tab-content {
+            display: none;
+        }
+
+        .tab-content.active {
+            display: block;
+        }
+
+        .table-note {
+            margin-top: 10px;
+            font-size: 13px;
+            color: var(--text-light);
+        }
+
+        .status-badge {
+            display: inline-block;
+            padding: 4px 8px;
+            border-radius: 12px;
+            font-size: 12px;
+            font-weight: 500;
+        }
+
+        .status-badge.success {
+            background-color: rgba(16, 185, 129, 0.1);
+            color: var(--secondary-color);
+        }
+
+        .status-badge.failed {
+            background-color: rgba(239, 68, 68, 0.1);
+            color: var(--danger-color);
+        }
+
+        .card.expanded {
+            grid-column: 1 / -1;
+            transition: all 0.3s ease;
+        }
+
+        .card.expanded .chart-container {
+            height: 400px;
+        }
+
+        /* Animation for refresh */
+        @keyframes fadeIn {
+            from { opacity: 0; }
+            to { opacity: 1; }
+        }
+
+        .fade-in {
+            animation: fadeIn 0.5s ease-in-out;
+        }
+    `;
+    document.head.appendChild(style);
+});
@@ -0,0 +1,146 @@
+package org.cloudbus.cloudsim;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * Access to CloudSim's protected static event queues, which the shipped
+ * 3.0.3 jar only exposes to subclasses.
+ */
+public class CloudSimInternals extends CloudSim {
+
+    private CloudSimInternals() {
+    }
+
+    /**
+     * @return Number of events waiting in the future queue, 0 before init
+     */
+    public static int getFutureEventCount() {
+        return future == null ? 0 : future.size();
+    }
+
+    /**
+     * Every event goes through the future queue, so once it is empty this is
+     * the number of events the run processed, removed ones aside
+     * @return Events added to the future queue so far, -1 unless it is a
+     *         HeapFutureQueue
+     */
+    public static long getScheduledEventCount() {
+        return future instanceof HeapFutureQueue ? ((HeapFutureQueue) future).getAddedCount() : -1;
+    }
+
+    /**
+     * Runs the simulation through every event at or before time, including
+     * the ones those events schedule, starting the entities first unless it
+     * is already running. It stops between clock ticks with the clock at
+     * time, where a SimulationCheckpoint can be taken;
+     * CloudSim.startSimulation() then continues the run.
+     * @return false if the simulation ran out of events on the way; it is
+     *         then finished as startSimulation would have finished it
+     */
+    public static boolean runUntil(double time) {
+        if (future == null) {
+            throw new IllegalStateException("CloudSim.init has not been called");
+        }
+        if (!running()) {
+            runStart();
+        }
+        // A tick delivers the deferred events of the last one and then takes
+        // the next batch off the future queue. Once that batch is past time,
+        // only the entities run, so the clock does not move beyond it.
+        while (deferred.size() > 0 || nextEventTime() <= time) {
+            if (nextEventTime() <= time) {
+                if (runClockTick()) {
+                    finishSimulation();
+                    runStop();
+                    return false;
+                }
+            } else {
+                int pending = deferred.size();
+                runEntities();
+                if (deferred.size() == pending && nextEventTime() > time) {
+                    // Left for entities that are not runnable, as a tick would leave them
+                    break;
+                }
+            }
+        }
+        if (future.size() == 0) {
+            runClockTick();
+            finishSimulation();
+            runStop();
+            return false;
+        }
+        // As CloudSim.run() does when it pauses, advance the clock to the pause time
+        setClock(time);
+        return true;
+    }
+
+    /**
+     * @return Time of the first event in the future queue, or +infinity
+     */
+    private static double nextEventTime() {
+        return future.size() > 0 ? future.iterator().next().eventTime() : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * The first half of CloudSim.runClockTick: runnable entities process
+     * their deferred events, and nothing is taken off the future queue
+     */
+    private static void runEntities() {
+        try {
+            Method getState = SimEntity.class.getDeclaredMethod("getState");
+            getState.setAccessible(true);
+            for (SimEntity entity : getEntityList()) {
+                if ((int) getState.invoke(entity) == SimEntity.RUNNABLE) {
+                    entity.run();
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read the state of CloudSim's entities", e);
+        }
+    }
+
+    private static void setClock(double time) {
+        try {
+            Field clock = CloudSim.class.getDeclaredField("clock");
+            clock.setAccessible(true);
+            if (time > clock.getDouble(null)) {
+                clock.setDouble(null, time);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set CloudSim's clock", e);
+        }
+    }
+
+    /**
+     * Replaces the future event queue created by CloudSim.init. Must be
+     * called after init and before startSimulation; events already queued
+     * are moved over in order.
+     * @param kind "stock" keeps CloudSim's TreeSet queue, "heap" installs
+     * HeapFutureQueue
+     */
+    public static void installFutureQueue(String kind) {
+        FutureQueue queue;
+        switch (kind.toLowerCase(Locale.ROOT)) {
+            case "stock":
+                return;
+            case "heap":
+                queue = new HeapFutureQueue();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown event queue: " + kind);
+        }
+        if (future == null) {
+            throw new IllegalStateException("CloudSim.init has not been called");
+        }
+        for (Iterator<SimEvent> it = future.iterator(); it.hasNext();) {
+            queue.addEvent(it.next());
+        }
+        future = queue;
+    }
+}
@@ -0,0 +1,10 @@
+package org.cloudbus.cloudsim;
+
+/**
+ * Receives each cloudlet as soon as its broker gets it back from the
+ * datacenter.
+ */
+public interface CloudletCompletionListener {
+
+    void cloudletFinished(Cloudlet cloudlet);
+}
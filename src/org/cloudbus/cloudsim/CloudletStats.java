@@ -0,0 +1,144 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import org.cloudbus.cloudsim.utils.LatencyHistogram;
+
+/**
+ * Running aggregates over finished cloudlets: counts per status, histograms
+ * of completion time (finish minus submission), wait time and execution
+ * (CPU) time, and per-VM
+ * cloudlet counts and CPU time. Memory does not grow with the number of
+ * cloudlets, so a broker that does not retain finished cloudlets can still
+ * report on all of them.
+ *
+ * Times are recorded in microseconds of simulated time; LatencyHistogram
+ * reports any of them within about 3%.
+ */
+public class CloudletStats implements CloudletCompletionListener {
+    private static final double MICROS_PER_SECOND = 1e6;
+
+    private long count = 0;
+    private long[] statusCounts = new long[16];
+    private final LatencyHistogram completionTimes = new LatencyHistogram();
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final LatencyHistogram executionTimes = new LatencyHistogram();
+    private double totalCpuTime = 0.0;
+    private double lastFinishTime = 0.0;
+
+    // Indexed by VM id, grown on demand
+    private long[] vmCloudlets = new long[0];
+    private double[] vmCpuTime = new double[0];
+
+    /**
+     * Folds a list of finished cloudlets in one pass
+     */
+    public static CloudletStats of(List<? extends Cloudlet> cloudlets) {
+        CloudletStats stats = new CloudletStats();
+        for (Cloudlet cloudlet : cloudlets) {
+            stats.cloudletFinished(cloudlet);
+        }
+        return stats;
+    }
+
+    @Override
+    public void cloudletFinished(Cloudlet cloudlet) {
+        count++;
+        int status = cloudlet.getCloudletStatus();
+        if (status >= statusCounts.length) {
+            statusCounts = Arrays.copyOf(statusCounts, status + 1);
+        }
+        if (status >= 0) {
+            statusCounts[status]++;
+        }
+        double finish = cloudlet.getFinishTime();
+        completionTimes.record(toMicros(finish - cloudlet.getSubmissionTime()));
+        waitTimes.record(toMicros(cloudlet.getWaitingTime()));
+        lastFinishTime = Math.max(lastFinishTime, finish);
+
+        double cpuTime = cloudlet.getActualCPUTime();
+        executionTimes.record(toMicros(cpuTime));
+        totalCpuTime += cpuTime;
+        int vmId = cloudlet.getVmId();
+        if (vmId >= 0) {
+            if (vmId >= vmCloudlets.length) {
+                int capacity = Math.max(vmId + 1, vmCloudlets.length * 2);
+                vmCloudlets = Arrays.copyOf(vmCloudlets, capacity);
+                vmCpuTime = Arrays.copyOf(vmCpuTime, capacity);
+            }
+            vmCloudlets[vmId]++;
+            vmCpuTime[vmId] += cpuTime;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param status One of the Cloudlet status constants
+     */
+    public long getCount(int status) {
+        return status >= 0 && status < statusCounts.length ? statusCounts[status] : 0;
+    }
+
+    public long getSuccessCount() {
+        return getCount(Cloudlet.SUCCESS);
+    }
+
+    /**
+     * @return Completion times in microseconds
+     */
+    public LatencyHistogram getCompletionTimes() {
+        return completionTimes;
+    }
+
+    /**
+     * @return Wait times in microseconds
+     */
+    public LatencyHistogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    /**
+     * @return Execution (CPU) times in microseconds
+     */
+    public LatencyHistogram getExecutionTimes() {
+        return executionTimes;
+    }
+
+    public double getMeanCompletionTime() {
+        return completionTimes.getMean() / MICROS_PER_SECOND;
+    }
+
+    public double getCompletionTimeAtPercentile(double percentile) {
+        return completionTimes.getValueAtPercentile(percentile) / MICROS_PER_SECOND;
+    }
+
+    public double getMeanWaitTime() {
+        return waitTimes.getMean() / MICROS_PER_SECOND;
+    }
+
+    public double getWaitTimeAtPercentile(double percentile) {
+        return waitTimes.getValueAtPercentile(percentile) / MICROS_PER_SECOND;
+    }
+
+    public double getTotalCpuTime() {
+        return totalCpuTime;
+    }
+
+    public double getLastFinishTime() {
+        return lastFinishTime;
+    }
+
+    public long getVmCloudletCount(int vmId) {
+        return vmId >= 0 && vmId < vmCloudlets.length ? vmCloudlets[vmId] : 0;
+    }
+
+    public double getVmCpuTime(int vmId) {
+        return vmId >= 0 && vmId < vmCpuTime.length ? vmCpuTime[vmId] : 0.0;
+    }
+
+    private static long toMicros(double seconds) {
+        return Math.round(Math.max(0.0, seconds) * MICROS_PER_SECOND);
+    }
+}
@@ -0,0 +1,22 @@
+package org.cloudbus.cloudsim;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A workload that yields cloudlets one at a time in arrival-time order, so
+ * only the next pending record has to be held in memory.
+ */
+public interface CloudletTrace extends Closeable {
+
+    /**
+     * @return Arrival time in simulated seconds of the next cloudlet, or
+     *         Double.POSITIVE_INFINITY once the trace is exhausted
+     */
+    double nextArrivalTime() throws IOException;
+
+    /**
+     * Builds the next cloudlet for the given broker and advances the trace
+     */
+    Cloudlet nextCloudlet(int userId) throws IOException;
+}
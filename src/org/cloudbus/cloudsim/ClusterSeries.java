@@ -0,0 +1,96 @@
+package org.cloudbus.cloudsim;
+
+import org.cloudbus.cloudsim.utils.Lttb;
+
+/**
+ * Datacenter-wide history kept at every host sample: mean host utilization,
+ * number of hosts with any utilization and total energy so far. It holds at
+ * most CAPACITY samples whatever the length of the run: when it is full,
+ * LTTB on the utilization keeps half of them, with the first and the last,
+ * and the other values recorded with those. Energy is cumulative, so the
+ * power between kept samples is still the exact mean over that interval.
+ */
+public class ClusterSeries {
+    /** Several times what the dashboard charts, so compacting rarely shows */
+    public static final int CAPACITY = 8192;
+
+    private final double[] times = new double[CAPACITY];
+    private final double[] utilizations = new double[CAPACITY];
+    private final double[] energies = new double[CAPACITY];
+    private final int[] activeHosts = new int[CAPACITY];
+    private final int[] kept = new int[CAPACITY / 2];
+    private int size = 0;
+    private long recorded = 0;
+
+    public void record(double time, double meanUtilization, int activeHostCount, double totalEnergy) {
+        if (size == CAPACITY) {
+            compact();
+        }
+        times[size] = time;
+        utilizations[size] = meanUtilization;
+        activeHosts[size] = activeHostCount;
+        energies[size] = totalEnergy;
+        size++;
+        recorded++;
+    }
+
+    private void compact() {
+        int count = Lttb.select(times, utilizations, size, kept.length, kept);
+        // Positions increase and kept[i] >= i, so rows move down in place
+        for (int i = 0; i < count; i++) {
+            int from = kept[i];
+            times[i] = times[from];
+            utilizations[i] = utilizations[from];
+            energies[i] = energies[from];
+            activeHosts[i] = activeHosts[from];
+        }
+        size = count;
+    }
+
+    /**
+     * @return Samples recorded over the run, including the ones compacted away
+     */
+    public long getRecordedCount() {
+        return recorded;
+    }
+
+    /**
+     * @return Samples held now, at most CAPACITY
+     */
+    public int size() {
+        return size;
+    }
+
+    public double getTime(int i) {
+        return times[i];
+    }
+
+    /**
+     * @return Mean utilization over all hosts, in [0, 1]
+     */
+    public double getUtilization(int i) {
+        return utilizations[i];
+    }
+
+    public int getActiveHosts(int i) {
+        return activeHosts[i];
+    }
+
+    /**
+     * @return Energy of all hosts up to the sample, in joules
+     */
+    public double getEnergy(int i) {
+        return energies[i];
+    }
+
+    /**
+     * @return Mean power of all hosts since the previous sample, in watts
+     */
+    public double getPower(int i) {
+        if (i == 0) {
+            return times[0] > 0 ? energies[0] / times[0] : 0.0;
+        }
+        double interval = times[i] - times[i - 1];
+        return interval > 0 ? (energies[i] - energies[i - 1]) / interval : getPower(i - 1);
+    }
+}
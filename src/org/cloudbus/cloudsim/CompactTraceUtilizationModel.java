@@ -0,0 +1,40 @@
+package org.cloudbus.cloudsim;
+
+/**
+ * Single-precision variant of TraceUtilizationModel for large numbers of
+ * precomputed cloudlet models.
+ */
+public class CompactTraceUtilizationModel implements UtilizationModel {
+    private final float[] samples;
+    private final double interval;
+
+    public CompactTraceUtilizationModel(float[] samples, double interval) {
+        if (samples.length == 0) {
+            throw new IllegalArgumentException("A utilization trace needs at least one sample");
+        }
+        this.samples = samples;
+        this.interval = interval;
+    }
+
+    @Override
+    public double getUtilization(double time) {
+        double position = time / interval;
+        if (position <= 0) {
+            return samples[0];
+        }
+        int index = (int) position;
+        if (index >= samples.length - 1) {
+            return samples[samples.length - 1];
+        }
+        double fraction = position - index;
+        return samples[index] + (samples[index + 1] - samples[index]) * fraction;
+    }
+
+    public int getSampleCount() {
+        return samples.length;
+    }
+
+    public double getInterval() {
+        return interval;
+    }
+}
@@ -0,0 +1,390 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import org.cloudbus.cloudsim.utils.IndexedIntSet;
+
+/**
+ * Decides VM migrations that relieve overloaded hosts and empty underloaded
+ * ones so they can be powered down.
+ *
+ * Hosts are classified by the MIPS their VMs use (UtilizationLedger.usedMips)
+ * whenever their utilization is refreshed, so a pass only visits the hosts
+ * currently above the upper or below the lower threshold. Targets come from
+ * the HostIndex: the least-utilized host for VMs leaving an overloaded host,
+ * the most-utilized host that stays under the upper threshold for VMs
+ * leaving an underloaded one. Resources promised to earlier migrations of
+ * the same pass, both the MIPS the VMs use and their full size, are tracked
+ * per host until the datacenter reserves them. A pass visits at most
+ * hostsPerPass overloaded and hostsPerPass underloaded hosts and resumes
+ * with the remaining ones on the next call, so the migrations it plans only
+ * depend on the simulation. A wall-clock budget can be set on top of that;
+ * it makes the plans depend on machine load.
+ */
+public class ConsolidationEngine {
+    private final List<? extends Host> hosts;
+    private final HostPositions positions;
+    private final double upperThreshold;
+    private final double lowerThreshold;
+    private final int hostsPerPass;
+    private long budgetNanos = 0;
+
+    private final IndexedIntSet overloaded;
+    private final IndexedIntSet underloaded;
+    private int overloadedCursor = 0;
+    private int underloadedCursor = 0;
+
+    // Per-pass bookkeeping, reset through the touched list
+    private final double[] plannedUsedMips;
+    private final double[] plannedMips;
+    private final double[] plannedRam;
+    private final double[] plannedBw;
+    private final long[] plannedStorage;
+    private final boolean[] emptying;
+    private final boolean[] receiving;
+    private final int[] plannedVms;
+    private final boolean[] touched;
+    private final int[] touchedHosts;
+    private int touchedCount = 0;
+    private long deadline;
+    private long longestStepNanos = 0;
+    private int stepsThisPass;
+    private boolean passCapped;
+    private boolean passOverBudget;
+
+    private long migrationsPlanned = 0;
+    private long passesCapped = 0;
+    private long passesOverBudget = 0;
+
+    /**
+     * @param upperThreshold Utilization above which a host is overloaded
+     * @param lowerThreshold Utilization below which a host with VMs is emptied
+     * @param hostsPerPass   Overloaded and underloaded hosts visited by one
+     *                       decision pass
+     */
+    public ConsolidationEngine(List<? extends Host> hosts, HostPositions positions,
+                               double upperThreshold, double lowerThreshold, int hostsPerPass) {
+        if (lowerThreshold >= upperThreshold) {
+            throw new IllegalArgumentException("Lower threshold must be below the upper threshold");
+        }
+        if (hostsPerPass <= 0) {
+            throw new IllegalArgumentException("A pass must visit at least one host: " + hostsPerPass);
+        }
+        this.hosts = hosts;
+        this.positions = positions;
+        this.upperThreshold = upperThreshold;
+        this.lowerThreshold = lowerThreshold;
+        this.hostsPerPass = hostsPerPass;
+        int n = hosts.size();
+        overloaded = new IndexedIntSet(n);
+        underloaded = new IndexedIntSet(n);
+        plannedUsedMips = new double[n];
+        plannedMips = new double[n];
+        plannedRam = new double[n];
+        plannedBw = new double[n];
+        plannedStorage = new long[n];
+        emptying = new boolean[n];
+        receiving = new boolean[n];
+        plannedVms = new int[n];
+        touched = new boolean[n];
+        touchedHosts = new int[n];
+    }
+
+    /**
+     * Reclassifies a host after its utilization was refreshed
+     */
+    public void hostChanged(Host host, double utilization) {
+        int position = positions.positionOf(host);
+        if (position < 0) {
+            return;
+        }
+        if (utilization > upperThreshold) {
+            overloaded.add(position);
+        } else {
+            overloaded.remove(position);
+        }
+        if (utilization < lowerThreshold && !host.getVmList().isEmpty()) {
+            underloaded.add(position);
+        } else {
+            underloaded.remove(position);
+        }
+    }
+
+    /**
+     * Plans migrations for the currently classified hosts.
+     * @return Maps with the keys "vm" and "host", as Datacenter.processVmMigrate expects
+     */
+    public List<Map<String, Object>> optimize(HostIndex hostIndex) {
+        deadline = budgetNanos > 0 ? System.nanoTime() + budgetNanos : Long.MAX_VALUE;
+        // Let an outlier step (e.g. before JIT compilation) fade out
+        longestStepNanos /= 2;
+        stepsThisPass = 0;
+        passCapped = false;
+        passOverBudget = false;
+        List<Map<String, Object>> migrations = new ArrayList<>();
+        hostIndex.refreshDirty();
+
+        int count = overloaded.size();
+        for (int i = 0; i < count && hasStep(); i++) {
+            long start = budgetNanos > 0 ? System.nanoTime() : 0L;
+            overloadedCursor = overloadedCursor < overloaded.size() ? overloadedCursor : 0;
+            relieve(overloaded.get(overloadedCursor++), hostIndex, migrations);
+            if (budgetNanos > 0) {
+                longestStepNanos = Math.max(longestStepNanos, System.nanoTime() - start);
+            }
+        }
+
+        // Underloaded hosts get their own share, so hosts that cannot be relieved do not starve them
+        stepsThisPass = 0;
+        count = underloaded.size();
+        for (int i = 0; i < count && hasStep(); i++) {
+            long start = budgetNanos > 0 ? System.nanoTime() : 0L;
+            underloadedCursor = underloadedCursor < underloaded.size() ? underloadedCursor : 0;
+            empty(underloaded.get(underloadedCursor++), hostIndex, migrations);
+            if (budgetNanos > 0) {
+                longestStepNanos = Math.max(longestStepNanos, System.nanoTime() - start);
+            }
+        }
+
+        resetPlans();
+        migrationsPlanned += migrations.size();
+        passesCapped += passCapped ? 1 : 0;
+        passesOverBudget += passOverBudget ? 1 : 0;
+        return migrations;
+    }
+
+    /**
+     * Starts another host unless the pass has visited hostsPerPass hosts of
+     * the current kind or, with a time budget, the slowest recent host would
+     * not finish within it. The first host of a pass always runs.
+     */
+    private boolean hasStep() {
+        if (passOverBudget) {
+            return false;
+        }
+        if (stepsThisPass == hostsPerPass) {
+            passCapped = true;
+            return false;
+        }
+        if (stepsThisPass++ > 0 && budgetNanos > 0 && System.nanoTime() + longestStepNanos > deadline) {
+            passOverBudget = true;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean withinBudget() {
+        return budgetNanos <= 0 || System.nanoTime() <= deadline;
+    }
+
+    /**
+     * Also stops a pass once it has run for the given wall-clock time, 0 for
+     * no limit (the default). Which migrations are planned then depends on
+     * machine load and JIT timing, so runs are no longer reproducible.
+     */
+    public void setTimeBudget(double budgetMillis) {
+        this.budgetNanos = (long) (budgetMillis * 1e6);
+    }
+
+    /**
+     * @return Wall-clock budget of one pass in milliseconds, 0 if there is none
+     */
+    public double getTimeBudget() {
+        return budgetNanos / 1e6;
+    }
+
+    public int getHostsPerPass() {
+        return hostsPerPass;
+    }
+
+    public int getOverloadedHostCount() {
+        return overloaded.size();
+    }
+
+    public int getUnderloadedHostCount() {
+        return underloaded.size();
+    }
+
+    public long getMigrationsPlanned() {
+        return migrationsPlanned;
+    }
+
+    /**
+     * @return Passes that left hosts for the next one after visiting
+     *         hostsPerPass hosts
+     */
+    public long getPassesCapped() {
+        return passesCapped;
+    }
+
+    /**
+     * @return Passes stopped by the wall-clock budget
+     */
+    public long getPassesOverBudget() {
+        return passesOverBudget;
+    }
+
+    /**
+     * Moves the VMs that bring an overloaded host back under the upper
+     * threshold with the fewest migrations.
+     */
+    private void relieve(int source, HostIndex hostIndex, List<Map<String, Object>> migrations) {
+        Host host = hosts.get(source);
+        if (emptying[source] || receiving[source] || !host.getVmsMigratingIn().isEmpty()) {
+            return;
+        }
+        List<Vm> candidates = new ArrayList<>(host.getVmList());
+        double excess = hostIndex.getUtilization(source) * host.getTotalMips() - upperThreshold * host.getTotalMips();
+        while (excess > 0 && !candidates.isEmpty() && withinBudget()) {
+            Vm vm = selectVmToMigrate(candidates, excess);
+            if (vm == null) {
+                return;
+            }
+            candidates.remove(vm);
+            Host target = hostIndex.findSuitable(vm, false, position -> accepts(position, source, vm, hostIndex));
+            if (target != null) {
+                plan(vm, target, migrations);
+                excess -= UtilizationLedger.usedMips(vm);
+            }
+        }
+    }
+
+    /**
+     * Moves every VM of an underloaded host, or none if one of them has no
+     * target.
+     */
+    private void empty(int source, HostIndex hostIndex, List<Map<String, Object>> migrations) {
+        Host host = hosts.get(source);
+        if (receiving[source] || !host.getVmsMigratingIn().isEmpty()) {
+            return;
+        }
+        List<Vm> vms = host.getVmList();
+        for (Vm vm : vms) {
+            if (vm.isInMigration() || vm.isBeingInstantiated()) {
+                return;
+            }
+        }
+        emptying[source] = true;
+        touch(source);
+        int planned = migrations.size();
+        for (Vm vm : vms) {
+            Host target = !withinBudget() ? null
+                : hostIndex.findSuitable(vm, true, position -> accepts(position, source, vm, hostIndex));
+            if (target == null) {
+                // Undo this host's plans; it stays underloaded for the next pass
+                while (migrations.size() > planned) {
+                    unplan(migrations.remove(migrations.size() - 1));
+                }
+                emptying[source] = false;
+                return;
+            }
+            plan(vm, target, migrations);
+        }
+    }
+
+    /**
+     * Picks the smallest VM that removes the whole excess, or else the
+     * largest one.
+     */
+    private static Vm selectVmToMigrate(List<Vm> candidates, double excess) {
+        Vm smallestSufficient = null;
+        double smallestSufficientMips = 0;
+        Vm largest = null;
+        double largestMips = 0;
+        for (Vm vm : candidates) {
+            if (vm.isInMigration() || vm.isBeingInstantiated()) {
+                continue;
+            }
+            double mips = UtilizationLedger.usedMips(vm);
+            if (mips >= excess && (smallestSufficient == null || mips < smallestSufficientMips)) {
+                smallestSufficient = vm;
+                smallestSufficientMips = mips;
+            }
+            if (largest == null || mips > largestMips) {
+                largest = vm;
+                largestMips = mips;
+            }
+        }
+        return smallestSufficient != null ? smallestSufficient : largest;
+    }
+
+    /**
+     * The threshold is checked against the MIPS the VMs use, the same measure
+     * the host was classified by; capacity is checked against the VM's full
+     * size: CloudSim re-creates the VM on the target with whatever it
+     * requests when the migration ends and exits if that fails. Hosts with
+     * migrations in flight are skipped because their reservations only cover
+     * what the VMs requested when they started.
+     */
+    private boolean accepts(int position, int source, Vm vm, HostIndex hostIndex) {
+        Host host = hosts.get(position);
+        if (position == source || emptying[position] || host.getVmList().isEmpty()
+                || !host.getVmsMigratingIn().isEmpty()) {
+            // Never target the source, a host being emptied or an idle host that could stay off
+            return false;
+        }
+        double utilizationAfter = (hostIndex.getUtilization(position) * host.getTotalMips()
+            + plannedUsedMips[position] + UtilizationLedger.usedMips(vm)) / host.getTotalMips();
+        return utilizationAfter <= upperThreshold
+            && host.getVmScheduler().getPeCapacity() >= vm.getMips()
+            && host.getVmScheduler().getAvailableMips() - plannedMips[position] >= totalMips(vm)
+            && host.getRamProvisioner().getAvailableRam() - plannedRam[position] >= vm.getRam()
+            && host.getBwProvisioner().getAvailableBw() - plannedBw[position] >= vm.getBw()
+            && host.getStorage() - plannedStorage[position] >= vm.getSize();
+    }
+
+    private void plan(Vm vm, Host target, List<Map<String, Object>> migrations) {
+        int position = positions.positionOf(target);
+        plannedUsedMips[position] += UtilizationLedger.usedMips(vm);
+        plannedMips[position] += totalMips(vm);
+        plannedRam[position] += vm.getRam();
+        plannedBw[position] += vm.getBw();
+        plannedStorage[position] += vm.getSize();
+        plannedVms[position]++;
+        receiving[position] = true;
+        touch(position);
+
+        Map<String, Object> migrate = new HashMap<>();
+        migrate.put("vm", vm);
+        migrate.put("host", target);
+        migrations.add(migrate);
+    }
+
+    private void unplan(Map<String, Object> migrate) {
+        Vm vm = (Vm) migrate.get("vm");
+        int position = positions.positionOf((Host) migrate.get("host"));
+        plannedUsedMips[position] -= UtilizationLedger.usedMips(vm);
+        plannedMips[position] -= totalMips(vm);
+        plannedRam[position] -= vm.getRam();
+        plannedBw[position] -= vm.getBw();
+        plannedStorage[position] -= vm.getSize();
+        // A host that no longer receives anything may still be a source
+        receiving[position] = --plannedVms[position] > 0;
+    }
+
+    private static double totalMips(Vm vm) {
+        return vm.getMips() * vm.getNumberOfPes();
+    }
+
+    private void touch(int position) {
+        if (!touched[position]) {
+            touched[position] = true;
+            touchedHosts[touchedCount++] = position;
+        }
+    }
+
+    private void resetPlans() {
+        for (int i = 0; i < touchedCount; i++) {
+            int position = touchedHosts[i];
+            touched[position] = false;
+            plannedUsedMips[position] = 0;
+            plannedMips[position] = 0;
+            plannedRam[position] = 0;
+            plannedBw[position] = 0;
+            plannedStorage[position] = 0;
+            plannedVms[position] = 0;
+            emptying[position] = false;
+            receiving[position] = false;
+        }
+        touchedCount = 0;
+    }
+}
@@ -1,30 +1,49 @@
 package org.cloudbus.cloudsim;
 
+/**
+ * Simulation settings. The host, VM and cloudlet values are the defaults for
+ * fields a Scenario file leaves out, and together describe the scenario Main
+ * runs without --scenario.
+ */
 public class Constants {
-    // Host configurations
-    public static final int NO_OF_HOSTS = 5;
+    // Datacenter configurations
+    public static final String DATACENTER_NAME = "GreenDatacenter";
     public static final String ARCHITECTURE = "x86";
     public static final String OS = "Linux";
     public static final String VMM = "Xen";
     public static final double TIME_ZONE = 10.0;
     public static final double COST = 3.0;
     public static final double COST_PER_MEM = 0.05;
-    public static final double COST_PER_STORAGE = 0.001;
-    public static final double COST_PER_BW = 0.0;
+    public static final double COST_PER_STORAGE = 0.1;
+    public static final double COST_PER_BW = 0.1;
     public static final double SCHEDULING_INTERVAL = 0.1;
+    public static final int UTILIZATION_HISTORY_WINDOW = 32;
+
+    // Host configurations
+    public static final int NO_OF_HOSTS = 3;
+    public static final int[] HOST_MIPS = {1000, 1500, 2000};
+    public static final int HOST_PES = 1;
+    public static final int HOST_RAM = 2048;
+    public static final int HOST_BW = 10000;
+    public static final long HOST_STORAGE = 1000000;
+
+    // Consolidation
+    public static final double OVERLOAD_THRESHOLD = 0.8;
+    public static final double UNDERLOAD_THRESHOLD = 0.2;
+    public static final int CONSOLIDATION_HOSTS_PER_PASS = 256;
 
     // VM configurations
-    public static final int NO_OF_VMS = 5;
-    public static final int[] VM_MIPS = {1000, 1500, 2000, 2500, 3000};
+    public static final int NO_OF_VMS = 3;
+    public static final int[] VM_MIPS = {1000};
     public static final int VM_PES = 1;
-    public static final int VM_RAM = 512;
+    public static final int VM_RAM = 1024;
     public static final int VM_BW = 1000;
     public static final int VM_SIZE = 10000;
 
     // Cloudlet configurations
-    public static final int NO_OF_CLOUDLETS = 10;
+    public static final int NO_OF_CLOUDLETS = 6;
     public static final int CLOUDLET_PES = 1;
-    public static final int CLOUDLET_LENGTH = 400000;
+    public static final int[] CLOUDLET_LENGTHS = {5000, 10000, 15000, 20000, 25000, 30000};
     public static final int CLOUDLET_FILE_SIZE = 300;
     public static final int CLOUDLET_OUTPUT_SIZE = 300;
 }
\ No newline at end of file
@@ -0,0 +1,346 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.utils.LatencyHistogram;
+import org.cloudbus.cloudsim.utils.Lttb;
+import org.cloudbus.cloudsim.utils.TimeSeriesReader;
+
+/**
+ * Writes what docs/index.html charts, already aggregated, so the page loads
+ * in the same time however large the run was:
+ *
+ * dashboard.json holds the run totals, the ClusterSeries and the
+ * utilization of the hosts that used the most energy downsampled with LTTB,
+ * execution, completion and wait time histograms re-bucketed from
+ * CloudletStats, host energy and utilization histograms, the top hosts by
+ * energy and how many hosts peaked at each VM count. Its size does not
+ * depend on the number of hosts, VMs, cloudlets or samples.
+ *
+ * hosts.csv holds every host's mean and peak utilization, energy and peak
+ * VM count, for the hosts table, which loads it on demand.
+ *
+ * Per-host series are only kept in full by a TimeSeriesWriter, so they are
+ * included when the run wrote a time series file.
+ */
+public final class DashboardBundle {
+    public static final String DASHBOARD_FILE = "dashboard.json";
+    public static final String HOSTS_FILE = "hosts.csv";
+
+    private static final int VERSION = 1;
+    private static final int SERIES_POINTS = 1000;
+    private static final int HOST_SERIES_POINTS = 500;
+    private static final int HOST_SERIES = 8;
+    private static final int TOP_HOSTS = 20;
+    private static final int HISTOGRAM_BINS = 40;
+    private static final int MAX_VM_COUNT_BINS = 64;
+    private static final double MICROS_PER_SECOND = 1e6;
+
+    private DashboardBundle() {
+    }
+
+    /**
+     * @param cluster        Datacenter-wide samples, null if none were recorded
+     * @param timeSeriesFile File written by a TimeSeriesWriter during the
+     *                       run, null if there was none
+     * @return Size of dashboard.json in bytes
+     */
+    public static long write(Path directory, VmAllocationPolicyEnergyAware policy, CloudletStats stats,
+                             int vmCount, ClusterSeries cluster, Path timeSeriesFile) throws IOException {
+        Files.createDirectories(directory);
+        MetricsSnapshot snapshot = MetricsSnapshot.of(stats, policy);
+        int[] topHosts = topByEnergy(snapshot, Math.max(TOP_HOSTS, HOST_SERIES));
+
+        StringBuilder json = new StringBuilder(1 << 16);
+        json.append("{\"version\":").append(VERSION);
+
+        json.append(",\"summary\":{");
+        // CloudSim resets its clock when the simulation finishes
+        double simulatedTime = Math.max(CloudSim.clock(), stats.getLastFinishTime());
+        if (cluster != null && cluster.size() > 0) {
+            simulatedTime = Math.max(simulatedTime, cluster.getTime(cluster.size() - 1));
+        }
+        json.append("\"simulatedTime\":");
+        appendNumber(json, simulatedTime);
+        json.append(",\"cloudlets\":").append(stats.getCount());
+        json.append(",\"successfulCloudlets\":").append(stats.getSuccessCount());
+        json.append(",\"vms\":").append(vmCount);
+        json.append(",\"hosts\":").append(snapshot.getHostCount());
+        json.append(",\"hostsUtilized\":").append(snapshot.getActiveHosts());
+        json.append(",\"totalEnergy\":");
+        appendNumber(json, snapshot.getTotalEnergy());
+        json.append(",\"meanCompletionTime\":");
+        appendNumber(json, stats.getMeanCompletionTime());
+        json.append(",\"p99CompletionTime\":");
+        appendNumber(json, stats.getCompletionTimeAtPercentile(99));
+        json.append(",\"meanWaitTime\":");
+        appendNumber(json, stats.getMeanWaitTime());
+        json.append(",\"p99WaitTime\":");
+        appendNumber(json, stats.getWaitTimeAtPercentile(99));
+        json.append("}");
+
+        json.append(",\"cluster\":{");
+        if (cluster != null && cluster.size() > 0) {
+            int size = cluster.size();
+            double[] times = new double[size];
+            double[] utilization = new double[size];
+            double[] power = new double[size];
+            double[] activeHosts = new double[size];
+            for (int i = 0; i < size; i++) {
+                times[i] = cluster.getTime(i);
+                utilization[i] = cluster.getUtilization(i) * 100;
+                power[i] = cluster.getPower(i);
+                activeHosts[i] = cluster.getActiveHosts(i);
+            }
+            json.append("\"samples\":").append(cluster.getRecordedCount());
+            json.append(",\"utilization\":");
+            appendSeries(json, times, utilization, size, SERIES_POINTS);
+            json.append(",\"power\":");
+            appendSeries(json, times, power, size, SERIES_POINTS);
+            json.append(",\"activeHosts\":");
+            appendSeries(json, times, activeHosts, size, SERIES_POINTS);
+        } else {
+            json.append("\"samples\":0");
+        }
+        json.append("}");
+
+        json.append(",\"hostSeries\":[");
+        if (timeSeriesFile != null) {
+            appendHostSeries(json, timeSeriesFile, snapshot, topHosts);
+        }
+        json.append("]");
+
+        json.append(",\"histograms\":{");
+        json.append("\"executionTime\":");
+        appendHistogram(json, stats.getExecutionTimes());
+        json.append(",\"completionTime\":");
+        appendHistogram(json, stats.getCompletionTimes());
+        json.append(",\"waitTime\":");
+        appendHistogram(json, stats.getWaitTimes());
+        double[] energy = new double[snapshot.getHostCount()];
+        double[] utilization = new double[snapshot.getHostCount()];
+        for (int i = 0; i < energy.length; i++) {
+            energy[i] = snapshot.getEnergy(i);
+            utilization[i] = snapshot.getAverageUtilization(i) * 100;
+        }
+        json.append(",\"hostEnergy\":");
+        appendHistogram(json, energy);
+        json.append(",\"hostUtilization\":");
+        appendHistogram(json, utilization);
+        json.append("}");
+
+        json.append(",\"topHosts\":{\"id\":[");
+        int topCount = Math.min(TOP_HOSTS, topHosts.length);
+        for (int i = 0; i < topCount; i++) {
+            json.append(i > 0 ? "," : "").append(snapshot.getHostId(topHosts[i]));
+        }
+        json.append("],\"energy\":[");
+        for (int i = 0; i < topCount; i++) {
+            json.append(i > 0 ? "," : "");
+            appendFloat(json, snapshot.getEnergy(topHosts[i]));
+        }
+        json.append("],\"utilization\":[");
+        for (int i = 0; i < topCount; i++) {
+            json.append(i > 0 ? "," : "");
+            appendFloat(json, snapshot.getAverageUtilization(topHosts[i]) * 100);
+        }
+        json.append("]}");
+
+        // Hosts per peak VM count; the last entry also counts anything above it
+        int maxVms = 0;
+        for (int i = 0; i < snapshot.getHostCount(); i++) {
+            maxVms = Math.max(maxVms, snapshot.getMaxVms(i));
+        }
+        long[] vmCounts = new long[Math.min(maxVms, MAX_VM_COUNT_BINS - 1) + 1];
+        for (int i = 0; i < snapshot.getHostCount(); i++) {
+            vmCounts[Math.min(snapshot.getMaxVms(i), vmCounts.length - 1)]++;
+        }
+        json.append(",\"vmsPerHost\":{\"hosts\":[");
+        for (int i = 0; i < vmCounts.length; i++) {
+            json.append(i > 0 ? "," : "").append(vmCounts[i]);
+        }
+        json.append("],\"openEnded\":").append(maxVms >= vmCounts.length).append("}}\n");
+
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(directory.resolve(DASHBOARD_FILE), bytes);
+        writeHosts(directory.resolve(HOSTS_FILE), snapshot);
+        return bytes.length;
+    }
+
+    private static void writeHosts(Path file, MetricsSnapshot snapshot) throws IOException {
+        StringBuilder csv = new StringBuilder(64 + snapshot.getHostCount() * 40);
+        csv.append("HostID,CPUUtilization,PeakUtilization,EnergyConsumed,MaxVMs\n");
+        for (int i = 0; i < snapshot.getHostCount(); i++) {
+            csv.append(snapshot.getHostId(i)).append(',');
+            appendFloat(csv, snapshot.getAverageUtilization(i) * 100);
+            csv.append(',');
+            appendFloat(csv, snapshot.getPeakUtilization(i) * 100);
+            csv.append(',');
+            appendFloat(csv, snapshot.getEnergy(i));
+            csv.append(',').append(snapshot.getMaxVms(i)).append('\n');
+        }
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the utilization of the hosts with the most energy back from the
+     * time series file, one host at a time
+     */
+    private static void appendHostSeries(StringBuilder json, Path timeSeriesFile, MetricsSnapshot snapshot,
+                                         int[] topHosts) throws IOException {
+        try (TimeSeriesReader reader = new TimeSeriesReader(timeSeriesFile)) {
+            int[] seriesIds = reader.getSeriesIds();
+            int written = 0;
+            for (int i = 0; i < topHosts.length && written < HOST_SERIES; i++) {
+                int hostId = snapshot.getHostId(topHosts[i]);
+                int series = VmAllocationPolicyEnergyAware.utilizationSeries(hostId);
+                if (Arrays.binarySearch(seriesIds, series) < 0) {
+                    continue;
+                }
+                int count = (int) reader.getSampleCount(series);
+                double[] times = new double[count];
+                double[] values = new double[count];
+                int[] size = new int[1];
+                reader.scan(series, reader.getFirstTime(series), reader.getLastTime(series), (time, value) -> {
+                    if (size[0] < count) {
+                        times[size[0]] = time;
+                        values[size[0]] = value * 100;
+                        size[0]++;
+                    }
+                });
+                json.append(written > 0 ? "," : "").append("{\"host\":").append(hostId).append(",\"utilization\":");
+                appendSeries(json, times, values, size[0], HOST_SERIES_POINTS);
+                json.append("}");
+                written++;
+            }
+        }
+    }
+
+    private static void appendSeries(StringBuilder json, double[] times, double[] values, int length,
+                                     int points) {
+        double[] keptTimes = new double[points];
+        double[] keptValues = new double[points];
+        int kept = Lttb.downsample(times, values, length, points, keptTimes, keptValues);
+        json.append("{\"time\":");
+        appendArray(json, keptTimes, kept);
+        json.append(",\"value\":");
+        appendArray(json, keptValues, kept);
+        json.append("}");
+    }
+
+    /**
+     * Re-buckets a microsecond histogram into equal-width bins in seconds
+     * between its minimum and maximum, exact to a LatencyHistogram bucket
+     */
+    private static void appendHistogram(StringBuilder json, LatencyHistogram histogram) {
+        long min = histogram.getMin();
+        long max = histogram.getMax();
+        int bins = histogram.getCount() == 0 ? 0 : max > min ? HISTOGRAM_BINS : 1;
+        double[] edges = new double[bins + 1];
+        long[] counts = new long[bins];
+        long previous = 0;
+        for (int i = 0; i <= bins; i++) {
+            long edge = i == bins ? max : min + (long) ((double) (max - min) * i / bins);
+            edges[i] = edge / MICROS_PER_SECOND;
+            if (i > 0) {
+                long seen = histogram.getCountAtOrBelow(edge);
+                counts[i - 1] = seen - previous;
+                previous = seen;
+            }
+        }
+        appendBins(json, edges, counts);
+    }
+
+    /**
+     * Counts values into equal-width bins between their minimum and maximum
+     */
+    private static void appendHistogram(StringBuilder json, double[] values) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        int bins = values.length == 0 ? 0 : max > min ? HISTOGRAM_BINS : 1;
+        double[] edges = new double[bins + 1];
+        for (int i = 0; i <= bins; i++) {
+            edges[i] = i == bins ? max : min + (max - min) * i / bins;
+        }
+        long[] counts = new long[bins];
+        for (double value : values) {
+            int bin = max > min ? (int) ((value - min) / (max - min) * bins) : 0;
+            counts[Math.min(bin, bins - 1)]++;
+        }
+        appendBins(json, edges, counts);
+    }
+
+    private static void appendBins(StringBuilder json, double[] edges, long[] counts) {
+        json.append("{\"edges\":");
+        appendArray(json, edges, edges.length);
+        json.append(",\"counts\":[");
+        for (int i = 0; i < counts.length; i++) {
+            json.append(i > 0 ? "," : "").append(counts[i]);
+        }
+        json.append("]}");
+    }
+
+    /**
+     * @return Host list positions with the most energy, most first
+     */
+    private static int[] topByEnergy(MetricsSnapshot snapshot, int limit) {
+        int[] top = new int[Math.min(limit, snapshot.getHostCount())];
+        int size = 0;
+        for (int i = 0; i < snapshot.getHostCount(); i++) {
+            double energy = snapshot.getEnergy(i);
+            if (size == top.length && energy <= snapshot.getEnergy(top[size - 1])) {
+                continue;
+            }
+            int slot = size < top.length ? size++ : size - 1;
+            while (slot > 0 && snapshot.getEnergy(top[slot - 1]) < energy) {
+                top[slot] = top[slot - 1];
+                slot--;
+            }
+            top[slot] = i;
+        }
+        return top;
+    }
+
+    private static void appendArray(StringBuilder json, double[] values, int length) {
+        json.append('[');
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendFloat(json, values[i]);
+        }
+        json.append(']');
+    }
+
+    /**
+     * Chart values need no more than float precision, which keeps the file small
+     */
+    private static void appendFloat(StringBuilder out, double value) {
+        float rounded = (float) value;
+        if (Float.isNaN(rounded) || Float.isInfinite(rounded)) {
+            out.append("null");
+        } else if (rounded == (long) rounded && Math.abs(rounded) < 1e15f) {
+            out.append((long) rounded);
+        } else {
+            out.append(rounded);
+        }
+    }
+
+    private static void appendNumber(StringBuilder json, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            json.append("null");
+        } else if (value == (long) value && Math.abs(value) < 1e15) {
+            json.append((long) value);
+        } else {
+            json.append(value);
+        }
+    }
+}
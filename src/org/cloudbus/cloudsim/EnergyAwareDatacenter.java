@@ -0,0 +1,297 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * Datacenter that reports changes in the MIPS its VMs use to an
+ * energy-aware allocation policy, so its utilization ledger stays current
+ * without re-summing VMs.
+ * Once per scheduling interval it asks the policy for migrations and starts
+ * them the way PowerDatacenter does, unless migrations are disabled. No
+ * pass runs while a cloudlet is being submitted, as its VM does not count
+ * the new cloudlet yet and would look idle.
+ */
+public class EnergyAwareDatacenter extends Datacenter {
+    /** Event carrying a List of VMs to place in one pass */
+    public static final int VM_CREATE_BATCH = 91003;
+    /** Reply to VM_CREATE_BATCH: a List of int[] {datacenter, vm, result} acks */
+    public static final int VM_CREATE_BATCH_ACK = 91004;
+
+    private boolean disableMigrations = false;
+    private double lastOptimizationTime = Double.NEGATIVE_INFINITY;
+    private int migrationCount = 0;
+    private boolean submittingCloudlet = false;
+    private transient ParallelHostUpdate parallelHostUpdate;
+
+    public EnergyAwareDatacenter(String name,
+                                 DatacenterCharacteristics characteristics,
+                                 VmAllocationPolicy vmAllocationPolicy,
+                                 List<Storage> storageList,
+                                 double schedulingInterval) throws Exception {
+        super(name, characteristics, vmAllocationPolicy, storageList, schedulingInterval);
+    }
+
+    @Override
+    protected void processVmCreate(SimEvent ev, boolean ack) {
+        super.processVmCreate(ev, ack);
+
+        // The VM counts for what its cloudlets use once it is no longer being instantiated
+        Vm vm = (Vm) ev.getData();
+        if (getVmAllocationPolicy() instanceof VmAllocationPolicyEnergyAware && vm.getHost() != null) {
+            ((VmAllocationPolicyEnergyAware) getVmAllocationPolicy()).updateVmMips(vm);
+        }
+    }
+
+    @Override
+    protected void processCloudletSubmit(SimEvent ev, boolean ack) {
+        submittingCloudlet = true;
+        try {
+            super.processCloudletSubmit(ev, ack);
+        } finally {
+            submittingCloudlet = false;
+        }
+
+        // A new cloudlet raises the MIPS its VM uses before the next processing update
+        if (getVmAllocationPolicy() instanceof VmAllocationPolicyEnergyAware && ev.getData() instanceof Cloudlet) {
+            Cloudlet cloudlet = (Cloudlet) ev.getData();
+            Host host = getVmAllocationPolicy().getHost(cloudlet.getVmId(), cloudlet.getUserId());
+            Vm vm = host != null ? host.getVm(cloudlet.getVmId(), cloudlet.getUserId()) : null;
+            if (vm != null) {
+                ((VmAllocationPolicyEnergyAware) getVmAllocationPolicy()).updateVmMips(vm);
+            }
+        }
+    }
+
+    @Override
+    public void processEvent(SimEvent ev) {
+        if (Instrumentation.ENABLED) {
+            Instrumentation.eventProcessed();
+        }
+        super.processEvent(ev);
+    }
+
+    @Override
+    protected void processOtherEvent(SimEvent ev) {
+        if (ev != null && ev.getTag() == VM_CREATE_BATCH) {
+            @SuppressWarnings("unchecked")
+            List<Vm> vms = (List<Vm>) ev.getData();
+            processVmCreateBatch(vms);
+            return;
+        }
+        super.processOtherEvent(ev);
+    }
+
+    /**
+     * Places a batch through the policy's packer and starts each VM exactly
+     * as processVmCreate does. The acks go back as one VM_CREATE_BATCH_ACK
+     * per user: a hundred thousand single acks would each be looked up in
+     * CloudSim's deferred queue with a full scan.
+     */
+    protected void processVmCreateBatch(List<Vm> vms) {
+        boolean[] results;
+        if (getVmAllocationPolicy() instanceof VmAllocationPolicyEnergyAware) {
+            results = ((VmAllocationPolicyEnergyAware) getVmAllocationPolicy()).allocateHostsForVms(vms);
+        } else {
+            results = new boolean[vms.size()];
+            for (int i = 0; i < vms.size(); i++) {
+                results[i] = getVmAllocationPolicy().allocateHostForVm(vms.get(i));
+            }
+        }
+
+        Map<Integer, List<int[]>> acks = new LinkedHashMap<>();
+        for (int i = 0; i < vms.size(); i++) {
+            Vm vm = vms.get(i);
+            int[] data = {getId(), vm.getId(), results[i] ? CloudSimTags.TRUE : CloudSimTags.FALSE};
+            acks.computeIfAbsent(vm.getUserId(), user -> new ArrayList<>()).add(data);
+            if (results[i]) {
+                getVmList().add(vm);
+                vm.setBeingInstantiated(false);
+                vm.updateVmProcessing(CloudSim.clock(), vm.getHost().getVmScheduler().getAllocatedMipsForVm(vm));
+                if (getVmAllocationPolicy() instanceof VmAllocationPolicyEnergyAware) {
+                    ((VmAllocationPolicyEnergyAware) getVmAllocationPolicy()).updateVmMips(vm);
+                }
+            }
+        }
+        for (Map.Entry<Integer, List<int[]>> entry : acks.entrySet()) {
+            send(entry.getKey(), CloudSim.getMinTimeBetweenEvents(), VM_CREATE_BATCH_ACK, entry.getValue());
+        }
+    }
+
+    @Override
+    protected void updateCloudletProcessing() {
+        if (!(getVmAllocationPolicy() instanceof VmAllocationPolicyEnergyAware)) {
+            super.updateCloudletProcessing();
+            return;
+        }
+        VmAllocationPolicyEnergyAware policy = (VmAllocationPolicyEnergyAware) getVmAllocationPolicy();
+
+        // Same as Datacenter.updateCloudletProcessing, plus a ledger refresh per processed host
+        if (CloudSim.clock() < 0.111 || CloudSim.clock() > getLastProcessTime() + CloudSim.getMinTimeBetweenEvents()) {
+            // Energy up to now is owed to the cloudlets before processing finishes any
+            policy.integrateHostEnergy();
+            List<? extends Host> list = policy.getHostList();
+            double now = CloudSim.clock();
+            double smallerTime = Double.MAX_VALUE;
+            if (parallelHostUpdate == null) {
+                for (int i = 0; i < list.size(); i++) {
+                    smallerTime = Math.min(smallerTime, updateResidentVmsProcessing(list.get(i), now));
+                }
+            } else {
+                // Each host only touches the VMs running on it
+                smallerTime = parallelHostUpdate.min(list.size(), i -> updateResidentVmsProcessing(list.get(i), now));
+            }
+            // A VM migrating in is also in its source's list; it shares one
+            // CloudletScheduler, so its second update runs here, serially
+            for (int i = 0; i < list.size(); i++) {
+                Host host = list.get(i);
+                for (Vm vm : host.getVmsMigratingIn()) {
+                    double time = vm.updateVmProcessing(now, host.getVmScheduler().getAllocatedMipsForVm(vm));
+                    if (time > 0.0 && time < smallerTime) {
+                        smallerTime = time;
+                    }
+                }
+            }
+            // The refreshes write shared indexes
+            for (int i = 0; i < list.size(); i++) {
+                Host host = list.get(i);
+                if (!host.getVmList().isEmpty()) {
+                    policy.refreshHost(host);
+                }
+            }
+            if (!disableMigrations && !submittingCloudlet
+                    && CloudSim.clock() >= lastOptimizationTime + Constants.SCHEDULING_INTERVAL) {
+                startMigrations(policy.optimizeAllocation(getVmList()));
+                lastOptimizationTime = CloudSim.clock();
+            }
+            if (smallerTime < CloudSim.clock() + CloudSim.getMinTimeBetweenEvents() + 0.01) {
+                smallerTime = CloudSim.clock() + CloudSim.getMinTimeBetweenEvents() + 0.01;
+            }
+            if (smallerTime != Double.MAX_VALUE) {
+                schedule(getId(), (smallerTime - CloudSim.clock()), CloudSimTags.VM_DATACENTER_EVENT);
+            }
+            setLastProcessTime(CloudSim.clock());
+        }
+    }
+
+    /**
+     * Host.updateVmsProcessing over the VMs running on the host, without
+     * those migrating in
+     */
+    private static double updateResidentVmsProcessing(Host host, double now) {
+        List<Vm> migratingIn = host.getVmsMigratingIn();
+        double smallerTime = Double.MAX_VALUE;
+        for (Vm vm : host.getVmList()) {
+            if (!migratingIn.isEmpty() && migratingIn.contains(vm)) {
+                continue;
+            }
+            double time = vm.updateVmProcessing(now, host.getVmScheduler().getAllocatedMipsForVm(vm));
+            if (time > 0.0 && time < smallerTime) {
+                smallerTime = time;
+            }
+        }
+        return smallerTime;
+    }
+
+    /**
+     * Reserves each target host and completes the migration after the time
+     * needed to copy the VM's RAM over half of the target's bandwidth
+     */
+    private void startMigrations(List<Map<String, Object>> migrationMap) {
+        for (Map<String, Object> migrate : migrationMap) {
+            Vm vm = (Vm) migrate.get("vm");
+            Host targetHost = (Host) migrate.get("host");
+            EventLog eventLog = getEventLog();
+            if (eventLog != null) {
+                eventLog.record(EventLog.Type.MIGRATION_STARTED, CloudSim.clock(), vm.getId(), targetHost.getId(),
+                    vm.getHost().getId(), 0.0);
+            } else {
+                Log.formatLine("%.2f: Migration of VM #%d from Host #%d to Host #%d is started",
+                    CloudSim.clock(), vm.getId(), vm.getHost().getId(), targetHost.getId());
+            }
+            targetHost.addMigratingInVm(vm);
+            migrationCount++;
+
+            // RAM in MB, bandwidth in Mbit/s
+            double delay = vm.getRam() * 8.0 / (targetHost.getBw() / 2.0);
+            send(getId(), delay, CloudSimTags.VM_MIGRATE, migrate);
+        }
+    }
+
+    /**
+     * Same as Datacenter.processVmMigrate, except that the VM is re-created
+     * with its full capacity as on first creation (a running VM would
+     * otherwise request no MIPS and starve on the target), a VM destroyed
+     * while migrating only releases its reservation, and a failed re-creation
+     * throws instead of exiting the JVM.
+     */
+    @Override
+    protected void processVmMigrate(SimEvent ev, boolean ack) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> migrate = (Map<String, Object>) ev.getData();
+        Vm vm = (Vm) migrate.get("vm");
+        Host host = (Host) migrate.get("host");
+        if (vm.getHost() == null) {
+            host.removeMigratingInVm(vm);
+            return;
+        }
+
+        getVmAllocationPolicy().deallocateHostForVm(vm);
+        host.removeMigratingInVm(vm);
+        vm.setBeingInstantiated(true);
+        boolean result = getVmAllocationPolicy().allocateHostForVm(vm, host);
+        vm.setBeingInstantiated(false);
+        if (!result) {
+            throw new IllegalStateException("Migration of VM #" + vm.getId() + " to Host #" + host.getId() + " failed");
+        }
+        if (getVmAllocationPolicy() instanceof VmAllocationPolicyEnergyAware) {
+            ((VmAllocationPolicyEnergyAware) getVmAllocationPolicy()).updateVmMips(vm);
+        }
+
+        if (ack) {
+            sendNow(ev.getSource(), CloudSimTags.VM_CREATE_ACK, new int[] {getId(), vm.getId(), CloudSimTags.TRUE});
+        }
+        EventLog eventLog = getEventLog();
+        if (eventLog != null) {
+            eventLog.record(EventLog.Type.MIGRATION_COMPLETED, CloudSim.clock(), vm.getId(), host.getId(), 0.0);
+        } else {
+            Log.formatLine("%.2f: Migration of VM #%d to Host #%d is completed", CloudSim.clock(), vm.getId(), host.getId());
+        }
+        vm.setInMigration(false);
+
+        updateCloudletProcessing();
+        checkCloudletCompletion();
+    }
+
+    /**
+     * Updates hosts in parallel partitions from now on, null for serial.
+     * Results are the same either way, with or without migrations: VMs
+     * migrating in are updated after the parallel pass, in host order.
+     */
+    public void setParallelHostUpdate(ParallelHostUpdate parallelHostUpdate) {
+        this.parallelHostUpdate = parallelHostUpdate;
+    }
+
+    /**
+     * @return The energy-aware policy's event log, which replaces the
+     *         migration log lines when set
+     */
+    private EventLog getEventLog() {
+        return getVmAllocationPolicy() instanceof VmAllocationPolicyEnergyAware
+            ? ((VmAllocationPolicyEnergyAware) getVmAllocationPolicy()).getEventLog() : null;
+    }
+
+    public void setDisableMigrations(boolean disableMigrations) {
+        this.disableMigrations = disableMigrations;
+    }
+
+    public boolean isDisableMigrations() {
+        return disableMigrations;
+    }
+
+    public int getMigrationCount() {
+        return migrationCount;
+    }
+}
@@ -0,0 +1,282 @@
+package org.cloudbus.cloudsim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured binary log of allocation, migration, cloudlet and sampling
+ * events, for tracing large runs without formatting text on the way.
+ *
+ * The simulation thread writes fixed-layout records (sim time, type, VM,
+ * host, detail, value) into a preallocated ring of longs and
+ * publishes them with an ordered store; a background thread drains the
+ * ring into a file. Recording formats nothing and allocates nothing. When
+ * the ring is full the simulation thread waits for the drainer, so no
+ * record is ever lost; getStallCount() says how often that happened.
+ *
+ * One producer thread only. Read the file back with decode() or
+ * {@code java org.cloudbus.cloudsim.EventLog FILE}.
+ */
+public class EventLog implements CloudletCompletionListener, Closeable {
+    public enum Type {
+        VM_ALLOCATED,
+        VM_ALLOCATION_FAILED,
+        VM_DEALLOCATED,
+        MIGRATION_STARTED,
+        MIGRATION_COMPLETED,
+        CLOUDLET_FINISHED,
+        HOST_SAMPLED
+    }
+
+    private static final Type[] TYPES = Type.values();
+    private static final int MAGIC = 0x45564c31; // "EVL1"
+    private static final int HEADER_BYTES = 16;
+    /** time, type, vm, host, detail, value */
+    private static final int RECORD_BYTES = 32;
+    private static final int LONGS_PER_RECORD = 4;
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int WRITE_BUFFER_RECORDS = 2048;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final long[] ring;
+    private final int mask;
+    private final FileChannel channel;
+    private final Thread drainer;
+
+    // Written by the simulation thread only
+    private long produced = 0;
+    private long stallCount = 0;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private volatile boolean closed = false;
+    private volatile IOException failure;
+
+    public EventLog(Path path) throws IOException {
+        this(path, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Records the ring holds, rounded up to a power of two
+     */
+    public EventLog(Path path, int capacity) throws IOException {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        ring = new long[size * LONGS_PER_RECORD];
+        mask = size - 1;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(RECORD_BYTES).putLong(0).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        drainer = new Thread(this::drain, "EventLog-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * @param vmId VM id, or -1
+     * @param hostId Host id, the target host of a migration, or -1
+     * @param utilization Host utilization after the event, in [0, 1]
+     */
+    public void record(Type type, double time, int vmId, int hostId, double utilization) {
+        record(type, time, vmId, hostId, -1, utilization);
+    }
+
+    /**
+     * @param detail Cloudlet id of CLOUDLET_FINISHED, source host of
+     *               MIGRATION_STARTED, otherwise -1
+     * @param value Host utilization, or the CPU time of CLOUDLET_FINISHED
+     */
+    public void record(Type type, double time, int vmId, int hostId, int detail, double value) {
+        long sequence = produced;
+        if (sequence - consumed.get() > mask) {
+            awaitSpace(sequence);
+        }
+        int base = (int) (sequence & mask) * LONGS_PER_RECORD;
+        ring[base] = Double.doubleToRawLongBits(time);
+        ring[base + 1] = (long) type.ordinal() << 32 | (vmId & 0xffffffffL);
+        ring[base + 2] = (long) hostId << 32 | (detail & 0xffffffffL);
+        ring[base + 3] = Double.doubleToRawLongBits(value);
+        produced = sequence + 1;
+        published.lazySet(produced);
+    }
+
+    @Override
+    public void cloudletFinished(Cloudlet cloudlet) {
+        record(Type.CLOUDLET_FINISHED, cloudlet.getFinishTime(), cloudlet.getVmId(), -1,
+            cloudlet.getCloudletId(), cloudlet.getActualCPUTime());
+    }
+
+    public long getRecordCount() {
+        return produced;
+    }
+
+    /**
+     * @return How often the simulation thread waited for a full ring
+     */
+    public long getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * Drains every record to the file and stops the background thread
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while draining the event log", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void awaitSpace(long sequence) {
+        stallCount++;
+        LockSupport.unpark(drainer);
+        while (sequence - consumed.get() > mask) {
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void drain() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * RECORD_BYTES);
+        long next = 0;
+        try {
+            while (true) {
+                boolean finishing = closed;
+                long available = published.get();
+                if (next == available) {
+                    if (finishing) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                while (next < available) {
+                    int base = (int) (next & mask) * LONGS_PER_RECORD;
+                    buffer.putLong(ring[base]).putLong(ring[base + 1])
+                        .putLong(ring[base + 2]).putLong(ring[base + 3]);
+                    next++;
+                    if (!buffer.hasRemaining()) {
+                        consumed.lazySet(next);
+                        write(buffer);
+                    }
+                }
+                consumed.lazySet(next);
+                write(buffer);
+            }
+        } catch (IOException e) {
+            failure = e;
+            consumed.set(Long.MAX_VALUE / 2);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Prints one line per record: time, type, then the fields that apply
+     */
+    public static void decode(Path path, PrintStream out) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * RECORD_BYTES);
+            buffer.limit(HEADER_BYTES);
+            readFully(in, buffer);
+            buffer.flip();
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != RECORD_BYTES) {
+                throw new IOException("Not an event log: " + path);
+            }
+            StringBuilder line = new StringBuilder(128);
+            buffer.clear();
+            while (readFully(in, buffer) > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_BYTES) {
+                    double time = Double.longBitsToDouble(buffer.getLong());
+                    long typeAndVm = buffer.getLong();
+                    long hostAndDetail = buffer.getLong();
+                    double value = Double.longBitsToDouble(buffer.getLong());
+                    Type type = TYPES[(int) (typeAndVm >>> 32)];
+                    line.setLength(0);
+                    line.append(String.format("%.2f %s", time, type));
+                    appendField(line, " vm=", (int) typeAndVm);
+                    appendField(line, " host=", (int) (hostAndDetail >>> 32));
+                    if (type == Type.CLOUDLET_FINISHED) {
+                        appendField(line, " cloudlet=", (int) hostAndDetail);
+                        line.append(" cpuTime=").append(String.format("%.4f", value));
+                    } else if (type == Type.MIGRATION_STARTED) {
+                        appendField(line, " from=", (int) hostAndDetail);
+                    } else if (type != Type.MIGRATION_COMPLETED) {
+                        line.append(" utilization=").append(String.format("%.4f", value));
+                    }
+                    out.println(line);
+                }
+                buffer.compact();
+            }
+        }
+    }
+
+    private static void appendField(StringBuilder line, String name, int value) {
+        if (value >= 0) {
+            line.append(name).append(value);
+        }
+    }
+
+    private static int readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * @param args Event log file to print as text
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: EventLog FILE");
+            System.exit(1);
+        }
+        decode(Paths.get(args[0]), System.out);
+    }
+}
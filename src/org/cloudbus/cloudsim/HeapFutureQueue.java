@@ -0,0 +1,348 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * Drop-in replacement for CloudSim's TreeSet-backed FutureQueue: an implicit
+ * 4-ary min-heap over primitive (time, serial) keys, so sifting compares
+ * doubles and longs in two flat arrays instead of chasing tree nodes and
+ * calling SimEvent.compareTo. Events come out in the same order as from the
+ * stock queue: by time, then by the serial assigned on insertion.
+ *
+ * CloudSim walks the queue through iterator(): runClockTick reads the first
+ * events with the same time, cancel() stops at the first match. The
+ * iterator therefore yields events in sorted order, lazily, by expanding a
+ * small frontier of heap slots, so reading the first k events costs
+ * O(k log k) rather than a full sort. Iterator.remove() only marks the slot
+ * dead; dead slots are skipped and compacted on the next structural change.
+ * A walk over the whole queue, as CloudSim.cancel/cancelAll do, costs
+ * O(n log n) instead of O(n); none of this project's entities cancel events.
+ * Serials live in the heap, not in the events: SimEvent.setSerial is not
+ * reachable from here, and nothing but the stock queue's TreeSet reads it.
+ *
+ * Installed with CloudSimInternals.installFutureQueue after CloudSim.init.
+ */
+public class HeapFutureQueue extends FutureQueue {
+    private static final int ARITY = 4;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private double[] times = new double[INITIAL_CAPACITY];
+    private long[] serials = new long[INITIAL_CAPACITY];
+    private SimEvent[] events = new SimEvent[INITIAL_CAPACITY];
+    private boolean[] dead = new boolean[INITIAL_CAPACITY];
+
+    // Occupied heap slots, including dead ones
+    private int slots = 0;
+    private int live = 0;
+    private long serial = 0;
+    private long firstCount = 0;
+    private int modCount = 0;
+
+    @Override
+    public void addEvent(SimEvent newEvent) {
+        push(newEvent, serial++);
+    }
+
+    @Override
+    public void addEventFirst(SimEvent newEvent) {
+        push(newEvent, 0);
+        firstCount++;
+    }
+
+    /**
+     * @return Number of events ever added, whether processed, pending or
+     *         removed since
+     */
+    public long getAddedCount() {
+        return serial + firstCount;
+    }
+
+    @Override
+    public Iterator<SimEvent> iterator() {
+        return new SortedIterator();
+    }
+
+    @Override
+    public int size() {
+        return live;
+    }
+
+    @Override
+    public boolean remove(SimEvent event) {
+        int slot = slotOf(event);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        live--;
+        afterRemoval();
+        return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<SimEvent> removed) {
+        boolean changed = false;
+        for (SimEvent event : removed) {
+            changed |= remove(event);
+        }
+        return changed;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(events, 0, slots, null);
+        Arrays.fill(dead, 0, slots, false);
+        slots = 0;
+        live = 0;
+        modCount++;
+    }
+
+    private void push(SimEvent event, long eventSerial) {
+        compactIfSparse();
+        if (slots == times.length) {
+            int capacity = slots << 1;
+            times = Arrays.copyOf(times, capacity);
+            serials = Arrays.copyOf(serials, capacity);
+            events = Arrays.copyOf(events, capacity);
+            dead = Arrays.copyOf(dead, capacity);
+        }
+        int slot = slots++;
+        set(slot, event.eventTime(), eventSerial, event, false);
+        siftUp(slot);
+        live++;
+        modCount++;
+    }
+
+    /**
+     * The slot holding the event. Removals in runClockTick always hit the
+     * root, anything else falls back to a linear scan.
+     */
+    private int slotOf(SimEvent event) {
+        if (slots > 0 && events[0] == event && !dead[0]) {
+            return 0;
+        }
+        for (int slot = 1; slot < slots; slot++) {
+            if (events[slot] == event && !dead[slot]) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int slot) {
+        int last = --slots;
+        if (slot != last) {
+            set(slot, times[last], serials[last], events[last], dead[last]);
+            events[last] = null;
+            dead[last] = false;
+            siftDown(slot);
+            siftUp(slot);
+        } else {
+            events[last] = null;
+            dead[last] = false;
+        }
+        modCount++;
+    }
+
+    private void afterRemoval() {
+        while (slots > 0 && dead[0]) {
+            removeAt(0);
+        }
+        compactIfSparse();
+    }
+
+    /**
+     * Drops dead slots once they outnumber the live events
+     */
+    private void compactIfSparse() {
+        int deadSlots = slots - live;
+        if (deadSlots == 0 || deadSlots < live) {
+            return;
+        }
+        int kept = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (!dead[slot]) {
+                set(kept++, times[slot], serials[slot], events[slot], false);
+            }
+        }
+        Arrays.fill(events, kept, slots, null);
+        Arrays.fill(dead, kept, slots, false);
+        slots = kept;
+        for (int slot = slots > 1 ? (slots - 2) / ARITY : -1; slot >= 0; slot--) {
+            siftDown(slot);
+        }
+        modCount++;
+    }
+
+    private void siftUp(int slot) {
+        double time = times[slot];
+        long eventSerial = serials[slot];
+        SimEvent event = events[slot];
+        boolean isDead = dead[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) / ARITY;
+            if (!before(time, eventSerial, times[parent], serials[parent])) {
+                break;
+            }
+            set(slot, times[parent], serials[parent], events[parent], dead[parent]);
+            slot = parent;
+        }
+        set(slot, time, eventSerial, event, isDead);
+    }
+
+    private void siftDown(int slot) {
+        double time = times[slot];
+        long eventSerial = serials[slot];
+        SimEvent event = events[slot];
+        boolean isDead = dead[slot];
+        while (true) {
+            int first = slot * ARITY + 1;
+            if (first >= slots) {
+                break;
+            }
+            int smallest = first;
+            int end = Math.min(first + ARITY, slots);
+            for (int child = first + 1; child < end; child++) {
+                if (before(child, smallest)) {
+                    smallest = child;
+                }
+            }
+            if (!before(times[smallest], serials[smallest], time, eventSerial)) {
+                break;
+            }
+            set(slot, times[smallest], serials[smallest], events[smallest], dead[smallest]);
+            slot = smallest;
+        }
+        set(slot, time, eventSerial, event, isDead);
+    }
+
+    private void set(int slot, double time, long eventSerial, SimEvent event, boolean isDead) {
+        times[slot] = time;
+        serials[slot] = eventSerial;
+        events[slot] = event;
+        dead[slot] = isDead;
+    }
+
+    private boolean before(int a, int b) {
+        return before(times[a], serials[a], times[b], serials[b]);
+    }
+
+    private static boolean before(double timeA, long serialA, double timeB, long serialB) {
+        return timeA < timeB || (timeA == timeB && serialA < serialB);
+    }
+
+    /**
+     * Yields events in (time, serial) order. The frontier is a binary
+     * min-heap of heap slots whose parents have already been returned; the
+     * smallest of them is the next event overall.
+     */
+    private final class SortedIterator implements Iterator<SimEvent> {
+        private int[] frontier = new int[16];
+        private int frontierSize = 0;
+        private int lastSlot = -1;
+        private final int expectedModCount = modCount;
+
+        SortedIterator() {
+            if (slots > 0) {
+                frontier[frontierSize++] = 0;
+            }
+            skipDead();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return frontierSize > 0;
+        }
+
+        @Override
+        public SimEvent next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (frontierSize == 0) {
+                throw new NoSuchElementException();
+            }
+            lastSlot = expand();
+            skipDead();
+            return events[lastSlot];
+        }
+
+        @Override
+        public void remove() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (lastSlot < 0) {
+                throw new IllegalStateException();
+            }
+            // Marking keeps the heap layout, and thus this iterator, intact
+            dead[lastSlot] = true;
+            live--;
+            lastSlot = -1;
+        }
+
+        /**
+         * Pops the smallest frontier slot and adds its children
+         */
+        private int expand() {
+            int slot = poll();
+            int first = slot * ARITY + 1;
+            int end = Math.min(first + ARITY, slots);
+            for (int child = first; child < end; child++) {
+                offer(child);
+            }
+            return slot;
+        }
+
+        /**
+         * Dead slots are passed over, but their children still count
+         */
+        private void skipDead() {
+            while (frontierSize > 0 && dead[frontier[0]]) {
+                expand();
+            }
+        }
+
+        private void offer(int slot) {
+            if (frontierSize == frontier.length) {
+                frontier = Arrays.copyOf(frontier, frontierSize << 1);
+            }
+            int index = frontierSize++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!before(slot, frontier[parent])) {
+                    break;
+                }
+                frontier[index] = frontier[parent];
+                index = parent;
+            }
+            frontier[index] = slot;
+        }
+
+        private int poll() {
+            int result = frontier[0];
+            int slot = frontier[--frontierSize];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= frontierSize) {
+                    break;
+                }
+                if (child + 1 < frontierSize && before(frontier[child + 1], frontier[child])) {
+                    child++;
+                }
+                if (!before(frontier[child], slot)) {
+                    break;
+                }
+                frontier[index] = frontier[child];
+                index = child;
+            }
+            if (frontierSize > 0) {
+                frontier[index] = slot;
+            }
+            return result;
+        }
+    }
+}
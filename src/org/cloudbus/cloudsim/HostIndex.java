@@ -0,0 +1,173 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Keeps the hosts of a datacenter ordered by current utilization and bucketed
+ * by free MIPS, so the least-utilized suitable host can be found without
+ * scanning the whole host list.
+ *
+ * Hosts are bucketed by the power of two of their available MIPS. A VM that
+ * requests m MIPS can only fit in the bucket holding m or in higher buckets,
+ * and inside each bucket hosts are ordered by (utilization, list position).
+ * Ties therefore resolve to the earliest host in the list, exactly like a
+ * stream min over getHostList().
+ */
+public class HostIndex {
+    private static final int BUCKET_COUNT = 64;
+
+    private final List<? extends Host> hosts;
+    private final ToDoubleFunction<Host> utilizationFunction;
+    private final HostPositions positions;
+    private final double[] utilization;
+    private final int[] bucketOf;
+    private final List<TreeSet<Integer>> buckets = new ArrayList<>(BUCKET_COUNT);
+    private final boolean[] dirty;
+    private final int[] dirtyHosts;
+    private int dirtyCount = 0;
+
+    public HostIndex(List<? extends Host> hosts, HostPositions positions, ToDoubleFunction<Host> utilizationFunction) {
+        this.hosts = hosts;
+        this.positions = positions;
+        this.utilizationFunction = utilizationFunction;
+        this.utilization = new double[hosts.size()];
+        this.bucketOf = new int[hosts.size()];
+        this.dirty = new boolean[hosts.size()];
+        this.dirtyHosts = new int[hosts.size()];
+
+        Comparator<Integer> byUtilization = new ByUtilization(utilization);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.add(new TreeSet<>(byUtilization));
+        }
+
+        for (int i = 0; i < hosts.size(); i++) {
+            utilization[i] = utilizationFunction.applyAsDouble(hosts.get(i));
+            bucketOf[i] = bucketFor(hosts.get(i).getVmScheduler().getAvailableMips());
+            buckets.get(bucketOf[i]).add(i);
+        }
+    }
+
+    /**
+     * Re-reads utilization and free MIPS of a host and moves it to its new
+     * position in the index.
+     */
+    public void update(Host host) {
+        int position = positions.positionOf(host);
+        if (position < 0) {
+            return;
+        }
+        buckets.get(bucketOf[position]).remove(position);
+        utilization[position] = utilizationFunction.applyAsDouble(host);
+        bucketOf[position] = bucketFor(host.getVmScheduler().getAvailableMips());
+        buckets.get(bucketOf[position]).add(position);
+    }
+
+    /**
+     * Marks a host whose VM set just changed. VMs that are still being
+     * instantiated request their full MIPS, so the host is re-read again
+     * before the next lookup.
+     */
+    public void markDirty(Host host) {
+        int position = positions.positionOf(host);
+        if (position >= 0 && !dirty[position]) {
+            dirty[position] = true;
+            dirtyHosts[dirtyCount++] = position;
+        }
+    }
+
+    public void refreshDirty() {
+        for (int i = 0; i < dirtyCount; i++) {
+            int position = dirtyHosts[i];
+            dirty[position] = false;
+            update(hosts.get(position));
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * Returns the least-utilized host that is suitable for the VM, or null if
+     * no host can take it.
+     */
+    public Host findLeastUtilizedSuitable(Vm vm) {
+        return findSuitable(vm, false, position -> {
+            Host host = hosts.get(position);
+            return mayFit(host, vm) && host.isSuitableForVm(vm);
+        });
+    }
+
+    /**
+     * Returns the least- or most-utilized host accepted by a predicate on
+     * host positions, or null. Only buckets with at least the VM's requested
+     * MIPS free are visited, and each bucket stops at its first accepted host.
+     */
+    public Host findSuitable(Vm vm, boolean mostUtilized, IntPredicate accept) {
+        int best = -1;
+        int scanned = 0;
+        int firstBucket = bucketFor(vm.getCurrentRequestedTotalMips());
+        for (int b = firstBucket; b < BUCKET_COUNT; b++) {
+            Iterable<Integer> bucket = mostUtilized ? buckets.get(b).descendingSet() : buckets.get(b);
+            for (int position : bucket) {
+                if (best >= 0 && (mostUtilized ? isBefore(position, best) : isBefore(best, position))) {
+                    break;
+                }
+                if (Instrumentation.ENABLED) {
+                    scanned++;
+                }
+                if (accept.test(position)) {
+                    best = position;
+                    break;
+                }
+            }
+        }
+        if (Instrumentation.ENABLED) {
+            Instrumentation.placement(scanned);
+        }
+        return best >= 0 ? hosts.get(best) : null;
+    }
+
+    public double getUtilization(int position) {
+        return utilization[position];
+    }
+
+    public double getUtilization(Host host) {
+        int position = positions.positionOf(host);
+        return position >= 0 ? utilization[position] : 0.0;
+    }
+
+    private boolean isBefore(int a, int b) {
+        int cmp = Double.compare(utilization[a], utilization[b]);
+        return cmp != 0 ? cmp < 0 : a < b;
+    }
+
+    private static boolean mayFit(Host host, Vm vm) {
+        return host.getRamProvisioner().getAvailableRam() >= Math.min(vm.getCurrentRequestedRam(), vm.getRam())
+            && host.getBwProvisioner().getAvailableBw() >= Math.min(vm.getCurrentRequestedBw(), vm.getBw());
+    }
+
+    private static int bucketFor(double mips) {
+        if (mips < 1) {
+            return 0;
+        }
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros((long) mips));
+    }
+
+    /**
+     * Orders positions by (utilization, position). A named class so the
+     * buckets can be saved in a SimulationCheckpoint.
+     */
+    private static final class ByUtilization implements Comparator<Integer> {
+        private final double[] utilization;
+
+        ByUtilization(double[] utilization) {
+            this.utilization = utilization;
+        }
+
+        @Override
+        public int compare(Integer a, Integer b) {
+            int cmp = Double.compare(utilization[a], utilization[b]);
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+
+/**
+ * Maps host ids to their position in the datacenter host list, so per-host
+ * state can live in primitive arrays indexed by position.
+ */
+public class HostPositions {
+    private final int[] positionById;
+    private final int size;
+
+    public HostPositions(List<? extends Host> hosts) {
+        int maxId = -1;
+        for (Host host : hosts) {
+            maxId = Math.max(maxId, host.getId());
+        }
+        positionById = new int[maxId + 1];
+        Arrays.fill(positionById, -1);
+        for (int i = 0; i < hosts.size(); i++) {
+            positionById[hosts.get(i).getId()] = i;
+        }
+        size = hosts.size();
+    }
+
+    /**
+     * @return Position of the host, or -1 if it is not part of the list
+     */
+    public int positionOf(int hostId) {
+        if (hostId < 0 || hostId >= positionById.length) {
+            return -1;
+        }
+        return positionById[hostId];
+    }
+
+    public int positionOf(Host host) {
+        return positionOf(host.getId());
+    }
+
+    public int size() {
+        return size;
+    }
+}
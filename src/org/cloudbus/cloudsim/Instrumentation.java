@@ -0,0 +1,269 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import org.cloudbus.cloudsim.utils.LatencyHistogram;
+
+/**
+ * Counters and latency histograms for the simulation hot paths.
+ *
+ * Enabled with -Denergyaware.instrumentation=true. ENABLED is a static final
+ * constant, so every call site guarded by it is removed by the JIT when
+ * instrumentation is off. Like CloudSim itself the state is static: one
+ * simulation per class loader. Recording happens on the simulation thread
+ * only; JMX and the Prometheus exporter read it from other threads and may
+ * see slightly stale values.
+ */
+public final class Instrumentation {
+    public static final boolean ENABLED = Boolean.getBoolean("energyaware.instrumentation");
+
+    private static final String OBJECT_NAME = "org.cloudbus.cloudsim:type=Instrumentation";
+
+    private static long allocations = 0;
+    private static long failedAllocations = 0;
+    private static long placements = 0;
+    private static long hostsScanned = 0;
+    private static long metricUpdates = 0;
+    private static long eventsProcessed = 0;
+    private static final LatencyHistogram allocationLatency = new LatencyHistogram();
+    private static final LatencyHistogram metricUpdateLatency = new LatencyHistogram();
+    private static final LatencyHistogram sampleLatency = new LatencyHistogram();
+
+    private static ScheduledExecutorService exporter;
+    private static Path exportFile;
+
+    private Instrumentation() {
+    }
+
+    /**
+     * Counts a VM creation attempt on a chosen host
+     */
+    public static void allocation(boolean success) {
+        allocations++;
+        if (!success) {
+            failedAllocations++;
+        }
+    }
+
+    /**
+     * Counts a VM for which no host was found
+     */
+    public static void allocationFailed() {
+        allocations++;
+        failedAllocations++;
+    }
+
+    /**
+     * Records one host search and the number of hosts it looked at
+     */
+    public static void placement(int scanned) {
+        placements++;
+        hostsScanned += scanned;
+    }
+
+    public static void allocationLatency(long startNanos) {
+        allocationLatency.record(System.nanoTime() - startNanos);
+    }
+
+    public static void metricUpdate(long startNanos) {
+        metricUpdates++;
+        metricUpdateLatency.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records one sampling pass over all hosts
+     */
+    public static void sample(int hosts, long startNanos) {
+        metricUpdates += hosts;
+        sampleLatency.record(System.nanoTime() - startNanos);
+    }
+
+    public static void eventProcessed() {
+        eventsProcessed++;
+    }
+
+    /**
+     * Registers the MXBean with the platform MBean server. Does nothing if
+     * another simulation in this JVM already registered one.
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new View(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // A parallel run in another class loader owns the name
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Rewrites a Prometheus text-format file every interval until
+     * stopPrometheusExport is called
+     */
+    public static synchronized void startPrometheusExport(Path file, long intervalMillis) {
+        stopPrometheusExport();
+        exportFile = file;
+        exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "instrumentation-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exporter.scheduleAtFixedRate(() -> writePrometheusFile(file), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic export and writes the final values
+     */
+    public static synchronized void stopPrometheusExport() {
+        if (exporter == null) {
+            return;
+        }
+        exporter.shutdown();
+        try {
+            exporter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writePrometheusFile(exportFile);
+        exporter = null;
+    }
+
+    public static void writePrometheus(Writer out) throws IOException {
+        counter(out, "energyaware_allocations_total", "VM creation attempts", allocations);
+        counter(out, "energyaware_failed_allocations_total", "VM creation attempts that found no host or failed", failedAllocations);
+        counter(out, "energyaware_placements_total", "Host searches", placements);
+        counter(out, "energyaware_hosts_scanned_total", "Hosts examined by host searches", hostsScanned);
+        counter(out, "energyaware_metric_updates_total", "Per-host utilization and energy updates", metricUpdates);
+        counter(out, "energyaware_events_processed_total", "Events handled by the datacenter, broker and sampler", eventsProcessed);
+        summary(out, "energyaware_allocate_host_for_vm_seconds", "Latency of placing one VM, single or batched", allocationLatency);
+        summary(out, "energyaware_update_host_metrics_seconds", "Latency of one host metric update", metricUpdateLatency);
+        summary(out, "energyaware_sample_hosts_seconds", "Latency of one sampling pass over all hosts", sampleLatency);
+    }
+
+    /**
+     * One-line overview for the end of a run
+     */
+    public static String summaryLine() {
+        return String.format("allocations=%d failed=%d hostsScanned/placement=%.1f metricUpdates=%d events=%d "
+                + "allocate p50/p99=%d/%d ns sample p50/p99=%d/%d ns",
+            allocations, failedAllocations, placements == 0 ? 0.0 : (double) hostsScanned / placements,
+            metricUpdates, eventsProcessed,
+            allocationLatency.getValueAtPercentile(50), allocationLatency.getValueAtPercentile(99),
+            sampleLatency.getValueAtPercentile(50), sampleLatency.getValueAtPercentile(99));
+    }
+
+    private static void writePrometheusFile(Path file) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                writePrometheus(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void counter(Writer out, String name, String help, long value) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " counter\n");
+        out.write(name + " " + value + "\n");
+    }
+
+    private static void summary(Writer out, String name, String help, LatencyHistogram histogram) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " summary\n");
+        for (String quantile : new String[] {"0.5", "0.9", "0.99", "0.999"}) {
+            double seconds = histogram.getValueAtPercentile(Double.parseDouble(quantile) * 100) / 1e9;
+            out.write(name + "{quantile=\"" + quantile + "\"} " + seconds + "\n");
+        }
+        out.write(name + "_sum " + histogram.getSum() / 1e9 + "\n");
+        out.write(name + "_count " + histogram.getCount() + "\n");
+    }
+
+    private static final class View implements InstrumentationMXBean {
+        @Override
+        public long getAllocations() {
+            return allocations;
+        }
+
+        @Override
+        public long getFailedAllocations() {
+            return failedAllocations;
+        }
+
+        @Override
+        public long getHostsScanned() {
+            return hostsScanned;
+        }
+
+        @Override
+        public double getHostsScannedPerPlacement() {
+            return placements == 0 ? 0.0 : (double) hostsScanned / placements;
+        }
+
+        @Override
+        public long getMetricUpdates() {
+            return metricUpdates;
+        }
+
+        @Override
+        public long getEventsProcessed() {
+            return eventsProcessed;
+        }
+
+        @Override
+        public long getAllocationLatencyP50() {
+            return allocationLatency.getValueAtPercentile(50);
+        }
+
+        @Override
+        public long getAllocationLatencyP99() {
+            return allocationLatency.getValueAtPercentile(99);
+        }
+
+        @Override
+        public long getAllocationLatencyMax() {
+            return allocationLatency.getMax();
+        }
+
+        @Override
+        public long getMetricUpdateLatencyP50() {
+            return metricUpdateLatency.getValueAtPercentile(50);
+        }
+
+        @Override
+        public long getMetricUpdateLatencyP99() {
+            return metricUpdateLatency.getValueAtPercentile(99);
+        }
+
+        @Override
+        public long getMetricUpdateLatencyMax() {
+            return metricUpdateLatency.getMax();
+        }
+
+        @Override
+        public long getSampleLatencyP50() {
+            return sampleLatency.getValueAtPercentile(50);
+        }
+
+        @Override
+        public long getSampleLatencyP99() {
+            return sampleLatency.getValueAtPercentile(99);
+        }
+
+        @Override
+        public long getSampleLatencyMax() {
+            return sampleLatency.getMax();
+        }
+    }
+}
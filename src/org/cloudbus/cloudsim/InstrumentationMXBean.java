@@ -0,0 +1,37 @@
+package org.cloudbus.cloudsim;
+
+/**
+ * JMX view of the simulation's hot-path counters and latencies, registered
+ * as org.cloudbus.cloudsim:type=Instrumentation. Latencies are in nanoseconds.
+ */
+public interface InstrumentationMXBean {
+    long getAllocations();
+
+    long getFailedAllocations();
+
+    long getHostsScanned();
+
+    double getHostsScannedPerPlacement();
+
+    long getMetricUpdates();
+
+    long getEventsProcessed();
+
+    long getAllocationLatencyP50();
+
+    long getAllocationLatencyP99();
+
+    long getAllocationLatencyMax();
+
+    long getMetricUpdateLatencyP50();
+
+    long getMetricUpdateLatencyP99();
+
+    long getMetricUpdateLatencyMax();
+
+    long getSampleLatencyP50();
+
+    long getSampleLatencyP99();
+
+    long getSampleLatencyMax();
+}
@@ -2,49 +2,270 @@ package org.cloudbus.cloudsim;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import java.util.*;
-import java.io.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.DecimalFormat;
-import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
-import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
-import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.utils.TimeSeriesWriter;
 
 public class Main {
+    private static final String RESULTS_FILE = "results/summary.csv";
+
     private static List<Host> hostList;
     private static List<Vm> vmList;
     private static List<Cloudlet> cloudletList;
-    private static double lastUpdateTime = 0.0;
 
+    /**
+     * @param args --quiet skips the terminal tables and CloudSim's event log;
+     *             --trace FILE [--trace-format simple|alibaba|google] or
+     *             --planetlab DIR replays a workload trace instead of the
+     *             built-in cloudlets; --metrics-file FILE rewrites
+     *             Prometheus text metrics every second when running with
+     *             -Denergyaware.instrumentation=true; --event-queue
+     *             stock|heap picks the future event queue (default heap);
+     *             --scenario FILE reads hosts, VMs and cloudlets from a
+     *             Scenario properties file instead of Constants;
+     *             --bounded drops finished cloudlets after streaming them
+     *             to the results file and the running aggregates;
+     *             --timeseries FILE writes every host utilization and
+     *             energy sample to a compressed time series file;
+     *             --parallel-hosts N updates and samples hosts on N
+     *             threads (0 for one per processor) with the same results;
+     *             --energy sampled|exact picks the energy integration
+     *             (default sampled); --sample-interval S samples hosts,
+     *             reading their VMs' utilization models at the sample
+     *             time, every S simulated seconds instead of every
+     *             scheduling interval; --event-log FILE records placements,
+     *             migrations, finished cloudlets and host samples as
+     *             binary records, printed with EventLog FILE;
+     *             --migrations on consolidates VMs by live migration
+     *             (off by default); --consolidation-budget MS also stops
+     *             each consolidation pass after MS wall-clock
+     *             milliseconds, which makes runs machine-dependent;
+     *             --checkpoint FILE --checkpoint-at S saves the whole
+     *             simulation at S simulated seconds and carries on;
+     *             --resume FILE continues a saved simulation instead of
+     *             building one (scenario, trace, queue, --bounded and
+     *             sampling options come from the checkpoint), optionally
+     *             as a what-if fork with --tail FILE submitting a
+     *             scenario's cloudlets at the checkpoint time,
+     *             --migrations on|off, --packing best-fit|first-fit and
+     *             --energy
+     */
+    @SuppressWarnings("unchecked")
     public static void main(String[] args) {
+        List<String> options = Arrays.asList(args);
+        boolean quiet = options.contains("--quiet");
+        boolean bounded = options.contains("--bounded");
         try {
             Log.printLine("Starting Energy-Aware CloudSim Simulation...");
 
-            // Initialize CloudSim
-            int numUsers = 1;
-            Calendar calendar = Calendar.getInstance();
-            boolean traceFlag = false;
-            CloudSim.init(numUsers, calendar, traceFlag);
+            Datacenter datacenter;
+            StreamingDatacenterBroker broker;
+            CloudletStats cloudletStats;
+            int nextCloudletId;
+            String resumeFile = optionValue(options, "--resume");
+            if (resumeFile != null) {
+                // Hosts, VMs, workload and event queue all come from the checkpoint
+                long start = System.nanoTime();
+                Map<String, Object> checkpoint = SimulationCheckpoint.load(Paths.get(resumeFile));
+                hostList = (List<Host>) checkpoint.get("hosts");
+                vmList = (List<Vm>) checkpoint.get("vms");
+                datacenter = (Datacenter) checkpoint.get("datacenter");
+                broker = (StreamingDatacenterBroker) checkpoint.get("broker");
+                cloudletStats = (CloudletStats) checkpoint.get("cloudletStats");
+                nextCloudletId = (Integer) checkpoint.get("nextCloudletId");
+                Log.printLine(String.format("Resumed %s at %.2f s in %.0f ms",
+                    resumeFile, CloudSim.clock(), (System.nanoTime() - start) / 1e6));
+            } else {
+                // Initialize CloudSim
+                int numUsers = 1;
+                Calendar calendar = Calendar.getInstance();
+                boolean traceFlag = false;
+                CloudSim.init(numUsers, calendar, traceFlag);
+                String eventQueue = optionValue(options, "--event-queue");
+                CloudSimInternals.installFutureQueue(eventQueue != null ? eventQueue : "heap");
+
+                // Create Datacenter with energy-aware policy
+                String scenarioFile = optionValue(options, "--scenario");
+                ScenarioBuilder builder = new ScenarioBuilder(
+                    scenarioFile != null ? Scenario.load(Paths.get(scenarioFile)) : Scenario.defaults());
+                hostList = builder.createHosts();
+                datacenter = builder.createDatacenter(hostList);
+                broker = createBroker(options);
+                cloudletStats = new CloudletStats();
+                broker.setRetainFinishedCloudlets(!bounded);
+
+                // Sample host utilization and energy every scheduling interval until the broker finishes
+                String sampleInterval = optionValue(options, "--sample-interval");
+                new UtilizationSampler("UtilizationSampler",
+                    (VmAllocationPolicyEnergyAware) datacenter.getVmAllocationPolicy(),
+                    sampleInterval != null ? Double.parseDouble(sampleInterval) : Constants.SCHEDULING_INTERVAL,
+                    broker);
+
+                // Create VMs and Cloudlets
+                vmList = builder.createVms(broker.getId());
+                broker.submitVmList(vmList);
+
+                // A trace-driven broker pulls its cloudlets from the trace
+                nextCloudletId = 0;
+                if (!(broker instanceof TraceDrivenBroker)) {
+                    cloudletList = builder.createCloudlets(broker.getId());
+                    broker.submitCloudletList(cloudletList);
+                    nextCloudletId = cloudletList.size();
+                    if (bounded) {
+                        cloudletList = null;
+                    }
+                }
+                Log.printLine(builder.getReport());
+            }
+
+            // Stream cloudlet rows to the CSV as they finish, starting with
+            // those a resumed run finished before its checkpoint
+            ResultsSink resultsSink = new ResultsSink(Paths.get(RESULTS_FILE));
+            for (Cloudlet cloudlet : broker.getCloudletReceivedList()) {
+                resultsSink.cloudletFinished(cloudlet);
+            }
+            broker.addCompletionListener(resultsSink);
+            broker.addCompletionListener(cloudletStats);
 
-            // Create Datacenter with energy-aware policy
-            Datacenter datacenter = createDatacenter();
-            DatacenterBroker broker = createBroker();
+            VmAllocationPolicyEnergyAware policy =
+                (VmAllocationPolicyEnergyAware) datacenter.getVmAllocationPolicy();
+            String energy = optionValue(options, "--energy");
+            if (energy != null) {
+                policy.setEnergyIntegration(
+                    VmAllocationPolicyEnergyAware.EnergyIntegration.valueOf(energy.toUpperCase(Locale.ROOT)));
+            }
+            // Migrations are opt-in; a resumed run keeps the checkpoint's setting
+            String migrations = optionValue(options, "--migrations");
+            if (migrations != null || resumeFile == null) {
+                ((EnergyAwareDatacenter) datacenter).setDisableMigrations(!"on".equalsIgnoreCase(migrations));
+            }
+            String consolidationBudget = optionValue(options, "--consolidation-budget");
+            if (consolidationBudget != null) {
+                policy.getConsolidationEngine().setTimeBudget(Double.parseDouble(consolidationBudget));
+            }
+            String packing = optionValue(options, "--packing");
+            if (packing != null) {
+                policy.setPackingStrategy(VmPacker.Strategy.valueOf(
+                    packing.toUpperCase(Locale.ROOT).replace('-', '_') + "_DECREASING"));
+            }
+            String parallelHosts = optionValue(options, "--parallel-hosts");
+            ParallelHostUpdate parallelHostUpdate = null;
+            if (parallelHosts != null) {
+                parallelHostUpdate = new ParallelHostUpdate(Integer.parseInt(parallelHosts));
+                ((EnergyAwareDatacenter) datacenter).setParallelHostUpdate(parallelHostUpdate);
+                policy.setParallelHostUpdate(parallelHostUpdate);
+            }
+            String eventLogFile = optionValue(options, "--event-log");
+            EventLog eventLog = null;
+            if (eventLogFile != null) {
+                eventLog = new EventLog(Paths.get(eventLogFile));
+                policy.setEventLog(eventLog);
+                broker.addCompletionListener(eventLog);
+            }
+            // Datacenter-wide history for the dashboard, fixed in size; a resumed run already has it
+            if (policy.getClusterSeries() == null) {
+                policy.setClusterSeries(new ClusterSeries());
+            }
+            String timeSeriesFile = optionValue(options, "--timeseries");
+            TimeSeriesWriter timeSeries = null;
+            if (timeSeriesFile != null) {
+                timeSeries = new TimeSeriesWriter(Paths.get(timeSeriesFile));
+                policy.setTimeSeriesWriter(timeSeries);
+            }
 
-            // Create VMs and Cloudlets
-            vmList = createVms(broker.getId());
-            cloudletList = createCloudlets(broker.getId());
-            
-            // Submit VMs and Cloudlets to broker
-            broker.submitVmList(vmList);
-            broker.submitCloudletList(cloudletList);
+            // A what-if fork can add work at the checkpoint time
+            String tailFile = optionValue(options, "--tail");
+            if (tailFile != null) {
+                if (resumeFile == null || broker instanceof TraceDrivenBroker) {
+                    throw new IllegalArgumentException("--tail needs --resume with a checkpoint of a scenario run");
+                }
+                List<Cloudlet> tail = new ScenarioBuilder(Scenario.load(Paths.get(tailFile)))
+                    .createCloudlets(broker.getId(), nextCloudletId);
+                broker.submitCloudletsNow(tail);
+                nextCloudletId += tail.size();
+                Log.printLine(String.format("Submitted %d cloudlets from %s at %.2f s",
+                    tail.size(), tailFile, CloudSim.clock()));
+            }
 
-            // Start simulation
-            CloudSim.startSimulation();
+            // Expose hot-path counters over JMX and optionally as a metrics file
+            String metricsFile = optionValue(options, "--metrics-file");
+            if (Instrumentation.ENABLED) {
+                Instrumentation.registerMBean();
+                if (metricsFile != null) {
+                    Instrumentation.startPrometheusExport(Paths.get(metricsFile), 1000);
+                }
+            } else if (metricsFile != null) {
+                Log.printLine("--metrics-file needs -Denergyaware.instrumentation=true; no metrics written");
+            }
 
-            // Update metrics during simulation
-            updateMetrics(datacenter);
+            // Start simulation, stopping once to save a checkpoint if asked
+            Log.setDisabled(quiet);
+            String checkpointFile = optionValue(options, "--checkpoint");
+            boolean running = true;
+            if (checkpointFile != null) {
+                String checkpointAt = optionValue(options, "--checkpoint-at");
+                if (checkpointAt == null) {
+                    throw new IllegalArgumentException("--checkpoint needs --checkpoint-at SECONDS");
+                }
+                double at = Double.parseDouble(checkpointAt);
+                running = CloudSimInternals.runUntil(at);
+                String saved = running
+                    ? saveCheckpoint(Paths.get(checkpointFile), datacenter, broker, cloudletStats, nextCloudletId)
+                    : "Simulation ended before " + checkpointAt + " s; no checkpoint saved";
+                if (running && SimulationCheckpoint.readTime(Paths.get(checkpointFile)) != at) {
+                    throw new IllegalStateException(String.format("Checkpoint saved at %.2f s instead of %s s",
+                        SimulationCheckpoint.readTime(Paths.get(checkpointFile)), checkpointAt));
+                }
+                Log.setDisabled(false);
+                Log.printLine(saved);
+                Log.setDisabled(quiet);
+            }
+            if (running) {
+                CloudSim.startSimulation();
+            }
+            Log.setDisabled(false);
+            if (parallelHostUpdate != null) {
+                parallelHostUpdate.close();
+            }
+            if (eventLog != null) {
+                policy.setEventLog(null);
+                eventLog.close();
+                Log.printLine(String.format("Event log saved to %s: %d records, %d waits for the writer",
+                    eventLogFile, eventLog.getRecordCount(), eventLog.getStallCount()));
+            }
+            if (timeSeries != null) {
+                policy.setTimeSeriesWriter(null);
+                timeSeries.close();
+                Log.printLine(String.format("Host time series saved to %s: %d samples, %.2f bits per sample",
+                    timeSeriesFile, timeSeries.getSampleCount(),
+                    timeSeries.getEncodedBytes() * 8.0 / Math.max(1, timeSeries.getSampleCount())));
+            }
+            if (!((EnergyAwareDatacenter) datacenter).isDisableMigrations()) {
+                ConsolidationEngine engine = policy.getConsolidationEngine();
+                String line = String.format("Consolidation: %d migrations planned, %d passes stopped at %d hosts",
+                    engine.getMigrationsPlanned(), engine.getPassesCapped(), engine.getHostsPerPass());
+                if (engine.getTimeBudget() > 0) {
+                    line += String.format(", %d by the %s ms wall-clock budget (not reproducible)",
+                        engine.getPassesOverBudget(), engine.getTimeBudget());
+                }
+                Log.printLine(line);
+            }
+            if (Instrumentation.ENABLED) {
+                Instrumentation.stopPrometheusExport();
+                Log.printLine("Instrumentation: " + Instrumentation.summaryLine());
+            }
 
             // Collect and print results
             List<Cloudlet> finishedCloudlets = broker.getCloudletReceivedList();
-            printResults(finishedCloudlets, vmList, hostList, datacenter);
+            printResults(finishedCloudlets, cloudletStats, vmList, hostList, datacenter, resultsSink, quiet);
+            Path resultsDir = Paths.get(RESULTS_FILE).getParent();
+            long dashboardBytes = DashboardBundle.write(resultsDir, policy, cloudletStats, vmList.size(),
+                policy.getClusterSeries(), timeSeriesFile != null ? Paths.get(timeSeriesFile) : null);
+            Log.printLine(String.format("Dashboard data saved to %s: %d bytes",
+                resultsDir.resolve(DashboardBundle.DASHBOARD_FILE), dashboardBytes));
 
             Log.printLine("Energy-Aware Simulation finished!");
         } catch (Exception e) {
@@ -53,124 +274,96 @@ public class Main {
         }
     }
 
-    private static Datacenter createDatacenter() throws Exception {
-        hostList = new ArrayList<>();
-        
-        // Create 3 hosts with different capacities
-        int[] mips = {1000, 1500, 2000};
-        for (int i = 0; i < 3; i++) {
-            List<Pe> peList = new ArrayList<>();
-            peList.add(new Pe(0, new PeProvisionerSimple(mips[i])));
-
-            hostList.add(new Host(
-                i,
-                new RamProvisionerSimple(2048), // 2GB RAM
-                new BwProvisionerSimple(10000), // 10Gbps bandwidth
-                1000000, // Storage
-                peList,
-                new VmSchedulerTimeShared(peList) // Time-shared scheduling
-            ));
+    /**
+     * Saves everything main needs to resume: the CloudSim state plus the
+     * host and VM lists, the datacenter, broker and cloudlet statistics
+     * @return A line describing the checkpoint
+     */
+    private static String saveCheckpoint(Path file, Datacenter datacenter, StreamingDatacenterBroker broker,
+                                         CloudletStats cloudletStats, int nextCloudletId) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Object> roots = new LinkedHashMap<>();
+        roots.put("hosts", hostList);
+        roots.put("vms", vmList);
+        roots.put("datacenter", datacenter);
+        roots.put("broker", broker);
+        roots.put("cloudletStats", cloudletStats);
+        roots.put("nextCloudletId", nextCloudletId);
+        long objects = SimulationCheckpoint.save(file, roots);
+        return String.format("Checkpoint at %.2f s saved to %s: %d objects, %d bytes in %.0f ms",
+            CloudSim.clock(), file, objects, Files.size(file), (System.nanoTime() - start) / 1e6);
+    }
+
+    private static StreamingDatacenterBroker createBroker(List<String> options) throws Exception {
+        String traceFile = optionValue(options, "--trace");
+        if (traceFile != null) {
+            String format = optionValue(options, "--trace-format");
+            CloudletTrace trace = new TaskTableTrace(Paths.get(traceFile),
+                TaskTableFormat.forName(format != null ? format : "simple"), 1000, 1);
+            return new TraceDrivenBroker("Broker", trace);
         }
+        String planetLabDir = optionValue(options, "--planetlab");
+        if (planetLabDir != null) {
+            return new TraceDrivenBroker("Broker", new PlanetLabTrace(Paths.get(planetLabDir), 30000));
+        }
+        return new StreamingDatacenterBroker("Broker");
+    }
 
-        // Datacenter characteristics
-        DatacenterCharacteristics characteristics = new DatacenterCharacteristics(
-            "x86", "Linux", "Xen", hostList, 10.0, 3.0, 0.05, 0.1, 0.1);
+    private static String optionValue(List<String> options, String name) {
+        int index = options.indexOf(name);
+        return index >= 0 && index + 1 < options.size() ? options.get(index + 1) : null;
+    }
 
-        // Energy-aware VM allocation policy
-        VmAllocationPolicy allocationPolicy = new VmAllocationPolicyEnergyAware(hostList);
+    private static void printResults(List<Cloudlet> cloudlets, CloudletStats stats, List<Vm> vms,
+                                   List<Host> hosts, Datacenter datacenter,
+                                   ResultsSink resultsSink, boolean quiet) {
+        try {
+            VmAllocationPolicyEnergyAware policy = 
+                (VmAllocationPolicyEnergyAware) datacenter.getVmAllocationPolicy();
 
-        return new Datacenter(
-            "GreenDatacenter",
-            characteristics,
-            allocationPolicy,
-            new LinkedList<Storage>(),
-            0);
-    }
+            // ========== TERMINAL OUTPUT ==========
+            if (!quiet) {
+                printTables(cloudlets, stats, vms, hosts, policy);
+            }
 
-    private static DatacenterBroker createBroker() throws Exception {
-        return new DatacenterBroker("Broker");
-    }
+            // Cloudlet rows were streamed as they finished; add VMs and hosts
+            for (Vm vm : vms) {
+                resultsSink.writeVm(vm);
+            }
+            for (Host h : hosts) {
+                resultsSink.writeHost(h, policy);
+            }
 
-    private static List<Vm> createVms(int brokerId) {
-        List<Vm> vms = new ArrayList<>();
-        
-        // Create 3 VMs with different requirements
-        for (int i = 0; i < 3; i++) {
-            vms.add(new Vm(
-                i, brokerId, 
-                1000, // MIPS
-                1,    // Number of CPUs
-                1024, // RAM (MB)
-                1000,  // Bandwidth
-                10000, // Storage (MB)
-                "Xen", // VMM
-                new CloudletSchedulerTimeShared() // Time-shared cloudlet scheduler
-            ));
+            resultsSink.close();
+            Log.printLine("\nDetailed metrics saved to " + RESULTS_FILE);
+    
+        } catch (Exception e) {
+            Log.printLine("Error writing results: " + e.getMessage());
         }
-        return vms;
     }
 
-    private static List<Cloudlet> createCloudlets(int brokerId) {
-        UtilizationModel utilizationModel = new UtilizationModelFull();
-        List<Cloudlet> cloudlets = new ArrayList<>();
-        
-        // Create 6 cloudlets with different lengths
-        int[] lengths = {5000, 10000, 15000, 20000, 25000, 30000};
-        for (int i = 0; i < lengths.length; i++) {
-            Cloudlet cloudlet = new Cloudlet(
-                i, lengths[i], 
-                1,    // PEs required
-                300,  // Input size
-                300,  // Output size
-                utilizationModel, 
-                utilizationModel, 
-                utilizationModel
-            );
-            cloudlet.setUserId(brokerId);
-            cloudlets.add(cloudlet);
-        }
-        return cloudlets;
-    }
+    private static void printTables(List<Cloudlet> cloudlets, CloudletStats stats, List<Vm> vms,
+                                    List<Host> hosts, VmAllocationPolicyEnergyAware policy) {
+        DecimalFormat df = new DecimalFormat("0.00");
 
-    private static void updateMetrics(Datacenter datacenter) {
-        double currentTime = CloudSim.clock();
-        VmAllocationPolicyEnergyAware policy = 
-            (VmAllocationPolicyEnergyAware) datacenter.getVmAllocationPolicy();
-        
-        for (Host host : hostList) {
-            double utilization = policy.calculateCurrentUtilization(host);
-            
-            // Changed from trackHostUtilization to recordHostUtilization
-            policy.recordHostUtilization(host, utilization);
-            
-            // Changed from updateEnergyConsumption to updateHostEnergy
-            double timeDiff = currentTime - lastUpdateTime;
-            policy.updateHostEnergy(host, utilization, timeDiff);
-        }
-        lastUpdateTime = currentTime;
-    }
+        Log.printLine("\n====== CLOUDSIM SIMULATION RESULTS ======\n");
 
-    private static void printResults(List<Cloudlet> cloudlets, List<Vm> vms, 
-                                   List<Host> hosts, Datacenter datacenter) {
-                                    try {
-                                        // Create results directory
-                                        java.io.File dir = new java.io.File("results");
-                                        if (!dir.exists()) {
-                                            dir.mkdir();
-                                        }
-                                
-                                        PrintWriter writer = new PrintWriter(new java.io.File("results/summary.csv"));
-            writer.println("Type,ID,Metric,Value");
-    
-            DecimalFormat df = new DecimalFormat("0.00");
-    
-            // ========== TERMINAL OUTPUT ==========
-            Log.printLine("\n====== CLOUDSIM SIMULATION RESULTS ======\n");
-    
-            // Cloudlet Execution Table
+        // Cloudlet Execution Table, or its aggregates when cloudlets were not retained
+        if (cloudlets.isEmpty() && stats.getCount() > 0) {
+            Log.printLine("Time (s)   | Mean       | P50        | P99");
+            Log.printLine("------------------------------------------------");
+            Log.printLine(String.format("%-10s | %-10s | %-10s | %-10s", "Completion",
+                df.format(stats.getMeanCompletionTime()),
+                df.format(stats.getCompletionTimeAtPercentile(50)),
+                df.format(stats.getCompletionTimeAtPercentile(99))));
+            Log.printLine(String.format("%-10s | %-10s | %-10s | %-10s", "Wait",
+                df.format(stats.getMeanWaitTime()),
+                df.format(stats.getWaitTimeAtPercentile(50)),
+                df.format(stats.getWaitTimeAtPercentile(99))));
+        } else {
             Log.printLine("Cloudlet ID | Status   | Datacenter | VM ID | Start Time | Finish Time");
             Log.printLine("---------------------------------------------------------------");
-    
+
             for (Cloudlet c : cloudlets) {
                 Log.printLine(String.format("%-10d | %-8s | %-10d | %-5d | %-10s | %-10s",
                     c.getCloudletId(),
@@ -180,57 +373,27 @@ public class Main {
                     df.format(c.getExecStartTime()),
                     df.format(c.getFinishTime())));
             }
-    
-            // Host Utilization Table
-            VmAllocationPolicyEnergyAware policy = 
-                (VmAllocationPolicyEnergyAware) datacenter.getVmAllocationPolicy();
-            
-            Log.printLine("\nHost ID | CPU Util (%) | Energy (J) | VMs Count");
-            Log.printLine("----------------------------------------------");
-    
-            for (Host h : hosts) {
-                Log.printLine(String.format("%-7d | %-13s | %-10s | %-9d",
-                    h.getId(),
-                    df.format(policy.getAverageUtilization(h.getId()) * 100),
-                    df.format(policy.getTotalEnergy(h.getId())),
-                    h.getVmList().size()));
-            }
-    
-            // Summary Statistics
-            Log.printLine("\nMetric                    | Value");
-            Log.printLine("----------------------------------");
-            Log.printLine(String.format("%-25s | %-6d", "Total Cloudlets", cloudlets.size()));
-            Log.printLine(String.format("%-25s | %-6d", "Successful Cloudlets", 
-                cloudlets.stream().filter(c -> c.getStatus() == Cloudlet.SUCCESS).count()));
-            Log.printLine(String.format("%-25s | %-6d", "VMs Created", vms.size()));
-            Log.printLine(String.format("%-25s | %-6d", "Hosts Utilized", 
-                hosts.stream().filter(h -> h.getVmList().size() > 0).count()));
-    
-            // Save to CSV
-            for (Cloudlet c : cloudlets) {
-                writer.printf("Cloudlet,%d,StartTime,%s%n", c.getCloudletId(), df.format(c.getExecStartTime()));
-                writer.printf("Cloudlet,%d,FinishTime,%s%n", c.getCloudletId(), df.format(c.getFinishTime()));
-                writer.printf("Cloudlet,%d,ExecutionTime,%s%n", c.getCloudletId(), df.format(c.getActualCPUTime()));
-                writer.printf("Cloudlet,%d,Status,%s%n", c.getCloudletId(), Cloudlet.getStatusString(c.getStatus()));
-            }
-    
-            for (Vm vm : vms) {
-                writer.printf("VM,%d,Host,%d%n", vm.getId(), vm.getHost() != null ? vm.getHost().getId() : -1);
-            }
-    
-            for (Host h : hosts) {
-                writer.printf("Host,%d,CPUUtilization,%s%n", h.getId(), 
-                    df.format(policy.getAverageUtilization(h.getId()) * 100));
-                writer.printf("Host,%d,EnergyConsumed,%s%n", h.getId(), 
-                    df.format(policy.getTotalEnergy(h.getId())));
-                writer.printf("Host,%d,VMsCount,%d%n", h.getId(), h.getVmList().size());
-            }
-    
-            writer.close();
-            Log.printLine("\nDetailed metrics saved to results/summary.csv");
-    
-        } catch (Exception e) {
-            Log.printLine("Error writing results: " + e.getMessage());
         }
+
+        // Host Utilization Table
+        Log.printLine("\nHost ID | CPU Util (%) | Energy (J) | VMs Count");
+        Log.printLine("----------------------------------------------");
+
+        for (Host h : hosts) {
+            Log.printLine(String.format("%-7d | %-13s | %-10s | %-9d",
+                h.getId(),
+                df.format(policy.getAverageUtilization(h.getId()) * 100),
+                df.format(policy.getTotalEnergy(h.getId())),
+                h.getVmList().size()));
+        }
+
+        // Summary Statistics
+        Log.printLine("\nMetric                    | Value");
+        Log.printLine("----------------------------------");
+        Log.printLine(String.format("%-25s | %-6d", "Total Cloudlets", stats.getCount()));
+        Log.printLine(String.format("%-25s | %-6d", "Successful Cloudlets", stats.getSuccessCount()));
+        Log.printLine(String.format("%-25s | %-6d", "VMs Created", vms.size()));
+        Log.printLine(String.format("%-25s | %-6d", "Hosts Utilized", 
+            hosts.stream().filter(h -> h.getVmList().size() > 0).count()));
     }
-}
\ No newline at end of file
+}
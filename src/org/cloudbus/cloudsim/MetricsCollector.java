@@ -2,7 +2,6 @@ package org.cloudbus.cloudsim;
 
 import java.text.DecimalFormat;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class MetricsCollector {
     private static final DecimalFormat dft = new DecimalFormat("###.##");
@@ -10,32 +9,43 @@ public class MetricsCollector {
     public static void collectAndPrintAllMetrics(List<Cloudlet> cloudlets, 
                                               VmAllocationPolicyEnergyAware allocationPolicy) {
         printCloudletDetails(cloudlets);
-        printHostMetrics(allocationPolicy);
-        printEnergyMetrics(allocationPolicy);
-        printConsolidatedMetrics(cloudlets, allocationPolicy);
+        MetricsSnapshot snapshot = MetricsSnapshot.of(cloudlets, allocationPolicy);
+        printHostMetrics(snapshot);
+        printEnergyMetrics(snapshot);
+        printConsolidatedMetrics(snapshot);
+    }
+
+    /**
+     * Same report from running aggregates, for brokers that do not retain
+     * finished cloudlets: a completion and wait time summary replaces the
+     * per-cloudlet details.
+     */
+    public static void collectAndPrintAllMetrics(CloudletStats stats,
+                                              VmAllocationPolicyEnergyAware allocationPolicy) {
+        printCloudletSummary(stats);
+        MetricsSnapshot snapshot = MetricsSnapshot.of(stats, allocationPolicy);
+        printHostMetrics(snapshot);
+        printEnergyMetrics(snapshot);
+        printConsolidatedMetrics(snapshot);
     }
 
     public static void printHostMetrics(VmAllocationPolicyEnergyAware policy) {
+        printHostMetrics(MetricsSnapshot.of(new CloudletStats(), policy));
+    }
+
+    public static void printHostMetrics(MetricsSnapshot snapshot) {
         System.out.println("\n========== HOST METRICS ==========");
         System.out.printf("%-8s %-15s %-15s %-12s %-12s%n", 
                 "HostID", "Avg Util(%)", "Peak Util(%)", "Max VMs", "Energy(J)");
 
-        policy.getHostList().forEach(host -> {
-            int hostId = host.getId();
+        for (int i = 0; i < snapshot.getHostCount(); i++) {
             System.out.printf("%-8d %-15.2f %-15.2f %-12d %-12.2f%n",
-                hostId,
-                policy.getAverageUtilization(hostId) * 100,
-                getPeakUtilization(policy, hostId) * 100,
-                policy.getMaxVmsPerHost(hostId),
-                policy.getTotalEnergy(hostId));
-        });
-    }
-
-    private static double getPeakUtilization(VmAllocationPolicyEnergyAware policy, int hostId) {
-        return policy.getUtilizationHistory(hostId).stream()
-            .mapToDouble(Double::doubleValue)
-            .max()
-            .orElse(0.0);
+                snapshot.getHostId(i),
+                snapshot.getAverageUtilization(i) * 100,
+                snapshot.getPeakUtilization(i) * 100,
+                snapshot.getMaxVms(i),
+                snapshot.getEnergy(i));
+        }
     }
 
     public static void printCloudletDetails(List<Cloudlet> cloudlets) {
@@ -58,32 +68,46 @@ public class MetricsCollector {
         });
     }
 
-    private static void printEnergyMetrics(VmAllocationPolicyEnergyAware allocationPolicy) {
+    public static void printCloudletSummary(CloudletStats stats) {
+        System.out.println("\n========== CLOUDLET EXECUTION SUMMARY ==========");
+        System.out.printf("%-16s %-10s %-10s %-10s %-10s %-10s%n",
+                "Time(s)", "Mean", "P50", "P95", "P99", "Max");
+        System.out.printf("%-16s %-10s %-10s %-10s %-10s %-10s%n", "Completion",
+                dft.format(stats.getMeanCompletionTime()),
+                dft.format(stats.getCompletionTimeAtPercentile(50)),
+                dft.format(stats.getCompletionTimeAtPercentile(95)),
+                dft.format(stats.getCompletionTimeAtPercentile(99)),
+                dft.format(stats.getCompletionTimes().getMax() / 1e6));
+        System.out.printf("%-16s %-10s %-10s %-10s %-10s %-10s%n", "Wait",
+                dft.format(stats.getMeanWaitTime()),
+                dft.format(stats.getWaitTimeAtPercentile(50)),
+                dft.format(stats.getWaitTimeAtPercentile(95)),
+                dft.format(stats.getWaitTimeAtPercentile(99)),
+                dft.format(stats.getWaitTimes().getMax() / 1e6));
+    }
+
+    private static void printEnergyMetrics(MetricsSnapshot snapshot) {
         System.out.println("\n========== ENERGY CONSUMPTION METRICS ==========");
         System.out.printf("%-8s %-15s%n", "HostID", "Energy(kWh)");
 
-        allocationPolicy.getHostList().forEach(host -> {
-            int hostId = host.getId();
+        for (int i = 0; i < snapshot.getHostCount(); i++) {
             System.out.printf("%-8d %-15.6f%n",
-                hostId, allocationPolicy.getTotalEnergy(hostId) / 3600000);
-        });
+                snapshot.getHostId(i), snapshot.getEnergy(i) / 3600000);
+        }
 
         System.out.println("\nTotal Energy Consumption: " + 
-            dft.format(calculateTotalEnergy(allocationPolicy) / 3600000) + " kWh");
+            dft.format(snapshot.getTotalEnergy() / 3600000) + " kWh");
     }
 
-    private static void printConsolidatedMetrics(List<Cloudlet> cloudlets,
-                                              VmAllocationPolicyEnergyAware allocationPolicy) {
+    private static void printConsolidatedMetrics(MetricsSnapshot snapshot) {
         System.out.println("\n========== SUMMARY METRICS ==========");
         
-        long totalCloudlets = cloudlets.size();
-        long successfulCloudlets = cloudlets.stream()
-            .filter(c -> c.getCloudletStatus() == Cloudlet.SUCCESS)
-            .count();
+        long totalCloudlets = snapshot.getTotalCloudlets();
+        long successfulCloudlets = snapshot.getSuccessfulCloudlets();
         
-        int totalHosts = allocationPolicy.getHostList().size();
-        int activeHosts = allocationPolicy.getHostsUtilizedCount();
-        double totalEnergy = calculateTotalEnergy(allocationPolicy);
+        int totalHosts = snapshot.getHostCount();
+        int activeHosts = snapshot.getActiveHosts();
+        double totalEnergy = snapshot.getTotalEnergy();
 
         System.out.printf("%-30s: %d/%d (%.2f%%)%n", 
             "Cloudlet Completion", successfulCloudlets, totalCloudlets,
@@ -97,26 +121,50 @@ public class MetricsCollector {
             
         System.out.printf("%-30s: %.6f kWh%n",
             "Energy per Cloudlet", totalEnergy / (3600000 * successfulCloudlets));
-    }
 
-    private static double calculateTotalEnergy(VmAllocationPolicyEnergyAware policy) {
-        return policy.getHostList().stream()
-            .mapToDouble(host -> policy.getTotalEnergy(host.getId()))
-            .sum();
+        System.out.printf("%-30s: %s / %s / %s s%n",
+            "Turnaround P50/P95/P99",
+            dft.format(snapshot.getTurnaroundAtPercentile(50)),
+            dft.format(snapshot.getTurnaroundAtPercentile(95)),
+            dft.format(snapshot.getTurnaroundAtPercentile(99)));
+
+        System.out.printf("%-30s: %.2f / %.2f / %.2f %%%n",
+            "Host Util P50/P95/P99",
+            snapshot.getHostUtilizationAtPercentile(50) * 100,
+            snapshot.getHostUtilizationAtPercentile(95) * 100,
+            snapshot.getHostUtilizationAtPercentile(99) * 100);
     }
 
     public static Map<String, Object> exportAllMetrics(List<Cloudlet> cloudlets,
                                                     VmAllocationPolicyEnergyAware policy) {
+        return exportAllMetrics(MetricsSnapshot.of(cloudlets, policy));
+    }
+
+    public static Map<String, Object> exportAllMetrics(CloudletStats stats,
+                                                    VmAllocationPolicyEnergyAware policy) {
+        return exportAllMetrics(MetricsSnapshot.of(stats, policy));
+    }
+
+    /**
+     * Turnaround percentiles are in seconds, host utilization percentiles
+     * are fractions of capacity.
+     */
+    public static Map<String, Object> exportAllMetrics(MetricsSnapshot snapshot) {
         Map<String, Object> metrics = new LinkedHashMap<>();
         
-        metrics.put("total_cloudlets", cloudlets.size());
-        metrics.put("successful_cloudlets", cloudlets.stream()
-            .filter(c -> c.getCloudletStatus() == Cloudlet.SUCCESS)
-            .count());
+        metrics.put("total_cloudlets", snapshot.getTotalCloudlets());
+        metrics.put("successful_cloudlets", snapshot.getSuccessfulCloudlets());
         
-        metrics.put("hosts_utilized", policy.getHostsUtilizedCount());
-        metrics.put("total_energy_kwh", calculateTotalEnergy(policy) / 3600000);
+        metrics.put("hosts_utilized", snapshot.getActiveHosts());
+        metrics.put("total_energy_kwh", snapshot.getTotalEnergy() / 3600000);
+
+        for (int percentile : new int[] {50, 95, 99}) {
+            metrics.put("turnaround_p" + percentile, snapshot.getTurnaroundAtPercentile(percentile));
+        }
+        for (int percentile : new int[] {50, 95, 99}) {
+            metrics.put("host_utilization_p" + percentile, snapshot.getHostUtilizationAtPercentile(percentile));
+        }
         
         return metrics;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,184 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import org.cloudbus.cloudsim.utils.LatencyHistogram;
+
+/**
+ * End-of-run metrics gathered in one pass over the hosts: per-host
+ * utilization, VM count and energy, their totals, and percentile sketches
+ * of cloudlet turnaround and host mean utilization. MetricsCollector prints
+ * and exports from a snapshot instead of querying the policy per section.
+ *
+ * The sketches are LatencyHistograms, which have fixed bucket boundaries,
+ * so merge() combines snapshots from several datacenters or sweep runs
+ * exactly and in time independent of the number of cloudlets. Turnaround
+ * is kept in microseconds, utilization in parts per million.
+ */
+public class MetricsSnapshot {
+    private static final double MICROS_PER_SECOND = 1e6;
+    private static final double PARTS_PER_MILLION = 1e6;
+
+    private final long totalCloudlets;
+    private final long successfulCloudlets;
+    private final LatencyHistogram turnaround;
+    private final LatencyHistogram hostUtilization;
+    private final int activeHosts;
+    private final double totalEnergy;
+
+    // Indexed by position in the host list
+    private final int[] hostIds;
+    private final double[] averageUtilization;
+    private final double[] peakUtilization;
+    private final int[] maxVms;
+    private final double[] energy;
+
+    private MetricsSnapshot(long totalCloudlets, long successfulCloudlets,
+                            LatencyHistogram turnaround, LatencyHistogram hostUtilization,
+                            int activeHosts, double totalEnergy, int[] hostIds,
+                            double[] averageUtilization, double[] peakUtilization,
+                            int[] maxVms, double[] energy) {
+        this.totalCloudlets = totalCloudlets;
+        this.successfulCloudlets = successfulCloudlets;
+        this.turnaround = turnaround;
+        this.hostUtilization = hostUtilization;
+        this.activeHosts = activeHosts;
+        this.totalEnergy = totalEnergy;
+        this.hostIds = hostIds;
+        this.averageUtilization = averageUtilization;
+        this.peakUtilization = peakUtilization;
+        this.maxVms = maxVms;
+        this.energy = energy;
+    }
+
+    public static MetricsSnapshot of(List<? extends Cloudlet> cloudlets,
+                                     VmAllocationPolicyEnergyAware policy) {
+        return of(CloudletStats.of(cloudlets), policy);
+    }
+
+    /**
+     * Reads every host's statistics from the policy once. The cloudlet
+     * statistics are copied, so stats may keep recording afterwards.
+     */
+    public static MetricsSnapshot of(CloudletStats stats, VmAllocationPolicyEnergyAware policy) {
+        List<? extends Host> hosts = policy.getHostList();
+        int count = hosts.size();
+        int[] hostIds = new int[count];
+        double[] averageUtilization = new double[count];
+        double[] peakUtilization = new double[count];
+        int[] maxVms = new int[count];
+        double[] energy = new double[count];
+        LatencyHistogram hostUtilization = new LatencyHistogram();
+        double totalEnergy = 0.0;
+        for (int i = 0; i < count; i++) {
+            int hostId = hosts.get(i).getId();
+            hostIds[i] = hostId;
+            averageUtilization[i] = policy.getAverageUtilization(hostId);
+            peakUtilization[i] = policy.getPeakUtilization(hostId);
+            maxVms[i] = policy.getMaxVmsPerHost(hostId);
+            energy[i] = policy.getTotalEnergy(hostId);
+            totalEnergy += energy[i];
+            hostUtilization.record(Math.round(averageUtilization[i] * PARTS_PER_MILLION));
+        }
+        return new MetricsSnapshot(stats.getCount(), stats.getSuccessCount(),
+            new LatencyHistogram(stats.getCompletionTimes()), hostUtilization,
+            policy.getHostsUtilizedCount(), totalEnergy, hostIds,
+            averageUtilization, peakUtilization, maxVms, energy);
+    }
+
+    /**
+     * @return A snapshot covering the hosts and cloudlets of both; neither
+     *         input is changed
+     */
+    public MetricsSnapshot merge(MetricsSnapshot other) {
+        LatencyHistogram mergedTurnaround = new LatencyHistogram(turnaround);
+        mergedTurnaround.add(other.turnaround);
+        LatencyHistogram mergedUtilization = new LatencyHistogram(hostUtilization);
+        mergedUtilization.add(other.hostUtilization);
+        return new MetricsSnapshot(
+            totalCloudlets + other.totalCloudlets,
+            successfulCloudlets + other.successfulCloudlets,
+            mergedTurnaround, mergedUtilization,
+            activeHosts + other.activeHosts,
+            totalEnergy + other.totalEnergy,
+            concat(hostIds, other.hostIds),
+            concat(averageUtilization, other.averageUtilization),
+            concat(peakUtilization, other.peakUtilization),
+            concat(maxVms, other.maxVms),
+            concat(energy, other.energy));
+    }
+
+    public long getTotalCloudlets() {
+        return totalCloudlets;
+    }
+
+    public long getSuccessfulCloudlets() {
+        return successfulCloudlets;
+    }
+
+    public int getHostCount() {
+        return hostIds.length;
+    }
+
+    public int getActiveHosts() {
+        return activeHosts;
+    }
+
+    /**
+     * @return Energy of all hosts in joules
+     */
+    public double getTotalEnergy() {
+        return totalEnergy;
+    }
+
+    /**
+     * @param index Position in the host list, 0 to getHostCount() - 1
+     */
+    public int getHostId(int index) {
+        return hostIds[index];
+    }
+
+    public double getAverageUtilization(int index) {
+        return averageUtilization[index];
+    }
+
+    public double getPeakUtilization(int index) {
+        return peakUtilization[index];
+    }
+
+    public int getMaxVms(int index) {
+        return maxVms[index];
+    }
+
+    /**
+     * @return Energy of the host at index in joules
+     */
+    public double getEnergy(int index) {
+        return energy[index];
+    }
+
+    /**
+     * @return Turnaround (finish minus submission) in seconds
+     */
+    public double getTurnaroundAtPercentile(double percentile) {
+        return turnaround.getValueAtPercentile(percentile) / MICROS_PER_SECOND;
+    }
+
+    /**
+     * @return Mean utilization of the host at that percentile, in [0, 1]
+     */
+    public double getHostUtilizationAtPercentile(double percentile) {
+        return hostUtilization.getValueAtPercentile(percentile) / PARTS_PER_MILLION;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static double[] concat(double[] a, double[] b) {
+        double[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
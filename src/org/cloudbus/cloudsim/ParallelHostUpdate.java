@@ -0,0 +1,111 @@
+package org.cloudbus.cloudsim;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Runs a per-host loop over fixed partitions of the host list on a
+ * fork-join pool, for the datacenter's cloudlet update and the policy's
+ * sampling tick.
+ *
+ * Partition boundaries depend only on the host count, never on the number
+ * of threads, and results are reduced in partition order, so a run is
+ * identical to the serial one. The body of the loop must touch nothing but
+ * its own host's state; anything shared stays in a serial pass after it.
+ * A VM migrating in is in both its source's and its target's VM list, so
+ * it belongs to its source only and the target's update of it is shared.
+ * Host lists of a single partition run inline on the calling thread.
+ */
+public class ParallelHostUpdate implements AutoCloseable {
+    private static final int DEFAULT_PARTITION_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+    private final int partitionSize;
+
+    /**
+     * @param threads Worker threads, 0 for one per available processor
+     */
+    public ParallelHostUpdate(int threads) {
+        this(threads, DEFAULT_PARTITION_SIZE);
+    }
+
+    /**
+     * @param partitionSize Hosts per task
+     */
+    public ParallelHostUpdate(int threads, int partitionSize) {
+        if (threads < 0 || partitionSize < 1) {
+            throw new IllegalArgumentException("Need threads >= 0 and partitionSize >= 1, got "
+                + threads + " and " + partitionSize);
+        }
+        this.pool = new ForkJoinPool(threads == 0 ? Runtime.getRuntime().availableProcessors() : threads);
+        this.partitionSize = partitionSize;
+    }
+
+    /**
+     * Calls action for every index in [0, count), partitions in parallel
+     */
+    public void forEach(int count, IntConsumer action) {
+        int partitions = partitionsOf(count);
+        if (partitions <= 1) {
+            for (int i = 0; i < count; i++) {
+                action.accept(i);
+            }
+            return;
+        }
+        pool.submit(() -> IntStream.range(0, partitions).parallel().forEach(partition -> {
+            int end = Math.min(count, (partition + 1) * partitionSize);
+            for (int i = partition * partitionSize; i < end; i++) {
+                action.accept(i);
+            }
+        })).join();
+    }
+
+    /**
+     * @return The smallest function value over [0, count), or
+     *         Double.MAX_VALUE if count is 0
+     */
+    public double min(int count, IntToDoubleFunction function) {
+        int partitions = partitionsOf(count);
+        double[] partial = new double[Math.max(1, partitions)];
+        if (partitions <= 1) {
+            partial[0] = minOf(0, count, function);
+        } else {
+            pool.submit(() -> IntStream.range(0, partitions).parallel().forEach(partition ->
+                partial[partition] = minOf(partition * partitionSize,
+                    Math.min(count, (partition + 1) * partitionSize), function))).join();
+        }
+        double result = Double.MAX_VALUE;
+        for (double value : partial) {
+            if (value < result) {
+                result = value;
+            }
+        }
+        return result;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private int partitionsOf(int count) {
+        return (count + partitionSize - 1) / partitionSize;
+    }
+
+    private static double minOf(int start, int end, IntToDoubleFunction function) {
+        double result = Double.MAX_VALUE;
+        for (int i = start; i < end; i++) {
+            double value = function.applyAsDouble(i);
+            if (value < result) {
+                result = value;
+            }
+        }
+        return result;
+    }
+}
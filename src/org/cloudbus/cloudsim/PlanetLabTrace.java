@@ -0,0 +1,84 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import org.cloudbus.cloudsim.utils.MappedTextReader;
+
+/**
+ * Replays a PlanetLab-style workload directory: one file per VM, one CPU
+ * utilization percentage per line, sampled every 300 seconds.
+ *
+ * Each file becomes one cloudlet arriving at time 0. Files are only opened
+ * and parsed when their cloudlet is requested.
+ */
+public class PlanetLabTrace implements CloudletTrace {
+    public static final double PLANETLAB_INTERVAL = 300.0;
+    private static final int PLANETLAB_SAMPLES = 288;
+
+    private final List<Path> files;
+    private final long cloudletLength;
+    private final double[] line = new double[1];
+    private final UtilizationModel ramAndBwModel = new UtilizationModelNull();
+    private int nextFile = 0;
+
+    /**
+     * @param cloudletLength Length in MI of every cloudlet
+     */
+    public PlanetLabTrace(Path directory, long cloudletLength) throws IOException {
+        this.cloudletLength = cloudletLength;
+        this.files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+    }
+
+    @Override
+    public double nextArrivalTime() {
+        return nextFile < files.size() ? 0.0 : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public Cloudlet nextCloudlet(int userId) throws IOException {
+        if (nextFile >= files.size()) {
+            return null;
+        }
+        int id = nextFile;
+        UtilizationModel cpuModel = new TraceUtilizationModel(readSamples(files.get(nextFile++)), PLANETLAB_INTERVAL);
+        Cloudlet cloudlet = new Cloudlet(id, cloudletLength, 1,
+            Constants.CLOUDLET_FILE_SIZE, Constants.CLOUDLET_OUTPUT_SIZE,
+            cpuModel, ramAndBwModel, ramAndBwModel);
+        cloudlet.setUserId(userId);
+        return cloudlet;
+    }
+
+    @Override
+    public void close() {
+        nextFile = files.size();
+    }
+
+    private double[] readSamples(Path file) throws IOException {
+        double[] samples = new double[PLANETLAB_SAMPLES];
+        int count = 0;
+        try (MappedTextReader reader = new MappedTextReader(file)) {
+            while (reader.readLine((byte) ',', line) >= 0) {
+                if (Double.isNaN(line[0])) {
+                    continue;
+                }
+                if (count == samples.length) {
+                    samples = Arrays.copyOf(samples, samples.length * 2);
+                }
+                samples[count++] = line[0] / 100.0;
+            }
+        }
+        if (count == 0) {
+            throw new IOException("No utilization samples in " + file);
+        }
+        return count == samples.length ? samples : Arrays.copyOf(samples, count);
+    }
+}
@@ -0,0 +1,110 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import org.cloudbus.cloudsim.power.models.PowerModel;
+
+/**
+ * Power draw of one host type in the SPECpower style: watts at 0%, 10%, ...,
+ * 100% CPU utilization, linearly interpolated in between. Immutable, so all
+ * hosts of a type share one instance; VmAllocationPolicyEnergyAware copies
+ * the points of every distinct table into one flat array for its sampling
+ * loop.
+ */
+public final class PowerTable {
+    /** Points per table: 0% to 100% in steps of 10% */
+    public static final int POINTS = 11;
+
+    /** 100 W idle to 200 W at full load, the model used before tables existed */
+    public static final PowerTable DEFAULT = linear("default", 100, 200);
+
+    private final String name;
+    private final double[] watts;
+
+    /**
+     * @param watts POINTS values, for 0% to 100% utilization
+     */
+    public PowerTable(String name, double[] watts) {
+        if (watts.length != POINTS) {
+            throw new IllegalArgumentException("Power table " + name + " needs " + POINTS + " points, got " + watts.length);
+        }
+        this.name = name;
+        this.watts = watts.clone();
+    }
+
+    public static PowerTable linear(String name, double idleWatts, double maxWatts) {
+        double[] watts = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            watts[i] = idleWatts + (maxWatts - idleWatts) * i / (POINTS - 1);
+        }
+        return new PowerTable(name, watts);
+    }
+
+    /**
+     * Samples a CloudSim power model at the table points. Exact for the
+     * PowerModelSpecPower models, which are 11-point tables themselves.
+     */
+    public static PowerTable of(String name, PowerModel model) {
+        double[] watts = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            watts[i] = model.getPower((double) i / (POINTS - 1));
+        }
+        return new PowerTable(name, watts);
+    }
+
+    /**
+     * Reads name=w0,w10,...,w100 lines, one table per line
+     * @return Tables by name, in name order
+     */
+    public static Map<String, PowerTable> load(Path file) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, PowerTable> tables = new TreeMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            double[] watts = Arrays.stream(properties.getProperty(name).split(","))
+                .mapToDouble(value -> Double.parseDouble(value.trim())).toArray();
+            tables.put(name, new PowerTable(name, watts));
+        }
+        return tables;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param utilization CPU utilization, clamped to [0, 1]
+     * @return Power draw in watts
+     */
+    public double getPower(double utilization) {
+        return interpolate(watts, 0, utilization);
+    }
+
+    void copyTo(double[] target, int offset) {
+        System.arraycopy(watts, 0, target, offset, POINTS);
+    }
+
+    /**
+     * Interpolates the table stored at points[offset .. offset + POINTS)
+     */
+    static double interpolate(double[] points, int offset, double utilization) {
+        if (utilization <= 0.0) {
+            return points[offset];
+        }
+        if (utilization >= 1.0) {
+            return points[offset + POINTS - 1];
+        }
+        double x = utilization * (POINTS - 1);
+        int i = (int) x;
+        double low = points[offset + i];
+        return low + (points[offset + i + 1] - low) * (x - i);
+    }
+}
@@ -0,0 +1,167 @@
+package org.cloudbus.cloudsim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Writes results/summary.csv rows (Type,ID,Metric,Value) as cloudlets
+ * finish, instead of holding every cloudlet until the end of the run.
+ *
+ * Rows are encoded straight into a large ByteBuffer and written through a
+ * FileChannel. Numbers use a fixed two-decimal formatter with half-even
+ * rounding of the exact binary value, the same output as
+ * DecimalFormat("0.00") without its cost.
+ */
+public class ResultsSink implements CloudletCompletionListener, Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_ROW_SIZE = 256;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long cloudletCount = 0;
+
+    public ResultsSink(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        putAscii("Type,ID,Metric,Value\n");
+    }
+
+    @Override
+    public void cloudletFinished(Cloudlet cloudlet) {
+        try {
+            writeRow("Cloudlet", cloudlet.getCloudletId(), "StartTime", cloudlet.getExecStartTime());
+            writeRow("Cloudlet", cloudlet.getCloudletId(), "FinishTime", cloudlet.getFinishTime());
+            writeRow("Cloudlet", cloudlet.getCloudletId(), "ExecutionTime", cloudlet.getActualCPUTime());
+            writeRow("Cloudlet", cloudlet.getCloudletId(), "Status", Cloudlet.getStatusString(cloudlet.getStatus()));
+            cloudletCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeVm(Vm vm) throws IOException {
+        writeRow("VM", vm.getId(), "Host", vm.getHost() != null ? vm.getHost().getId() : -1);
+    }
+
+    public void writeHost(Host host, VmAllocationPolicyEnergyAware policy) throws IOException {
+        writeRow("Host", host.getId(), "CPUUtilization", policy.getAverageUtilization(host.getId()) * 100);
+        writeRow("Host", host.getId(), "EnergyConsumed", policy.getTotalEnergy(host.getId()));
+        writeRow("Host", host.getId(), "VMsCount", (long) host.getVmList().size());
+    }
+
+    public void writeRow(String type, int id, String metric, double value) throws IOException {
+        startRow(type, id, metric);
+        putFixed2(value);
+        buffer.put((byte) '\n');
+    }
+
+    public void writeRow(String type, int id, String metric, long value) throws IOException {
+        startRow(type, id, metric);
+        putLong(value);
+        buffer.put((byte) '\n');
+    }
+
+    public void writeRow(String type, int id, String metric, String value) throws IOException {
+        startRow(type, id, metric);
+        putAscii(value);
+        buffer.put((byte) '\n');
+    }
+
+    public long getCloudletCount() {
+        return cloudletCount;
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private void startRow(String type, int id, String metric) throws IOException {
+        if (buffer.remaining() < MAX_ROW_SIZE) {
+            flush();
+        }
+        putAscii(type);
+        buffer.put((byte) ',');
+        putLong(id);
+        buffer.put((byte) ',');
+        putAscii(metric);
+        buffer.put((byte) ',');
+    }
+
+    private void putAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            putAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + (value % 10)));
+            value /= 10;
+        } while (value > 0);
+        // Digits were written least significant first
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            byte tmp = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, tmp);
+        }
+    }
+
+    private void putFixed2(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= 1e15) {
+            putAscii(Double.toString(value));
+            return;
+        }
+        // Like DecimalFormat, keep the sign of values that round to zero
+        if (Math.copySign(1.0, value) < 0) {
+            buffer.put((byte) '-');
+        }
+        long cents = roundToCents(Math.abs(value));
+        putLong(cents / 100);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + (cents / 10) % 10));
+        buffer.put((byte) ('0' + cents % 10));
+    }
+
+    /**
+     * Rounds half-even on the exact value, not on value * 100: 13.205 is
+     * stored as 13.20500000000000007..., which DecimalFormat rounds up, but
+     * the product rounds to exactly 1320.5 and then to the even 1320. Below
+     * 1e9 the product is off by far less than 1e-4, so only products that
+     * close to a tie need BigDecimal.
+     */
+    private static long roundToCents(double value) {
+        double scaled = value * 100;
+        if (value < 1e9 && Math.abs(scaled - Math.floor(scaled) - 0.5) > 1e-4) {
+            return (long) Math.rint(scaled);
+        }
+        return new BigDecimal(value).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+    }
+}
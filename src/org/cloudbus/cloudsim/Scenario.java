@@ -0,0 +1,232 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Declarative description of a simulation: datacenter settings plus host,
+ * VM and cloudlet templates with counts, read from a properties file.
+ *
+ * <pre>
+ * datacenter.name=GreenDatacenter
+ * seed=1
+ * host.mixed.count=3
+ * host.mixed.mips=1000,1500,2000
+ * host.mixed.power=default
+ * vm.standard.count=3
+ * vm.standard.ram=1024
+ * cloudlet.batch.count=6
+ * cloudlet.batch.length=5000,10000,15000,20000,25000,30000
+ * </pre>
+ *
+ * Keys are kind.template.field. A comma-separated value is cycled over the
+ * template's instances, so the file above gives hosts of 1000, 1500 and
+ * 2000 MIPS. Templates are instantiated in name order and fields left out
+ * take their default from Constants. A kind without any template gets one
+ * built entirely from Constants. A host's power field names a PowerTable:
+ * "default" or one from the file given by power.tables, which is resolved
+ * against the scenario file's directory.
+ */
+public class Scenario {
+    public static final String HOST = "host";
+    public static final String VM = "vm";
+    public static final String CLOUDLET = "cloudlet";
+
+    private static final Map<String, Map<String, String>> DEFAULTS = new HashMap<>();
+
+    static {
+        Map<String, String> host = new LinkedHashMap<>();
+        host.put("count", String.valueOf(Constants.NO_OF_HOSTS));
+        host.put("mips", join(Constants.HOST_MIPS));
+        host.put("pes", String.valueOf(Constants.HOST_PES));
+        host.put("ram", String.valueOf(Constants.HOST_RAM));
+        host.put("bw", String.valueOf(Constants.HOST_BW));
+        host.put("storage", String.valueOf(Constants.HOST_STORAGE));
+        host.put("power", PowerTable.DEFAULT.getName());
+        DEFAULTS.put(HOST, host);
+
+        Map<String, String> vm = new LinkedHashMap<>();
+        vm.put("count", String.valueOf(Constants.NO_OF_VMS));
+        vm.put("mips", join(Constants.VM_MIPS));
+        vm.put("pes", String.valueOf(Constants.VM_PES));
+        vm.put("ram", String.valueOf(Constants.VM_RAM));
+        vm.put("bw", String.valueOf(Constants.VM_BW));
+        vm.put("size", String.valueOf(Constants.VM_SIZE));
+        DEFAULTS.put(VM, vm);
+
+        Map<String, String> cloudlet = new LinkedHashMap<>();
+        cloudlet.put("count", String.valueOf(Constants.NO_OF_CLOUDLETS));
+        cloudlet.put("length", join(Constants.CLOUDLET_LENGTHS));
+        cloudlet.put("pes", String.valueOf(Constants.CLOUDLET_PES));
+        cloudlet.put("fileSize", String.valueOf(Constants.CLOUDLET_FILE_SIZE));
+        cloudlet.put("outputSize", String.valueOf(Constants.CLOUDLET_OUTPUT_SIZE));
+        cloudlet.put("utilization", "full");
+        DEFAULTS.put(CLOUDLET, cloudlet);
+    }
+
+    private final Properties properties;
+    private final Path baseDirectory;
+    private final Map<String, List<Template>> templates = new HashMap<>();
+
+    public Scenario(Properties properties) {
+        this(properties, Paths.get(""));
+    }
+
+    /**
+     * @param baseDirectory Directory that relative paths in the scenario are
+     *                      resolved against
+     */
+    public Scenario(Properties properties, Path baseDirectory) {
+        this.properties = properties;
+        this.baseDirectory = baseDirectory;
+        Map<String, Map<String, Map<String, String>>> byKind = new HashMap<>();
+        for (String kind : DEFAULTS.keySet()) {
+            byKind.put(kind, new TreeMap<>());
+        }
+        for (String key : properties.stringPropertyNames()) {
+            String[] parts = key.split("\\.");
+            if (!DEFAULTS.containsKey(parts[0])) {
+                continue;
+            }
+            if (parts.length != 3 || !DEFAULTS.get(parts[0]).containsKey(parts[2])) {
+                throw new IllegalArgumentException("Unknown scenario key: " + key);
+            }
+            byKind.get(parts[0]).computeIfAbsent(parts[1], name -> new HashMap<>())
+                .put(parts[2], properties.getProperty(key).trim());
+        }
+        for (Map.Entry<String, Map<String, Map<String, String>>> kind : byKind.entrySet()) {
+            Map<String, Map<String, String>> named = kind.getValue();
+            if (named.isEmpty()) {
+                named.put("default", new HashMap<>());
+            }
+            List<Template> list = new ArrayList<>(named.size());
+            for (Map.Entry<String, Map<String, String>> entry : named.entrySet()) {
+                list.add(new Template(kind.getKey(), entry.getKey(), entry.getValue()));
+            }
+            templates.put(kind.getKey(), Collections.unmodifiableList(list));
+        }
+    }
+
+    /**
+     * @return The scenario Main ran before scenario files existed
+     */
+    public static Scenario defaults() {
+        return new Scenario(new Properties());
+    }
+
+    public static Scenario load(Path file) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        return new Scenario(properties, directory != null ? directory : Paths.get(""));
+    }
+
+    public List<Template> getTemplates(String kind) {
+        return templates.get(kind);
+    }
+
+    public int getCount(String kind) {
+        int count = 0;
+        for (Template template : templates.get(kind)) {
+            count += template.getCount();
+        }
+        return count;
+    }
+
+    public String getString(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue).trim();
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    /**
+     * @return The path under key resolved against the base directory, or null
+     */
+    public Path getPath(String key) {
+        String value = properties.getProperty(key);
+        return value == null ? null : baseDirectory.resolve(value.trim());
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private static String join(int[] values) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (int value : values) {
+            joiner.add(String.valueOf(value));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * One host, VM or cloudlet shape. Numeric fields are parsed once into
+     * arrays that every instance reads from.
+     */
+    public static final class Template {
+        private final String name;
+        private final int count;
+        private final Map<String, long[]> numbers = new HashMap<>();
+        private final Map<String, String> texts = new HashMap<>();
+
+        Template(String kind, String name, Map<String, String> values) {
+            this.name = name;
+            for (Map.Entry<String, String> field : DEFAULTS.get(kind).entrySet()) {
+                String value = values.getOrDefault(field.getKey(), field.getValue());
+                texts.put(field.getKey(), value);
+                try {
+                    numbers.put(field.getKey(), Arrays.stream(value.split(","))
+                        .mapToLong(part -> Long.parseLong(part.trim())).toArray());
+                } catch (NumberFormatException e) {
+                    // Text field such as the utilization pattern
+                }
+            }
+            this.count = (int) numbers.get("count")[0];
+            if (count < 0) {
+                throw new IllegalArgumentException(kind + "." + name + ".count must not be negative");
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return Values of a numeric field, to be read with at(values, index)
+         */
+        public long[] numbers(String field) {
+            long[] values = numbers.get(field);
+            if (values == null) {
+                throw new IllegalArgumentException("Template " + name + " has no numeric " + field + ": " + texts.get(field));
+            }
+            return values;
+        }
+
+        public String text(String field) {
+            return texts.get(field);
+        }
+
+        /**
+         * @return The value for the index-th instance, cycling through the list
+         */
+        public static long at(long[] values, int index) {
+            return values[index % values.length];
+        }
+    }
+}
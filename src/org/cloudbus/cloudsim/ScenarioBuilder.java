@@ -0,0 +1,259 @@
+package org.cloudbus.cloudsim;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.cloudbus.cloudsim.Scenario.Template;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.utils.CpuUtilizationGenerator;
+import org.cloudbus.cloudsim.utils.CpuUtilizationGenerator.UtilizationPattern;
+
+/**
+ * Turns a Scenario into CloudSim hosts, a datacenter, VMs and cloudlets.
+ *
+ * Instances are written into pre-sized arrays by index, in parallel for
+ * templates of PARALLEL_THRESHOLD instances or more, so ids and seeds do not
+ * depend on thread scheduling. The constructors involved touch no CloudSim
+ * static state. Template values are parsed once and stateless utilization
+ * models are shared. Build times and the retained heap per host are kept
+ * for getReport().
+ */
+public class ScenarioBuilder {
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private final Scenario scenario;
+    private final UtilizationModel fullModel = new UtilizationModelFull();
+    private long hostNanos = 0;
+    private long datacenterNanos = 0;
+    private long vmNanos = 0;
+    private long cloudletNanos = 0;
+    private long hostHeapBytes = 0;
+    private int hostCount = 0;
+    private int vmCount = 0;
+    private int cloudletCount = 0;
+    private boolean measureHeap = true;
+
+    public ScenarioBuilder(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    /**
+     * @param measureHeap Whether createHosts measures the heap the hosts
+     *                    retain; off for callers that never read getReport()
+     */
+    public void setMeasureHeap(boolean measureHeap) {
+        this.measureHeap = measureHeap;
+    }
+
+    /**
+     * Builds all hosts. Unless disabled with setMeasureHeap, runs a GC before
+     * and after to measure the heap they retain.
+     */
+    public List<Host> createHosts() {
+        long heapBefore = measureHeap ? usedHeapAfterGc() : 0;
+        long start = System.nanoTime();
+        List<Host> hosts = build(Scenario.HOST, template -> {
+            long[] mips = template.numbers("mips");
+            long[] pes = template.numbers("pes");
+            long[] ram = template.numbers("ram");
+            long[] bw = template.numbers("bw");
+            long[] storage = template.numbers("storage");
+            return (index, id) -> {
+                int peCount = (int) Template.at(pes, index);
+                double peMips = Template.at(mips, index);
+                List<Pe> peList = new ArrayList<>(peCount);
+                for (int pe = 0; pe < peCount; pe++) {
+                    peList.add(new Pe(pe, new PeProvisionerSimple(peMips)));
+                }
+                return new Host(
+                    id,
+                    new RamProvisionerSimple((int) Template.at(ram, index)),
+                    new BwProvisionerSimple(Template.at(bw, index)),
+                    Template.at(storage, index),
+                    peList,
+                    new VmSchedulerTimeShared(peList));
+            };
+        });
+        hostNanos = System.nanoTime() - start;
+        hostCount = hosts.size();
+        hostHeapBytes = measureHeap ? usedHeapAfterGc() - heapBefore : 0;
+        return hosts;
+    }
+
+    /**
+     * Energy-aware datacenter over the hosts, with the characteristics from
+     * the datacenter.* keys. Hosts of one template share their power table.
+     */
+    public Datacenter createDatacenter(List<Host> hosts) throws Exception {
+        return createDatacenter(hosts, new VmAllocationPolicyEnergyAware(hosts));
+    }
+
+    /**
+     * Datacenter over the hosts with the given allocation policy. Power
+     * tables only apply to VmAllocationPolicyEnergyAware; other policies get
+     * the datacenter as is.
+     */
+    public Datacenter createDatacenter(List<Host> hosts, VmAllocationPolicy policy) throws Exception {
+        long start = System.nanoTime();
+        DatacenterCharacteristics characteristics = new DatacenterCharacteristics(
+            scenario.getString("datacenter.arch", Constants.ARCHITECTURE),
+            scenario.getString("datacenter.os", Constants.OS),
+            scenario.getString("datacenter.vmm", Constants.VMM),
+            hosts,
+            scenario.getDouble("datacenter.timeZone", Constants.TIME_ZONE),
+            scenario.getDouble("datacenter.cost", Constants.COST),
+            scenario.getDouble("datacenter.costPerMem", Constants.COST_PER_MEM),
+            scenario.getDouble("datacenter.costPerStorage", Constants.COST_PER_STORAGE),
+            scenario.getDouble("datacenter.costPerBw", Constants.COST_PER_BW));
+        if (policy instanceof VmAllocationPolicyEnergyAware) {
+            assignPowerTables((VmAllocationPolicyEnergyAware) policy, hosts);
+        }
+        Datacenter datacenter = new EnergyAwareDatacenter(
+            scenario.getString("datacenter.name", Constants.DATACENTER_NAME),
+            characteristics,
+            policy,
+            new LinkedList<Storage>(),
+            0);
+        datacenterNanos = System.nanoTime() - start;
+        return datacenter;
+    }
+
+    private void assignPowerTables(VmAllocationPolicyEnergyAware policy, List<Host> hosts) {
+        Map<String, PowerTable> powerTables = new HashMap<>();
+        powerTables.put(PowerTable.DEFAULT.getName(), PowerTable.DEFAULT);
+        Path tableFile = scenario.getPath("power.tables");
+        if (tableFile != null) {
+            powerTables.putAll(PowerTable.load(tableFile));
+        }
+        int offset = 0;
+        for (Template template : scenario.getTemplates(Scenario.HOST)) {
+            PowerTable table = powerTables.get(template.text("power"));
+            if (table == null) {
+                throw new IllegalArgumentException("Unknown power table for host template "
+                    + template.getName() + ": " + template.text("power"));
+            }
+            if (table != PowerTable.DEFAULT) {
+                for (int i = offset; i < offset + template.getCount(); i++) {
+                    policy.setPowerTable(hosts.get(i), table);
+                }
+            }
+            offset += template.getCount();
+        }
+    }
+
+    public List<Vm> createVms(int brokerId) {
+        long start = System.nanoTime();
+        String vmm = scenario.getString("datacenter.vmm", Constants.VMM);
+        List<Vm> vms = build(Scenario.VM, template -> {
+            long[] mips = template.numbers("mips");
+            long[] pes = template.numbers("pes");
+            long[] ram = template.numbers("ram");
+            long[] bw = template.numbers("bw");
+            long[] size = template.numbers("size");
+            return (index, id) -> new Vm(
+                id, brokerId,
+                Template.at(mips, index),
+                (int) Template.at(pes, index),
+                (int) Template.at(ram, index),
+                Template.at(bw, index),
+                Template.at(size, index),
+                vmm,
+                new CloudletSchedulerTimeShared());
+        });
+        vmNanos = System.nanoTime() - start;
+        vmCount = vms.size();
+        return vms;
+    }
+
+    /**
+     * Cloudlets use UtilizationModelFull for RAM and bandwidth. CPU is full
+     * too unless the template names a UtilizationPattern, in which case each
+     * cloudlet gets its own model seeded from the scenario's seed key.
+     */
+    public List<Cloudlet> createCloudlets(int brokerId) {
+        return createCloudlets(brokerId, 0);
+    }
+
+    /**
+     * @param firstId Id of the first cloudlet, the others follow in order;
+     *                for cloudlets added to a running simulation
+     */
+    public List<Cloudlet> createCloudlets(int brokerId, int firstId) {
+        long start = System.nanoTime();
+        SplittableRandom seedSource = new SplittableRandom(scenario.getLong("seed", 1));
+        long[] seeds = new long[scenario.getCount(Scenario.CLOUDLET)];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = seedSource.nextLong();
+        }
+        List<Cloudlet> cloudlets = build(Scenario.CLOUDLET, template -> {
+            long[] length = template.numbers("length");
+            long[] pes = template.numbers("pes");
+            long[] fileSize = template.numbers("fileSize");
+            long[] outputSize = template.numbers("outputSize");
+            String utilization = template.text("utilization");
+            UtilizationPattern pattern = "full".equalsIgnoreCase(utilization)
+                ? null : UtilizationPattern.valueOf(utilization.toUpperCase(Locale.ROOT));
+            return (index, id) -> {
+                UtilizationModel cpuModel = pattern == null
+                    ? fullModel : CpuUtilizationGenerator.create(pattern, seeds[id]);
+                Cloudlet cloudlet = new Cloudlet(
+                    firstId + id,
+                    Template.at(length, index),
+                    (int) Template.at(pes, index),
+                    Template.at(fileSize, index),
+                    Template.at(outputSize, index),
+                    cpuModel, fullModel, fullModel);
+                cloudlet.setUserId(brokerId);
+                return cloudlet;
+            };
+        });
+        cloudletNanos = System.nanoTime() - start;
+        cloudletCount = cloudlets.size();
+        return cloudlets;
+    }
+
+    /**
+     * @return Counts, build times and retained heap per host
+     */
+    public String getReport() {
+        return String.format("Scenario built in %.0f ms: %d hosts in %.0f ms (%.0f bytes heap per host), "
+                + "datacenter in %.0f ms, %d VMs in %.0f ms, %d cloudlets in %.0f ms",
+            (hostNanos + datacenterNanos + vmNanos + cloudletNanos) / 1e6,
+            hostCount, hostNanos / 1e6, hostCount == 0 ? 0.0 : (double) hostHeapBytes / hostCount,
+            datacenterNanos / 1e6, vmCount, vmNanos / 1e6, cloudletCount, cloudletNanos / 1e6);
+    }
+
+    private interface InstanceFactory<T> {
+        /**
+         * @param index Position within the template, for cycling values
+         * @param id Position within the whole kind, used as the CloudSim id
+         */
+        T create(int index, int id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> build(String kind, Function<Template, InstanceFactory<T>> factories) {
+        Object[] built = new Object[scenario.getCount(kind)];
+        int offset = 0;
+        for (Template template : scenario.getTemplates(kind)) {
+            InstanceFactory<T> factory = factories.apply(template);
+            int base = offset;
+            IntStream indexes = IntStream.range(0, template.getCount());
+            if (template.getCount() >= PARALLEL_THRESHOLD) {
+                indexes = indexes.parallel();
+            }
+            indexes.forEach(index -> built[base + index] = factory.create(index, base + index));
+            offset += template.getCount();
+        }
+        return new ArrayList<>(Arrays.asList((T[]) built));
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
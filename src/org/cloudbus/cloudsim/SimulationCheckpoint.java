@@ -0,0 +1,847 @@
+package org.cloudbus.cloudsim;
+
+import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * Saves the complete state of a running simulation to a compact binary file
+ * and restores it in another process, so what-if runs that share a long
+ * warm-up can fork from one checkpoint instead of repeating it.
+ *
+ * A checkpoint holds CloudSim's static state (clock, entities, future and
+ * deferred event queues) and everything reachable from it and from the
+ * caller's named roots: hosts, VMs, cloudlets and their schedulers, the
+ * broker, the allocation policy with its energy and utilization ledgers,
+ * the sampler. The object graph is walked breadth first and written field
+ * by field, each object, string and class once, then deflated. Loading
+ * allocates objects without running their constructors, so the restored
+ * simulation continues exactly where the saved one stopped.
+ *
+ * Transient fields are not saved and come back as null or zero: they hold
+ * per-run attachments such as output files and thread pools. Objects that
+ * must rebuild them implement Restorable. JDK collections are saved by
+ * their contents, other JDK classes must be Serializable. Anything else
+ * that cannot be restored (open channels, threads, lambdas) fails the save
+ * and names the field it was reached from.
+ *
+ * Save between clock ticks only, e.g. after CloudSimInternals.runUntil.
+ */
+public final class SimulationCheckpoint {
+
+    /**
+     * An object with transient state to rebuild after loading, such as an
+     * open file
+     */
+    public interface Restorable {
+        /**
+         * Called once the whole checkpoint is loaded, in load order
+         */
+        void restored() throws IOException;
+    }
+
+    private static final int MAGIC = 0x434b5031; // "CKP1"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Reference tags
+    private static final int NULL = 0;
+    private static final int BACK_REFERENCE = 1;
+    private static final int NEW_OBJECT = 2;
+    private static final int NEW_CLASS = 3;
+
+    // How the instances of a class are written
+    private static final byte STRING = 0;
+    private static final byte BOXED = 1;
+    private static final byte ENUM = 2;
+    private static final byte CLASS = 3;
+    private static final byte PATH = 4;
+    private static final byte ARRAY = 5;
+    private static final byte COLLECTION = 6;
+    private static final byte MAP = 7;
+    private static final byte OBJECT = 8;
+    private static final byte SERIALIZED = 9;
+
+    private static final Set<Class<?>> BOXED_TYPES = new HashSet<>(Arrays.asList(
+        Boolean.class, Byte.class, Character.class, Short.class,
+        Integer.class, Long.class, Float.class, Double.class));
+
+    private static MethodHandle allocateInstance;
+
+    private SimulationCheckpoint() {
+    }
+
+    /**
+     * Writes CloudSim's static state and the roots to file.
+     * @param roots Objects the caller needs back after loading, by name
+     * @return Number of objects written
+     */
+    public static long save(Path file, Map<String, ?> roots) throws IOException {
+        List<Field> statics = cloudSimStatics();
+        if (!CloudSim.running()) {
+            throw new IllegalStateException("The simulation has not been started, see CloudSimInternals.runUntil");
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream raw = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+            DataOutputStream header = new DataOutputStream(raw);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeDouble(CloudSim.clock());
+            DeflaterOutputStream deflated = new DeflaterOutputStream(raw, deflater, BUFFER_SIZE);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(deflated, BUFFER_SIZE));
+            Writer writer = new Writer(out);
+            writer.writeVarInt(statics.size());
+            for (Field field : statics) {
+                writer.writeString(field.getName());
+                writer.context = "CloudSim." + field.getName();
+                writer.writeReference(field.get(null));
+            }
+            writer.writeVarInt(roots.size());
+            for (Map.Entry<String, ?> root : roots.entrySet()) {
+                writer.writeString(root.getKey());
+                writer.context = "root " + root.getKey();
+                writer.writeReference(root.getValue());
+            }
+            writer.drain();
+            out.writeInt(MAGIC);
+            out.flush();
+            deflated.finish();
+            return writer.handles.size();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Replaces CloudSim's static state with the checkpoint's. The next
+     * CloudSim.startSimulation() continues the saved run without starting
+     * the entities again.
+     * @return The roots given to save, by name
+     */
+    public static Map<String, Object> load(Path file) throws IOException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            DataInputStream header = new DataInputStream(raw);
+            if (header.readInt() != MAGIC) {
+                throw new IOException("Not a simulation checkpoint: " + file);
+            }
+            int version = header.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + ": " + file);
+            }
+            header.readDouble();
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new InflaterInputStream(raw), BUFFER_SIZE));
+            Reader reader = new Reader(in);
+            Map<String, Object> statics = new HashMap<>();
+            for (int i = reader.readVarInt(); i > 0; i--) {
+                String name = reader.readString();
+                statics.put(name, reader.readReference());
+            }
+            Map<String, Object> roots = new LinkedHashMap<>();
+            for (int i = reader.readVarInt(); i > 0; i--) {
+                String name = reader.readString();
+                roots.put(name, reader.readReference());
+            }
+            reader.drain();
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Truncated checkpoint: " + file);
+            }
+            reader.fill();
+            for (Field field : cloudSimStatics()) {
+                if (!statics.containsKey(field.getName())) {
+                    throw new IOException("Checkpoint has no CloudSim." + field.getName() + ": " + file);
+                }
+                field.set(null, statics.get(field.getName()));
+            }
+            for (Restorable restorable : reader.restorables) {
+                restorable.restored();
+            }
+            return roots;
+        } catch (EOFException e) {
+            throw new IOException("Truncated checkpoint: " + file, e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return The simulation time a checkpoint was taken at
+     */
+    public static double readTime(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a simulation checkpoint: " + file);
+            }
+            in.readInt();
+            return in.readDouble();
+        }
+    }
+
+    /**
+     * CloudSim's mutable static fields, in name order
+     */
+    private static List<Field> cloudSimStatics() {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : CloudSim.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)) {
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        fields.sort(Comparator.comparing(Field::getName));
+        return fields;
+    }
+
+    /**
+     * How one class is written, shared by writer and reader
+     */
+    private static final class ClassInfo {
+        final Class<?> type;
+        final int index;
+        final byte kind;
+        final boolean sorted;
+        final Field[] fields;
+
+        ClassInfo(Class<?> type, int index, byte kind) {
+            this.type = type;
+            this.index = index;
+            this.kind = kind;
+            this.sorted = SortedSet.class.isAssignableFrom(type) || SortedMap.class.isAssignableFrom(type)
+                || PriorityQueue.class.isAssignableFrom(type);
+            this.fields = kind == OBJECT ? fieldsOf(type) : null;
+        }
+
+        /**
+         * @throws IllegalArgumentException If instances cannot be restored
+         */
+        static byte kindOf(Class<?> type, String context) {
+            if (type == String.class) {
+                return STRING;
+            }
+            if (BOXED_TYPES.contains(type)) {
+                return BOXED;
+            }
+            if (type.isEnum()) {
+                return ENUM;
+            }
+            if (type == Class.class) {
+                return CLASS;
+            }
+            if (Path.class.isAssignableFrom(type)) {
+                return PATH;
+            }
+            if (type.isArray()) {
+                return ARRAY;
+            }
+            if (type == Object.class) {
+                return OBJECT;
+            }
+            if (type.getModule().isNamed()) {
+                if ((Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type))
+                        && isConstructible(type)) {
+                    return Collection.class.isAssignableFrom(type) ? COLLECTION : MAP;
+                }
+                if (Serializable.class.isAssignableFrom(type)) {
+                    return SERIALIZED;
+                }
+                throw cannotSave(type, context, "it is neither a collection nor Serializable");
+            }
+            if (type.isSynthetic()) {
+                throw cannotSave(type, context, "lambdas cannot be restored, use a named class");
+            }
+            for (Class<?> c = type.getSuperclass(); c != null && c != Object.class; c = c.getSuperclass()) {
+                if (c.getModule().isNamed()) {
+                    throw cannotSave(type, context, "it extends " + c.getName());
+                }
+            }
+            return OBJECT;
+        }
+
+        private static boolean isConstructible(Class<?> type) {
+            if (!Modifier.isPublic(type.getModifiers())) {
+                return false;
+            }
+            try {
+                type.getConstructor();
+                return true;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Non-static, non-transient fields from the class up to Object
+         */
+        private static Field[] fieldsOf(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    }
+
+    private static IllegalArgumentException cannotSave(Class<?> type, String context, String reason) {
+        return new IllegalArgumentException("Cannot checkpoint " + type.getName() + " reached from "
+            + context + ": " + reason + "; make the field transient or detach it before saving");
+    }
+
+    private static char typeCode(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return 'L';
+        }
+        return type == boolean.class ? 'Z' : type == long.class ? 'J' : type.getName().toUpperCase(Locale.ROOT).charAt(0);
+    }
+
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final Map<Object, Integer> handles = new IdentityHashMap<>();
+        private final Map<Class<?>, ClassInfo> classes = new HashMap<>();
+        private final ArrayDeque<Object> pending = new ArrayDeque<>();
+        private String context;
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeReference(Object value) throws IOException, IllegalAccessException {
+            if (value == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            Integer handle = handles.get(value);
+            if (handle != null) {
+                out.writeByte(BACK_REFERENCE);
+                writeVarInt(handle);
+                return;
+            }
+            Class<?> type = value instanceof Enum ? ((Enum<?>) value).getDeclaringClass() : value.getClass();
+            ClassInfo info = classes.get(type);
+            if (info == null) {
+                info = new ClassInfo(type, classes.size(), ClassInfo.kindOf(type, context));
+                classes.put(type, info);
+                out.writeByte(NEW_CLASS);
+                writeString(type.getName());
+                out.writeByte(info.kind);
+                if (info.kind == OBJECT) {
+                    writeVarInt(info.fields.length);
+                    for (Field field : info.fields) {
+                        writeString(field.getDeclaringClass().getName());
+                        writeString(field.getName());
+                        out.writeByte(typeCode(field.getType()));
+                    }
+                }
+            } else {
+                out.writeByte(NEW_OBJECT);
+                writeVarInt(info.index);
+            }
+            if (info.sorted) {
+                writeReference(info.kind == MAP ? ((SortedMap<?, ?>) value).comparator()
+                    : value instanceof SortedSet ? ((SortedSet<?>) value).comparator()
+                    : ((PriorityQueue<?>) value).comparator());
+            }
+            handles.put(value, handles.size());
+            switch (info.kind) {
+                case STRING:
+                    writeString((String) value);
+                    break;
+                case BOXED:
+                    writeBoxed(value);
+                    break;
+                case ENUM:
+                    writeString(((Enum<?>) value).name());
+                    break;
+                case CLASS:
+                    writeString(((Class<?>) value).getName());
+                    break;
+                case PATH:
+                    writeString(value.toString());
+                    break;
+                case ARRAY:
+                    writeVarInt(Array.getLength(value));
+                    pending.add(value);
+                    break;
+                case SERIALIZED:
+                    byte[] bytes = serialize(value);
+                    writeVarInt(bytes.length);
+                    out.write(bytes);
+                    break;
+                default:
+                    pending.add(value);
+            }
+        }
+
+        /**
+         * Writes the contents of every queued array, collection and object,
+         * and of everything they reach
+         */
+        void drain() throws IOException, IllegalAccessException {
+            while (!pending.isEmpty()) {
+                Object value = pending.poll();
+                ClassInfo info = classes.get(value.getClass());
+                switch (info.kind) {
+                    case ARRAY:
+                        writeArray(value);
+                        break;
+                    case COLLECTION:
+                        Collection<?> collection = (Collection<?>) value;
+                        context = "an element of a " + info.type.getName();
+                        writeVarInt(collection.size());
+                        for (Object element : collection) {
+                            writeReference(element);
+                        }
+                        break;
+                    case MAP:
+                        Map<?, ?> map = (Map<?, ?>) value;
+                        context = "an entry of a " + info.type.getName();
+                        writeVarInt(map.size());
+                        for (Map.Entry<?, ?> entry : map.entrySet()) {
+                            writeReference(entry.getKey());
+                            writeReference(entry.getValue());
+                        }
+                        break;
+                    default:
+                        writeFields(value, info.fields);
+                }
+            }
+        }
+
+        private void writeFields(Object value, Field[] fields) throws IOException, IllegalAccessException {
+            for (Field field : fields) {
+                Class<?> type = field.getType();
+                if (!type.isPrimitive()) {
+                    context = field.getDeclaringClass().getName() + "." + field.getName();
+                    writeReference(field.get(value));
+                } else if (type == int.class) {
+                    out.writeInt(field.getInt(value));
+                } else if (type == double.class) {
+                    out.writeDouble(field.getDouble(value));
+                } else if (type == long.class) {
+                    out.writeLong(field.getLong(value));
+                } else if (type == boolean.class) {
+                    out.writeBoolean(field.getBoolean(value));
+                } else if (type == float.class) {
+                    out.writeFloat(field.getFloat(value));
+                } else if (type == short.class) {
+                    out.writeShort(field.getShort(value));
+                } else if (type == byte.class) {
+                    out.writeByte(field.getByte(value));
+                } else {
+                    out.writeChar(field.getChar(value));
+                }
+            }
+        }
+
+        private void writeArray(Object array) throws IOException, IllegalAccessException {
+            Class<?> component = array.getClass().getComponentType();
+            if (component == double.class) {
+                for (double value : (double[]) array) {
+                    out.writeDouble(value);
+                }
+            } else if (component == int.class) {
+                for (int value : (int[]) array) {
+                    out.writeInt(value);
+                }
+            } else if (component == long.class) {
+                for (long value : (long[]) array) {
+                    out.writeLong(value);
+                }
+            } else if (component == boolean.class) {
+                for (boolean value : (boolean[]) array) {
+                    out.writeBoolean(value);
+                }
+            } else if (component == byte.class) {
+                out.write((byte[]) array);
+            } else if (component == float.class) {
+                for (float value : (float[]) array) {
+                    out.writeFloat(value);
+                }
+            } else if (component == short.class) {
+                for (short value : (short[]) array) {
+                    out.writeShort(value);
+                }
+            } else if (component == char.class) {
+                for (char value : (char[]) array) {
+                    out.writeChar(value);
+                }
+            } else {
+                context = "an element of a " + component.getName() + " array";
+                for (Object value : (Object[]) array) {
+                    writeReference(value);
+                }
+            }
+        }
+
+        private void writeBoxed(Object value) throws IOException {
+            if (value instanceof Integer) {
+                out.writeInt((Integer) value);
+            } else if (value instanceof Double) {
+                out.writeDouble((Double) value);
+            } else if (value instanceof Long) {
+                out.writeLong((Long) value);
+            } else if (value instanceof Boolean) {
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof Float) {
+                out.writeFloat((Float) value);
+            } else if (value instanceof Short) {
+                out.writeShort((Short) value);
+            } else if (value instanceof Byte) {
+                out.writeByte((Byte) value);
+            } else {
+                out.writeChar((Character) value);
+            }
+        }
+
+        private byte[] serialize(Object value) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+                objects.writeObject(value);
+            } catch (NotSerializableException e) {
+                throw cannotSave(value.getClass(), context, "it holds a " + e.getMessage());
+            }
+            return bytes.toByteArray();
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7f) != 0) {
+                out.writeByte((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private final List<Object> objects = new ArrayList<>();
+        private final List<ClassInfo> classes = new ArrayList<>();
+        private final Map<Class<?>, ClassInfo> classesByType = new HashMap<>();
+        private final ArrayDeque<Object> pending = new ArrayDeque<>();
+        // Collections and maps with their contents, added once every object is complete
+        private final List<Object> containers = new ArrayList<>();
+        private final List<Object[]> contents = new ArrayList<>();
+        final List<Restorable> restorables = new ArrayList<>();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        Object readReference() throws IOException, IllegalAccessException {
+            ClassInfo info;
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case BACK_REFERENCE:
+                    return objects.get(readVarInt());
+                case NEW_CLASS:
+                    info = readClass();
+                    break;
+                case NEW_OBJECT:
+                    info = classes.get(readVarInt());
+                    break;
+                default:
+                    throw new IOException("Corrupt checkpoint: reference tag " + tag);
+            }
+            Object comparator = info.sorted ? readReference() : null;
+            Object value;
+            switch (info.kind) {
+                case STRING:
+                    value = readString();
+                    break;
+                case BOXED:
+                    value = readBoxed(info.type);
+                    break;
+                case ENUM:
+                    value = enumConstant(info.type, readString());
+                    break;
+                case CLASS:
+                    value = classForName(readString());
+                    break;
+                case PATH:
+                    value = Paths.get(readString());
+                    break;
+                case ARRAY:
+                    value = Array.newInstance(info.type.getComponentType(), readVarInt());
+                    pending.add(value);
+                    break;
+                case COLLECTION:
+                case MAP:
+                    value = newContainer(info.type, comparator);
+                    pending.add(value);
+                    break;
+                case OBJECT:
+                    value = allocate(info.type);
+                    if (value instanceof Restorable) {
+                        restorables.add((Restorable) value);
+                    }
+                    pending.add(value);
+                    break;
+                case SERIALIZED:
+                    byte[] bytes = new byte[readVarInt()];
+                    in.readFully(bytes);
+                    value = deserialize(bytes);
+                    break;
+                default:
+                    throw new IOException("Corrupt checkpoint: class kind " + info.kind);
+            }
+            objects.add(value);
+            return value;
+        }
+
+        private ClassInfo readClass() throws IOException {
+            Class<?> type = classForName(readString());
+            byte kind = in.readByte();
+            ClassInfo info = new ClassInfo(type, classes.size(), kind);
+            if (kind == OBJECT) {
+                int count = readVarInt();
+                boolean matches = count == info.fields.length;
+                for (int i = 0; i < count; i++) {
+                    String owner = readString();
+                    String name = readString();
+                    char code = (char) in.readByte();
+                    matches &= matches && owner.equals(info.fields[i].getDeclaringClass().getName())
+                        && name.equals(info.fields[i].getName()) && code == typeCode(info.fields[i].getType());
+                }
+                if (!matches) {
+                    throw new IOException("Checkpoint was written by a different version of " + type.getName());
+                }
+            }
+            classes.add(info);
+            classesByType.put(type, info);
+            return info;
+        }
+
+        void drain() throws IOException, IllegalAccessException {
+            while (!pending.isEmpty()) {
+                Object value = pending.poll();
+                ClassInfo info = classesByType.get(value.getClass());
+                switch (info.kind) {
+                    case ARRAY:
+                        readArray(value);
+                        break;
+                    case COLLECTION:
+                    case MAP:
+                        Object[] elements = new Object[readVarInt() * (info.kind == MAP ? 2 : 1)];
+                        for (int i = 0; i < elements.length; i++) {
+                            elements[i] = readReference();
+                        }
+                        containers.add(value);
+                        contents.add(elements);
+                        break;
+                    default:
+                        readFields(value, info.fields);
+                }
+            }
+        }
+
+        /**
+         * Adds the collected contents, innermost containers first, so
+         * hashing and comparators only see complete objects
+         */
+        @SuppressWarnings("unchecked")
+        void fill() {
+            for (int i = containers.size() - 1; i >= 0; i--) {
+                Object container = containers.get(i);
+                Object[] elements = contents.get(i);
+                if (container instanceof Collection) {
+                    ((Collection<Object>) container).addAll(Arrays.asList(elements));
+                } else {
+                    Map<Object, Object> map = (Map<Object, Object>) container;
+                    for (int j = 0; j < elements.length; j += 2) {
+                        map.put(elements[j], elements[j + 1]);
+                    }
+                }
+            }
+        }
+
+        private void readFields(Object value, Field[] fields) throws IOException, IllegalAccessException {
+            for (Field field : fields) {
+                Class<?> type = field.getType();
+                if (!type.isPrimitive()) {
+                    field.set(value, readReference());
+                } else if (type == int.class) {
+                    field.setInt(value, in.readInt());
+                } else if (type == double.class) {
+                    field.setDouble(value, in.readDouble());
+                } else if (type == long.class) {
+                    field.setLong(value, in.readLong());
+                } else if (type == boolean.class) {
+                    field.setBoolean(value, in.readBoolean());
+                } else if (type == float.class) {
+                    field.setFloat(value, in.readFloat());
+                } else if (type == short.class) {
+                    field.setShort(value, in.readShort());
+                } else if (type == byte.class) {
+                    field.setByte(value, in.readByte());
+                } else {
+                    field.setChar(value, in.readChar());
+                }
+            }
+        }
+
+        private void readArray(Object array) throws IOException, IllegalAccessException {
+            Class<?> component = array.getClass().getComponentType();
+            if (component == double.class) {
+                double[] values = (double[]) array;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readDouble();
+                }
+            } else if (component == int.class) {
+                int[] values = (int[]) array;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readInt();
+                }
+            } else if (component == long.class) {
+                long[] values = (long[]) array;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readLong();
+                }
+            } else if (component == boolean.class) {
+                boolean[] values = (boolean[]) array;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readBoolean();
+                }
+            } else if (component == byte.class) {
+                in.readFully((byte[]) array);
+            } else if (component == float.class) {
+                float[] values = (float[]) array;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readFloat();
+                }
+            } else if (component == short.class) {
+                short[] values = (short[]) array;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readShort();
+                }
+            } else if (component == char.class) {
+                char[] values = (char[]) array;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readChar();
+                }
+            } else {
+                Object[] values = (Object[]) array;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readReference();
+                }
+            }
+        }
+
+        private Object readBoxed(Class<?> type) throws IOException {
+            // valueOf keeps the shared instances of small values
+            if (type == Integer.class) {
+                return Integer.valueOf(in.readInt());
+            } else if (type == Double.class) {
+                return in.readDouble();
+            } else if (type == Long.class) {
+                return Long.valueOf(in.readLong());
+            } else if (type == Boolean.class) {
+                return Boolean.valueOf(in.readBoolean());
+            } else if (type == Float.class) {
+                return in.readFloat();
+            } else if (type == Short.class) {
+                return Short.valueOf(in.readShort());
+            } else if (type == Byte.class) {
+                return Byte.valueOf(in.readByte());
+            }
+            return Character.valueOf(in.readChar());
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Object enumConstant(Class<?> type, String name) {
+            return Enum.valueOf((Class) type, name);
+        }
+
+        private static Object newContainer(Class<?> type, Object comparator) throws IOException {
+            try {
+                return comparator != null
+                    ? type.getConstructor(Comparator.class).newInstance(comparator)
+                    : type.getConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IOException("Cannot create " + type.getName(), e);
+            }
+        }
+
+        private static Object deserialize(byte[] bytes) throws IOException {
+            try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return objects.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+
+        String readString() throws IOException {
+            byte[] bytes = new byte[readVarInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    private static Class<?> classForName(String name) throws IOException {
+        try {
+            return Class.forName(name, false, SimulationCheckpoint.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Checkpoint class not found: " + name, e);
+        }
+    }
+
+    /**
+     * Creates an instance without running a constructor, as Java
+     * deserialization does
+     */
+    private static Object allocate(Class<?> type) throws IOException {
+        try {
+            if (allocateInstance == null) {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                allocateInstance = MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "allocateInstance", MethodType.methodType(Object.class, Class.class))
+                    .bindTo(theUnsafe.get(null));
+            }
+            return (Object) allocateInstance.invokeExact(type);
+        } catch (Throwable e) {
+            throw new IOException("Cannot allocate " + type.getName(), e);
+        }
+    }
+}
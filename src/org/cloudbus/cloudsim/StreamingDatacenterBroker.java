@@ -0,0 +1,229 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * Broker that hands every returned cloudlet to its completion listeners
+ * while the simulation is still running. VMs bound for an
+ * EnergyAwareDatacenter are sent as one batch so they can be packed together,
+ * and VM acks are matched by id rather than by scanning the VM list.
+ *
+ * With setRetainFinishedCloudlets(false) the broker keeps no reference to a
+ * cloudlet once it is submitted or has returned, so finished cloudlets only
+ * live on in what the listeners (a ResultsSink, CloudletStats) make of them
+ * and heap use stays flat however long the run.
+ *
+ * Listeners belong to one run: a SimulationCheckpoint does not save them,
+ * and a restored broker starts without any.
+ */
+public class StreamingDatacenterBroker extends DatacenterBroker implements SimulationCheckpoint.Restorable {
+    private transient List<CloudletCompletionListener> listeners = new ArrayList<>();
+    private final Map<Integer, Vm> vmsById = new HashMap<>();
+    private boolean retainFinishedCloudlets = true;
+    private double finishTime = -1;
+
+    public StreamingDatacenterBroker(String name) throws Exception {
+        super(name);
+    }
+
+    public void addCompletionListener(CloudletCompletionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param retain false to stop collecting cloudlets in the received and
+     *               submitted lists
+     */
+    public void setRetainFinishedCloudlets(boolean retain) {
+        this.retainFinishedCloudlets = retain;
+    }
+
+    public boolean isRetainFinishedCloudlets() {
+        return retainFinishedCloudlets;
+    }
+
+    /**
+     * Sends cloudlets round-robin to the created VMs at the current time,
+     * for work added to a simulation that is already running, such as the
+     * workload tail of a resumed checkpoint
+     */
+    public void submitCloudletsNow(List<? extends Cloudlet> cloudlets) {
+        List<Vm> vms = getVmsCreatedList();
+        if (vms.isEmpty()) {
+            throw new IllegalStateException(getName() + " has no VMs to submit cloudlets to");
+        }
+        int vmIndex = 0;
+        for (Cloudlet cloudlet : cloudlets) {
+            Vm vm = vms.get(vmIndex);
+            vmIndex = (vmIndex + 1) % vms.size();
+            cloudlet.setVmId(vm.getId());
+            sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+            cloudletsSubmitted++;
+            if (retainFinishedCloudlets) {
+                getCloudletSubmittedList().add(cloudlet);
+            }
+        }
+    }
+
+    @Override
+    public void restored() {
+        listeners = new ArrayList<>();
+    }
+
+    @Override
+    public void processEvent(SimEvent ev) {
+        if (Instrumentation.ENABLED) {
+            Instrumentation.eventProcessed();
+        }
+        if (ev.getTag() == EnergyAwareDatacenter.VM_CREATE_BATCH_ACK) {
+            @SuppressWarnings("unchecked")
+            List<int[]> acks = (List<int[]>) ev.getData();
+            for (int[] ack : acks) {
+                processVmCreateAck(ack);
+            }
+            return;
+        }
+        super.processEvent(ev);
+    }
+
+    @Override
+    public void submitVmList(List<? extends Vm> list) {
+        super.submitVmList(list);
+        for (Vm vm : list) {
+            vmsById.put(vm.getId(), vm);
+        }
+    }
+
+    @Override
+    protected void processVmCreate(SimEvent ev) {
+        processVmCreateAck((int[]) ev.getData());
+    }
+
+    /**
+     * DatacenterBroker.processVmCreate with the VM found through vmsById,
+     * and log lines only built when the log is enabled
+     */
+    protected void processVmCreateAck(int[] data) {
+        int datacenterId = data[0];
+        int vmId = data[1];
+        Vm vm = vmsById.get(vmId);
+
+        if (data[2] == CloudSimTags.TRUE) {
+            getVmsToDatacentersMap().put(vmId, datacenterId);
+            getVmsCreatedList().add(vm);
+            if (!Log.isDisabled()) {
+                Log.printLine(CloudSim.clock() + ": " + getName() + ": VM #" + vmId
+                    + " has been created in Datacenter #" + datacenterId + ", Host #" + vm.getHost().getId());
+            }
+        } else if (!Log.isDisabled()) {
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": Creation of VM #" + vmId
+                + " failed in Datacenter #" + datacenterId);
+        }
+
+        incrementVmsAcks();
+
+        if (getVmsCreatedList().size() == getVmList().size() - getVmsDestroyed()) {
+            // All the requested VMs have been created
+            submitCloudlets();
+        } else if (getVmsRequested() == getVmsAcks()) {
+            // All acks received but some VMs failed: try the next datacenter
+            for (int nextDatacenterId : getDatacenterIdsList()) {
+                if (!getDatacenterRequestedIdsList().contains(nextDatacenterId)) {
+                    createVmsInDatacenter(nextDatacenterId);
+                    return;
+                }
+            }
+            if (getVmsCreatedList().size() > 0) {
+                submitCloudlets();
+            } else {
+                Log.printLine(CloudSim.clock() + ": " + getName()
+                    + ": none of the required VMs could be created. Aborting");
+                finishExecution();
+            }
+        }
+    }
+
+    @Override
+    protected void createVmsInDatacenter(int datacenterId) {
+        if (!(CloudSim.getEntity(datacenterId) instanceof EnergyAwareDatacenter)) {
+            super.createVmsInDatacenter(datacenterId);
+            return;
+        }
+        List<Vm> batch = new ArrayList<>();
+        for (Vm vm : getVmList()) {
+            if (!getVmsToDatacentersMap().containsKey(vm.getId())) {
+                batch.add(vm);
+            }
+        }
+        Log.printLine(CloudSim.clock() + ": " + getName() + ": Trying to Create " + batch.size()
+            + " VMs in " + CloudSim.getEntityName(datacenterId));
+        sendNow(datacenterId, EnergyAwareDatacenter.VM_CREATE_BATCH, batch);
+
+        getDatacenterRequestedIdsList().add(datacenterId);
+        setVmsRequested(batch.size());
+        setVmsAcks(0);
+    }
+
+    @Override
+    protected void submitCloudlets() {
+        super.submitCloudlets();
+        if (!retainFinishedCloudlets) {
+            getCloudletSubmittedList().clear();
+        }
+    }
+
+    @Override
+    protected void processCloudletReturn(SimEvent ev) {
+        if (retainFinishedCloudlets) {
+            super.processCloudletReturn(ev);
+            notifyCompletion((Cloudlet) ev.getData());
+            return;
+        }
+
+        // DatacenterBroker.processCloudletReturn without the received list
+        Cloudlet cloudlet = (Cloudlet) ev.getData();
+        if (!Log.isDisabled()) {
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": Cloudlet " + cloudlet.getCloudletId() + " received");
+        }
+        cloudletsSubmitted--;
+        notifyCompletion(cloudlet);
+        if (getCloudletList().isEmpty() && cloudletsSubmitted == 0) {
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": All Cloudlets executed. Finishing...");
+            clearDatacenters();
+            finishExecution();
+        } else if (!getCloudletList().isEmpty() && cloudletsSubmitted == 0) {
+            // Bound cloudlets are waiting for their VMs
+            clearDatacenters();
+            createVmsInDatacenter(0);
+        }
+    }
+
+    @Override
+    protected void finishExecution() {
+        finishTime = CloudSim.clock();
+        super.finishExecution();
+    }
+
+    /**
+     * @return true once every cloudlet has returned, or the broker gave up
+     */
+    public boolean isFinished() {
+        return finishTime >= 0;
+    }
+
+    /**
+     * @return Time the broker finished, or -1 while it is running
+     */
+    public double getFinishTime() {
+        return finishTime;
+    }
+
+    protected void notifyCompletion(Cloudlet cloudlet) {
+        for (CloudletCompletionListener listener : listeners) {
+            listener.cloudletFinished(cloudlet);
+        }
+    }
+}
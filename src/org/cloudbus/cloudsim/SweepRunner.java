@@ -0,0 +1,185 @@
+package org.cloudbus.cloudsim;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs a grid of independent simulations in parallel and merges their
+ * metrics into one CSV.
+ *
+ * CloudSim keeps its whole state in static fields, so every run gets its own
+ * class loader over the application class path. Runs never share a CloudSim
+ * instance and can safely use all cores.
+ *
+ * Usage:
+ *   SweepRunner --policies energy-aware,simple --patterns CONSTANT,SINUSOIDAL
+ *               --seeds 1,2,3 --hosts 3,50 [--vms N] [--cloudlets N]
+ *               [--threads N] [--output results/sweep.csv]
+ */
+public class SweepRunner {
+    private static final String SCENARIO_CLASS = "org.cloudbus.cloudsim.SweepScenario";
+
+    private final URL[] classPath;
+    private final int threads;
+
+    public SweepRunner(int threads) throws IOException {
+        this.threads = threads;
+        this.classPath = currentClassPath();
+    }
+
+    public static void main(String[] args) {
+        try {
+            Map<String, String> options = parseOptions(args);
+            List<Map<String, String>> grid = buildGrid(options);
+            int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+            String output = options.getOrDefault("output", "results/sweep.csv");
+
+            System.out.printf("Running %d simulations on %d threads%n", grid.size(), threads);
+            long start = System.nanoTime();
+            List<Map<String, Object>> results = new SweepRunner(threads).run(grid);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            writeSummary(Paths.get(output), grid, results);
+            long failed = results.stream().filter(r -> r.containsKey("error")).count();
+            System.out.printf("Finished %d runs (%d failed) in %.2f s: %.2f runs/s%n",
+                results.size(), failed, seconds, results.size() / seconds);
+            System.out.println("Sweep summary saved to " + output);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Sweep failed!");
+        }
+    }
+
+    /**
+     * Runs every parameter set of the grid and returns their metrics in grid
+     * order. A failed run yields a single "error" entry instead of throwing.
+     */
+    public List<Map<String, Object>> run(List<Map<String, String>> grid) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Map<String, Object>>> futures = new ArrayList<>(grid.size());
+            for (Map<String, String> parameters : grid) {
+                futures.add(executor.submit(() -> runIsolated(parameters)));
+            }
+            List<Map<String, Object>> results = new ArrayList<>(grid.size());
+            for (Future<Map<String, Object>> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Map<String, Object> error = new LinkedHashMap<>();
+                    error.put("error", String.valueOf(e.getCause()));
+                    results.add(error);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> runIsolated(Map<String, String> parameters) throws Exception {
+        try (URLClassLoader loader = new URLClassLoader(classPath, ClassLoader.getPlatformClassLoader())) {
+            Class<?> scenario = Class.forName(SCENARIO_CLASS, true, loader);
+            Method run = scenario.getMethod("run", Map.class);
+            ClassLoader previous = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(loader);
+            try {
+                return (Map<String, Object>) run.invoke(null, parameters);
+            } finally {
+                Thread.currentThread().setContextClassLoader(previous);
+            }
+        }
+    }
+
+    private static URL[] currentClassPath() throws IOException {
+        String[] entries = System.getProperty("java.class.path").split(java.io.File.pathSeparator);
+        URL[] urls = new URL[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            urls[i] = Paths.get(entries[i]).toUri().toURL();
+        }
+        return urls;
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    /**
+     * Expands comma-separated option values into the cartesian product of
+     * parameter sets
+     */
+    static List<Map<String, String>> buildGrid(Map<String, String> options) {
+        Map<String, String[]> axes = new LinkedHashMap<>();
+        axes.put("policy", options.getOrDefault("policies", SweepScenario.POLICY_ENERGY_AWARE).split(","));
+        axes.put("pattern", options.getOrDefault("patterns", "CONSTANT").split(","));
+        axes.put("seed", options.getOrDefault("seeds", "1").split(","));
+        axes.put("hosts", options.getOrDefault("hosts", "3").split(","));
+        if (options.containsKey("vms")) {
+            axes.put("vms", options.get("vms").split(","));
+        }
+        if (options.containsKey("cloudlets")) {
+            axes.put("cloudlets", options.get("cloudlets").split(","));
+        }
+
+        List<Map<String, String>> grid = new ArrayList<>();
+        grid.add(new LinkedHashMap<>());
+        for (Map.Entry<String, String[]> axis : axes.entrySet()) {
+            List<Map<String, String>> expanded = new ArrayList<>(grid.size() * axis.getValue().length);
+            for (Map<String, String> partial : grid) {
+                for (String value : axis.getValue()) {
+                    Map<String, String> parameters = new LinkedHashMap<>(partial);
+                    parameters.put(axis.getKey(), value.trim());
+                    expanded.add(parameters);
+                }
+            }
+            grid = expanded;
+        }
+        return grid;
+    }
+
+    static void writeSummary(Path output, List<Map<String, String>> grid,
+                             List<Map<String, Object>> results) throws IOException {
+        Set<String> parameterColumns = new LinkedHashSet<>();
+        Set<String> metricColumns = new LinkedHashSet<>();
+        grid.forEach(parameters -> parameterColumns.addAll(parameters.keySet()));
+        results.forEach(metrics -> metricColumns.addAll(metrics.keySet()));
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            List<String> header = new ArrayList<>(parameterColumns);
+            header.addAll(metricColumns);
+            writer.write(String.join(",", header));
+            writer.newLine();
+            for (int i = 0; i < grid.size(); i++) {
+                List<String> row = new ArrayList<>(header.size());
+                for (String column : parameterColumns) {
+                    row.add(grid.get(i).getOrDefault(column, ""));
+                }
+                for (String column : metricColumns) {
+                    Object value = results.get(i).get(column);
+                    row.add(value == null ? "" : value.toString().replace(',', ';'));
+                }
+                writer.write(String.join(",", row));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * One parameterized, silent run of the Main scenario.
+ *
+ * The run is built by ScenarioBuilder from the default Scenario, so sweeps
+ * use the hosts, VMs and cloudlets Main runs without --scenario; the swept
+ * parameters only override the counts, the cloudlets' utilization pattern
+ * and the seed.
+ * SweepRunner loads this class in a fresh class loader per run, so CloudSim's
+ * static state and Main's static lists are private to the run. Parameters and
+ * results only use java.* types so they can cross class loader boundaries.
+ */
+public class SweepScenario {
+    public static final String POLICY_ENERGY_AWARE = "energy-aware";
+    public static final String POLICY_SIMPLE = "simple";
+
+    /**
+     * Runs one simulation.
+     * @param parameters policy, pattern, seed, hosts, vms, cloudlets,
+     *                   queue (future event queue, stock or heap) and
+     *                   energy (energy integration, sampled or exact)
+     * @return Run metrics, in insertion order
+     */
+    public static Map<String, Object> run(Map<String, String> parameters) throws Exception {
+        String policyName = parameters.getOrDefault("policy", POLICY_ENERGY_AWARE);
+        ScenarioBuilder builder = new ScenarioBuilder(new Scenario(overrides(parameters)));
+        // Runs share the heap, so a per-run measurement would be meaningless
+        builder.setMeasureHeap(false);
+
+        long startNanos = System.nanoTime();
+        Log.setDisabled(true);
+        CloudSim.init(1, Calendar.getInstance(), false);
+        CloudSimInternals.installFutureQueue(parameters.getOrDefault("queue", "heap"));
+
+        List<Host> hosts = builder.createHosts();
+        VmAllocationPolicy allocationPolicy = createPolicy(policyName, hosts);
+        builder.createDatacenter(hosts, allocationPolicy);
+        StreamingDatacenterBroker broker = new StreamingDatacenterBroker("Broker");
+        if (allocationPolicy instanceof VmAllocationPolicyEnergyAware) {
+            ((VmAllocationPolicyEnergyAware) allocationPolicy).setEnergyIntegration(
+                VmAllocationPolicyEnergyAware.EnergyIntegration.valueOf(
+                    parameters.getOrDefault("energy", "sampled").toUpperCase(Locale.ROOT)));
+            new UtilizationSampler("UtilizationSampler", (VmAllocationPolicyEnergyAware) allocationPolicy,
+                Constants.SCHEDULING_INTERVAL, broker);
+        }
+
+        broker.submitVmList(builder.createVms(broker.getId()));
+        broker.submitCloudletList(builder.createCloudlets(broker.getId()));
+
+        double simulatedTime = CloudSim.startSimulation();
+        List<Cloudlet> finished = broker.getCloudletReceivedList();
+
+        Map<String, Object> metrics;
+        if (allocationPolicy instanceof VmAllocationPolicyEnergyAware) {
+            metrics = MetricsCollector.exportAllMetrics(finished, (VmAllocationPolicyEnergyAware) allocationPolicy);
+        } else {
+            metrics = new LinkedHashMap<>();
+            metrics.put("total_cloudlets", finished.size());
+            metrics.put("successful_cloudlets", finished.stream()
+                .filter(c -> c.getCloudletStatus() == Cloudlet.SUCCESS)
+                .count());
+        }
+        metrics.put("simulated_time", simulatedTime);
+        metrics.put("wall_ms", (System.nanoTime() - startNanos) / 1e6);
+        return metrics;
+    }
+
+    /**
+     * Scenario properties for the swept parameters. vms defaults to one per
+     * host and cloudlets to two per VM, as in the default scenario.
+     */
+    private static Properties overrides(Map<String, String> parameters) {
+        int hostCount = Integer.parseInt(parameters.getOrDefault("hosts", String.valueOf(Constants.NO_OF_HOSTS)));
+        int vmCount = Integer.parseInt(parameters.getOrDefault("vms", String.valueOf(hostCount)));
+        int cloudletCount = Integer.parseInt(parameters.getOrDefault("cloudlets", String.valueOf(vmCount * 2)));
+        Properties properties = new Properties();
+        properties.setProperty("seed", parameters.getOrDefault("seed", "1"));
+        properties.setProperty("host.default.count", String.valueOf(hostCount));
+        properties.setProperty("vm.default.count", String.valueOf(vmCount));
+        properties.setProperty("cloudlet.default.count", String.valueOf(cloudletCount));
+        properties.setProperty("cloudlet.default.utilization", parameters.getOrDefault("pattern", "CONSTANT"));
+        return properties;
+    }
+
+    private static VmAllocationPolicy createPolicy(String name, List<Host> hosts) {
+        switch (name) {
+            case POLICY_ENERGY_AWARE:
+                return new VmAllocationPolicyEnergyAware(hosts);
+            case POLICY_SIMPLE:
+                return new VmAllocationPolicySimple(hosts);
+            default:
+                throw new IllegalArgumentException("Unknown allocation policy: " + name);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.cloudbus.cloudsim;
+
+/**
+ * Column layout of a delimited task table, e.g. a Google or Alibaba
+ * cluster trace. Column indexes are zero-based; -1 marks an absent column.
+ */
+public class TaskTableFormat {
+    /**
+     * Preprocessed table with a header line: arrival_s,duration_s,cpus
+     */
+    public static final TaskTableFormat SIMPLE = new TaskTableFormat((byte) ',', 1, 0, 1, -1, 2, 1.0, 1.0);
+
+    /**
+     * Alibaba 2018 batch_task.csv: start_time (5), end_time (6) and
+     * plan_cpu (7) in hundredths of a core, times in seconds
+     */
+    public static final TaskTableFormat ALIBABA_BATCH_TASK = new TaskTableFormat((byte) ',', 0, 5, -1, 6, 7, 100.0, 1.0);
+
+    /**
+     * Google 2011 task table preprocessed to submit_us,end_us,cpu_request
+     * with cpu_request normalized to one machine
+     */
+    public static final TaskTableFormat GOOGLE_TASKS = new TaskTableFormat((byte) ',', 0, 0, -1, 1, 2, 0.25, 1e6);
+
+    private final byte delimiter;
+    private final int headerLines;
+    private final int arrivalColumn;
+    private final int durationColumn;
+    private final int endColumn;
+    private final int cpuColumn;
+    private final double cpuPerPe;
+    private final double timeUnitsPerSecond;
+
+    /**
+     * @param delimiter Field separator
+     * @param headerLines Lines to skip at the start of the file
+     * @param arrivalColumn Submission time column
+     * @param durationColumn Runtime column, or -1 if endColumn is used
+     * @param endColumn End time column, or -1 if durationColumn is used
+     * @param cpuColumn Requested CPU column, or -1 for one PE per task
+     * @param cpuPerPe CPU units that make up one PE
+     * @param timeUnitsPerSecond Trace time units per simulated second
+     */
+    public TaskTableFormat(byte delimiter, int headerLines, int arrivalColumn, int durationColumn,
+                           int endColumn, int cpuColumn, double cpuPerPe, double timeUnitsPerSecond) {
+        if ((durationColumn < 0) == (endColumn < 0)) {
+            throw new IllegalArgumentException("Exactly one of durationColumn and endColumn must be set");
+        }
+        this.delimiter = delimiter;
+        this.headerLines = headerLines;
+        this.arrivalColumn = arrivalColumn;
+        this.durationColumn = durationColumn;
+        this.endColumn = endColumn;
+        this.cpuColumn = cpuColumn;
+        this.cpuPerPe = cpuPerPe;
+        this.timeUnitsPerSecond = timeUnitsPerSecond;
+    }
+
+    public static TaskTableFormat forName(String name) {
+        switch (name.toLowerCase()) {
+            case "simple":
+                return SIMPLE;
+            case "alibaba":
+                return ALIBABA_BATCH_TASK;
+            case "google":
+                return GOOGLE_TASKS;
+            default:
+                throw new IllegalArgumentException("Unknown task table format: " + name);
+        }
+    }
+
+    public byte getDelimiter() {
+        return delimiter;
+    }
+
+    public int getHeaderLines() {
+        return headerLines;
+    }
+
+    public int getArrivalColumn() {
+        return arrivalColumn;
+    }
+
+    public int getDurationColumn() {
+        return durationColumn;
+    }
+
+    public int getEndColumn() {
+        return endColumn;
+    }
+
+    public int getCpuColumn() {
+        return cpuColumn;
+    }
+
+    public double getCpuPerPe() {
+        return cpuPerPe;
+    }
+
+    public double getTimeUnitsPerSecond() {
+        return timeUnitsPerSecond;
+    }
+
+    /**
+     * @return Number of leading columns that must be parsed per line
+     */
+    public int getColumnCount() {
+        return Math.max(Math.max(arrivalColumn, durationColumn), Math.max(endColumn, cpuColumn)) + 1;
+    }
+}
@@ -0,0 +1,98 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.cloudbus.cloudsim.utils.MappedTextReader;
+
+/**
+ * Replays a task table (one task per line) from a memory-mapped file.
+ *
+ * Arrival times are taken relative to the first task, durations become
+ * cloudlet lengths at a reference MIPS rating. Lines with a missing or
+ * non-positive duration are skipped. The table is expected to be sorted by
+ * arrival time; late rows are released as soon as they are read.
+ */
+public class TaskTableTrace implements CloudletTrace {
+    private final MappedTextReader reader;
+    private final TaskTableFormat format;
+    private final double referenceMips;
+    private final int maxPes;
+    private final double[] fields;
+    private final UtilizationModel utilizationModel = new UtilizationModelFull();
+
+    private double timeOrigin = Double.NaN;
+    private int nextCloudletId = 0;
+    private boolean pending = false;
+    private double pendingArrival;
+    private long pendingLength;
+    private int pendingPes;
+
+    /**
+     * @param referenceMips MIPS used to turn task durations into cloudlet lengths
+     * @param maxPes Upper bound on PEs per cloudlet, usually the VM PE count
+     */
+    public TaskTableTrace(Path path, TaskTableFormat format, double referenceMips, int maxPes) throws IOException {
+        this.reader = new MappedTextReader(path);
+        this.format = format;
+        this.referenceMips = referenceMips;
+        this.maxPes = maxPes;
+        this.fields = new double[format.getColumnCount()];
+        for (int i = 0; i < format.getHeaderLines(); i++) {
+            reader.skipLine();
+        }
+    }
+
+    @Override
+    public double nextArrivalTime() throws IOException {
+        return readAhead() ? pendingArrival : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public Cloudlet nextCloudlet(int userId) throws IOException {
+        if (!readAhead()) {
+            return null;
+        }
+        pending = false;
+        Cloudlet cloudlet = new Cloudlet(nextCloudletId++, pendingLength, pendingPes,
+            Constants.CLOUDLET_FILE_SIZE, Constants.CLOUDLET_OUTPUT_SIZE,
+            utilizationModel, utilizationModel, utilizationModel);
+        cloudlet.setUserId(userId);
+        return cloudlet;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private boolean readAhead() throws IOException {
+        while (!pending) {
+            int count = reader.readLine(format.getDelimiter(), fields);
+            if (count < 0) {
+                return false;
+            }
+            if (count < fields.length) {
+                continue;
+            }
+            double arrival = fields[format.getArrivalColumn()];
+            double duration = format.getDurationColumn() >= 0
+                ? fields[format.getDurationColumn()]
+                : fields[format.getEndColumn()] - arrival;
+            if (Double.isNaN(arrival) || !(duration > 0)) {
+                continue;
+            }
+            if (Double.isNaN(timeOrigin)) {
+                timeOrigin = arrival;
+            }
+
+            double cpu = format.getCpuColumn() >= 0 ? fields[format.getCpuColumn()] : Double.NaN;
+            int pes = Double.isNaN(cpu) ? 1 : (int) Math.ceil(cpu / format.getCpuPerPe());
+
+            pendingArrival = Math.max(0.0, (arrival - timeOrigin) / format.getTimeUnitsPerSecond());
+            pendingLength = Math.max(1L, (long) (duration / format.getTimeUnitsPerSecond() * referenceMips));
+            pendingPes = Math.max(1, Math.min(maxPes, pes));
+            pending = true;
+        }
+        return true;
+    }
+}
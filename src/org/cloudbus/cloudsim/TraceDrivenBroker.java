@@ -0,0 +1,114 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * Broker that pulls cloudlets from a trace as their arrival time comes up
+ * instead of holding the whole workload in its cloudlet list.
+ *
+ * Once the VMs are created, every cloudlet that has arrived is sent
+ * round-robin to the created VMs and a single self-event is scheduled for
+ * the next arrival. The broker finishes when the trace is exhausted and all
+ * submitted cloudlets have returned.
+ */
+public class TraceDrivenBroker extends StreamingDatacenterBroker {
+    private static final int RELEASE_CLOUDLETS = 91002;
+
+    private final CloudletTrace trace;
+    private int vmIndex = 0;
+    private boolean releaseScheduled = false;
+    private long cloudletsReleased = 0;
+
+    public TraceDrivenBroker(String name, CloudletTrace trace) throws Exception {
+        super(name);
+        this.trace = trace;
+    }
+
+    @Override
+    protected void submitCloudlets() {
+        releaseDueCloudlets();
+    }
+
+    @Override
+    protected void processOtherEvent(SimEvent ev) {
+        if (ev != null && ev.getTag() == RELEASE_CLOUDLETS) {
+            releaseScheduled = false;
+            releaseDueCloudlets();
+            return;
+        }
+        super.processOtherEvent(ev);
+    }
+
+    @Override
+    protected void processCloudletReturn(SimEvent ev) {
+        Cloudlet cloudlet = (Cloudlet) ev.getData();
+        if (isRetainFinishedCloudlets()) {
+            getCloudletReceivedList().add(cloudlet);
+        }
+        cloudletsSubmitted--;
+        notifyCompletion(cloudlet);
+        if (cloudletsSubmitted == 0 && !releaseScheduled && nextArrivalTime() == Double.POSITIVE_INFINITY) {
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": Trace replayed. Finishing...");
+            clearDatacenters();
+            finishExecution();
+        }
+    }
+
+    @Override
+    public void shutdownEntity() {
+        try {
+            trace.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        super.shutdownEntity();
+    }
+
+    public long getCloudletsReleased() {
+        return cloudletsReleased;
+    }
+
+    private void releaseDueCloudlets() {
+        List<Vm> vms = getVmsCreatedList();
+        if (vms.isEmpty()) {
+            return;
+        }
+        double now = CloudSim.clock();
+        double next = nextArrivalTime();
+        while (next <= now) {
+            Cloudlet cloudlet = nextCloudlet();
+            Vm vm = vms.get(vmIndex);
+            vmIndex = (vmIndex + 1) % vms.size();
+            cloudlet.setVmId(vm.getId());
+            sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+            cloudletsSubmitted++;
+            cloudletsReleased++;
+            next = nextArrivalTime();
+        }
+        if (next != Double.POSITIVE_INFINITY) {
+            schedule(getId(), next - now, RELEASE_CLOUDLETS);
+            releaseScheduled = true;
+        }
+    }
+
+    private double nextArrivalTime() {
+        try {
+            return trace.nextArrivalTime();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Cloudlet nextCloudlet() {
+        try {
+            return trace.nextCloudlet(getId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
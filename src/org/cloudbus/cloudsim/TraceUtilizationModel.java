@@ -0,0 +1,40 @@
+package org.cloudbus.cloudsim;
+
+/**
+ * Utilization model backed by samples taken at a fixed interval, linearly
+ * interpolated in between and held at the last sample afterwards.
+ */
+public class TraceUtilizationModel implements UtilizationModel {
+    private final double[] samples;
+    private final double interval;
+
+    public TraceUtilizationModel(double[] samples, double interval) {
+        if (samples.length == 0) {
+            throw new IllegalArgumentException("A utilization trace needs at least one sample");
+        }
+        this.samples = samples;
+        this.interval = interval;
+    }
+
+    @Override
+    public double getUtilization(double time) {
+        double position = time / interval;
+        if (position <= 0) {
+            return samples[0];
+        }
+        int index = (int) position;
+        if (index >= samples.length - 1) {
+            return samples[samples.length - 1];
+        }
+        double fraction = position - index;
+        return samples[index] + (samples[index + 1] - samples[index]) * fraction;
+    }
+
+    public int getSampleCount() {
+        return samples.length;
+    }
+
+    public double getInterval() {
+        return interval;
+    }
+}
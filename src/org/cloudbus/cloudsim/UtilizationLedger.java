@@ -0,0 +1,285 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.utils.LongIntHashMap;
+
+/**
+ * Per-host CPU utilization kept in primitive arrays indexed by host position.
+ *
+ * Each VM's last seen used MIPS (see usedMips) is stored in a slot, so VM
+ * create, destroy and MIPS-change events adjust the host total by a delta
+ * and the current utilization of a host is a single array read. A VM
+ * migrating in counts only on the host it is still running on.
+ *
+ * A slot is a snapshot taken at the event that last read it, not the VM's
+ * utilization now: with a time-varying utilization model the VM's used MIPS
+ * keeps moving between events. Each slot keeps the time it was read at, and
+ * verify recomputes every VM at that time.
+ */
+public class UtilizationLedger {
+    private static final double VERIFY_TOLERANCE = 1e-9;
+
+    private final HostPositions positions;
+    private final double[] totalMips;
+    private final double[] usedMips;
+    private final int[] vmCount;
+
+    private final LongIntHashMap vmSlots;
+    private double[] vmMips;
+    private double[] vmReadTime;
+    private int[] vmHost;
+    private int[] freeSlots;
+    private int freeSlotCount = 0;
+    private int nextSlot = 0;
+
+    public UtilizationLedger(List<? extends Host> hosts, HostPositions positions) {
+        this.positions = positions;
+        this.totalMips = new double[hosts.size()];
+        this.usedMips = new double[hosts.size()];
+        this.vmCount = new int[hosts.size()];
+
+        int expectedVms = Math.max(16, hosts.size() * 4);
+        vmSlots = new LongIntHashMap(expectedVms, -1);
+        vmMips = new double[expectedVms];
+        vmReadTime = new double[expectedVms];
+        vmHost = new int[expectedVms];
+        freeSlots = new int[expectedVms];
+
+        for (int i = 0; i < hosts.size(); i++) {
+            Host host = hosts.get(i);
+            totalMips[i] = host.getTotalMips();
+            for (Vm vm : host.getVmList()) {
+                vmCreated(vm, host);
+            }
+        }
+    }
+
+    public void vmCreated(Vm vm, Host host) {
+        int position = positions.positionOf(host);
+        if (position < 0) {
+            return;
+        }
+        long key = LongIntHashMap.key(vm.getUserId(), vm.getId());
+        if (vmSlots.containsKey(key)) {
+            vmDestroyed(vm);
+        }
+        int slot = allocateSlot();
+        vmSlots.put(key, slot);
+        read(vm, slot, CloudSim.clock());
+        vmHost[slot] = position;
+        usedMips[position] += vmMips[slot];
+        vmCount[position]++;
+    }
+
+    public void vmDestroyed(Vm vm) {
+        int slot = vmSlots.remove(LongIntHashMap.key(vm.getUserId(), vm.getId()));
+        if (slot < 0) {
+            return;
+        }
+        int position = vmHost[slot];
+        vmCount[position]--;
+        usedMips[position] = vmCount[position] == 0 ? 0.0 : usedMips[position] - vmMips[slot];
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    /**
+     * Re-reads the used MIPS of a VM now and applies the difference to its
+     * host.
+     */
+    public void vmMipsChanged(Vm vm) {
+        int slot = vmSlots.get(LongIntHashMap.key(vm.getUserId(), vm.getId()));
+        if (slot < 0) {
+            return;
+        }
+        double before = vmMips[slot];
+        read(vm, slot, CloudSim.clock());
+        usedMips[vmHost[slot]] += vmMips[slot] - before;
+    }
+
+    /**
+     * Re-reads every VM on a host now and rebuilds its total from scratch,
+     * which also discards any rounding drift accumulated from deltas.
+     */
+    public void refreshHost(Host host) {
+        refreshHost(host, CloudSim.clock());
+    }
+
+    /**
+     * Same as refreshHost(host), with the cloudlets' utilization taken at
+     * the given time. Touches only the host's own entries, so hosts can be
+     * refreshed in parallel.
+     */
+    public void refreshHost(Host host, double time) {
+        int position = positions.positionOf(host);
+        if (position < 0) {
+            return;
+        }
+        double used = 0;
+        for (Vm vm : host.getVmList()) {
+            if (vm.getHost() != host) {
+                continue;
+            }
+            int slot = vmSlots.get(LongIntHashMap.key(vm.getUserId(), vm.getId()));
+            if (slot >= 0) {
+                read(vm, slot, time);
+                used += vmMips[slot];
+            } else {
+                used += usedMips(vm, time);
+            }
+        }
+        usedMips[position] = used;
+    }
+
+    private void read(Vm vm, int slot, double time) {
+        vmMips[slot] = usedMips(vm, time);
+        vmReadTime[slot] = time;
+    }
+
+    public double getUtilization(Host host) {
+        int position = positions.positionOf(host);
+        return position >= 0 ? getUtilization(position) : 0.0;
+    }
+
+    /**
+     * Reads the utilization of the host at a position in the host list
+     */
+    public double getUtilization(int position) {
+        if (totalMips[position] <= 0) {
+            return 0;
+        }
+        return Math.min(usedMips[position] / totalMips[position], 1.0);
+    }
+
+    /**
+     * @return Position of the host the VM was last created on, or -1 if the
+     *         VM is not placed
+     */
+    public int hostPositionOf(int vmId, int userId) {
+        int slot = vmSlots.get(LongIntHashMap.key(userId, vmId));
+        return slot >= 0 ? vmHost[slot] : -1;
+    }
+
+    public double getUsedMips(Host host) {
+        int position = positions.positionOf(host);
+        return position >= 0 ? usedMips[position] : 0.0;
+    }
+
+    /**
+     * Compares the ledger against a full recomputation over the host's VMs
+     * @throws IllegalStateException if they disagree
+     */
+    public void verify(Host host) {
+        double expected = recomputeUtilization(host);
+        double actual = getUtilization(host);
+        if (Math.abs(expected - actual) > VERIFY_TOLERANCE) {
+            throw new IllegalStateException(String.format(
+                "Utilization ledger out of sync for Host %d: ledger %.12f, recomputed %.12f",
+                host.getId(), actual, expected));
+        }
+    }
+
+    /**
+     * Sums the host's VMs from scratch, each at the time its slot was last
+     * read, so a VM whose utilization moved since then does not count as a
+     * missed update
+     */
+    public double recomputeUtilization(Host host) {
+        double used = 0;
+        for (Vm vm : host.getVmList()) {
+            if (vm.getHost() != host) {
+                continue;
+            }
+            int slot = vmSlots.get(LongIntHashMap.key(vm.getUserId(), vm.getId()));
+            used += usedMips(vm, slot >= 0 ? vmReadTime[slot] : CloudSim.clock());
+        }
+        double utilization = host.getTotalMips() > 0 ? used / host.getTotalMips() : 0;
+        return Math.min(utilization, 1.0);
+    }
+
+    /**
+     * MIPS a VM counts for on its host. While it is being instantiated that
+     * is its full request, so placements of the same batch see it; once it
+     * runs it is what its cloudlets use at the current time, capped at the
+     * MIPS the host allocated to it. A running VM on CloudletSchedulerTimeShared
+     * requests no MIPS at all, so the request cannot be used then.
+     */
+    public static double usedMips(Vm vm) {
+        return usedMips(vm, CloudSim.clock());
+    }
+
+    /**
+     * Same as usedMips(vm), with the cloudlets' utilization taken at the
+     * given time
+     */
+    public static double usedMips(Vm vm, double time) {
+        Host host = vm.getHost();
+        if (vm.isBeingInstantiated() || host == null) {
+            return vm.getCurrentRequestedTotalMips();
+        }
+        return Math.min(vm.getTotalUtilizationOfCpuMips(time), host.getTotalAllocatedMipsForVm(vm));
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (nextSlot == vmMips.length) {
+            int capacity = vmMips.length << 1;
+            vmMips = Arrays.copyOf(vmMips, capacity);
+            vmReadTime = Arrays.copyOf(vmReadTime, capacity);
+            vmHost = Arrays.copyOf(vmHost, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+        }
+        return nextSlot++;
+    }
+
+    /**
+     * A host's VMs as usedMips reads them, for evaluating its utilization at
+     * many times while neither the VMs nor their cloudlets change: the MIPS
+     * the host allocated to each VM is read once, and only the cloudlets'
+     * utilization models are read at each time. Reads no ledger state, so
+     * hosts can be evaluated in parallel.
+     */
+    public static final class HostDemand {
+        private final Vm[] vms;
+        // The cap of each running VM, or the fixed MIPS of one being instantiated
+        private final double[] mips;
+        private final int count;
+        private final double totalMips;
+
+        public HostDemand(Host host) {
+            List<Vm> hostVms = host.getVmList();
+            vms = new Vm[hostVms.size()];
+            mips = new double[hostVms.size()];
+            int resident = 0;
+            for (Vm vm : hostVms) {
+                if (vm.getHost() != host) {
+                    continue;
+                }
+                if (vm.isBeingInstantiated()) {
+                    mips[resident++] = vm.getCurrentRequestedTotalMips();
+                } else {
+                    vms[resident] = vm;
+                    mips[resident++] = host.getTotalAllocatedMipsForVm(vm);
+                }
+            }
+            count = resident;
+            totalMips = host.getTotalMips();
+        }
+
+        /**
+         * @return The host's utilization with every cloudlet read at the
+         *         given time, as the ledger would have it if every slot was
+         *         read then
+         */
+        public double utilizationAt(double time) {
+            double used = 0;
+            for (int i = 0; i < count; i++) {
+                used += vms[i] == null ? mips[i] : Math.min(vms[i].getTotalUtilizationOfCpuMips(time), mips[i]);
+            }
+            double utilization = totalMips > 0 ? used / totalMips : 0;
+            return Math.min(utilization, 1.0);
+        }
+    }
+}
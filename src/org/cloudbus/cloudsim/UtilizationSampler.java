@@ -0,0 +1,96 @@
+package org.cloudbus.cloudsim;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * Simulation entity that records utilization and energy of every host at a
+ * fixed simulated interval.
+ *
+ * Each tick is one pass over the hosts that re-reads their VMs' used MIPS
+ * at the tick time, so a time-varying utilization model is seen at every
+ * tick, not only at datacenter events, and a finer interval follows it more
+ * closely. Sampling stops once the broker has finished, or once no other
+ * events are pending. Datacenter events left over from the workload can run
+ * long after its last cloudlet returned, so the last sample is taken at the
+ * broker's finish time rather than at the tick's own time, and hosts are not
+ * charged for the time after it. Without a broker, with EXACT energy
+ * integration the last sample is taken at the last host change instead.
+ * Either way a long interval does not charge idle power past the end of the
+ * workload.
+ */
+public class UtilizationSampler extends SimEntity {
+    private static final int SAMPLE_HOSTS = 91001;
+
+    private final VmAllocationPolicyEnergyAware policy;
+    private final double interval;
+    private final StreamingDatacenterBroker broker;
+    private long sampleCount = 0;
+    private double lastSampleTime = 0.0;
+
+    public UtilizationSampler(String name, VmAllocationPolicyEnergyAware policy, double interval) {
+        this(name, policy, interval, null);
+    }
+
+    /**
+     * @param broker Broker whose finish ends sampling, or null to sample
+     *               while other events are pending
+     */
+    public UtilizationSampler(String name, VmAllocationPolicyEnergyAware policy, double interval,
+                              StreamingDatacenterBroker broker) {
+        super(name);
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive: " + interval);
+        }
+        this.policy = policy;
+        this.interval = interval;
+        this.broker = broker;
+    }
+
+    public UtilizationSampler(String name, VmAllocationPolicyEnergyAware policy) {
+        this(name, policy, Constants.SCHEDULING_INTERVAL);
+    }
+
+    @Override
+    public void startEntity() {
+        schedule(getId(), interval, SAMPLE_HOSTS);
+    }
+
+    @Override
+    public void processEvent(SimEvent ev) {
+        if (Instrumentation.ENABLED) {
+            Instrumentation.eventProcessed();
+        }
+        if (ev.getTag() != SAMPLE_HOSTS) {
+            return;
+        }
+        boolean finished = broker != null && broker.isFinished();
+        boolean pending = !finished && CloudSimInternals.getFutureEventCount() > 0;
+        double time = CloudSim.clock();
+        if (finished) {
+            time = Math.max(lastSampleTime, Math.min(time, broker.getFinishTime()));
+        } else if (!pending && policy.getEnergyIntegration() == VmAllocationPolicyEnergyAware.EnergyIntegration.EXACT) {
+            time = Math.max(lastSampleTime, Math.min(time, policy.getLastHostChangeTime()));
+        }
+        policy.sampleHosts(time);
+        lastSampleTime = time;
+        sampleCount++;
+        if (pending) {
+            schedule(getId(), interval, SAMPLE_HOSTS);
+        }
+    }
+
+    @Override
+    public void shutdownEntity() {
+        Log.printLine(getName() + " recorded " + sampleCount + " host samples");
+    }
+
+    public double getInterval() {
+        return interval;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+}
@@ -0,0 +1,113 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+
+/**
+ * Constant-memory utilization statistics for a single host.
+ *
+ * Keeps a running mean and variance (Welford), min and peak, plus an optional
+ * fixed-size ring buffer of the most recent samples. Every getter is O(1)
+ * except getRecentSamples, and recording a sample never allocates.
+ */
+public class UtilizationStats {
+    private final double[] window;
+    private int windowStart = 0;
+    private int windowSize = 0;
+
+    private long count = 0;
+    private double mean = 0.0;
+    private double m2 = 0.0;
+    private double min = 0.0;
+    private double peak = 0.0;
+    private double last = 0.0;
+
+    /**
+     * @param windowCapacity Number of recent samples to keep, 0 to keep none
+     */
+    public UtilizationStats(int windowCapacity) {
+        this.window = new double[Math.max(0, windowCapacity)];
+    }
+
+    public void record(double utilization) {
+        count++;
+        double delta = utilization - mean;
+        mean += delta / count;
+        m2 += delta * (utilization - mean);
+
+        if (count == 1) {
+            min = utilization;
+            peak = utilization;
+        } else {
+            min = Math.min(min, utilization);
+            peak = Math.max(peak, utilization);
+        }
+        last = utilization;
+
+        if (window.length > 0) {
+            int index = windowStart + windowSize;
+            if (index >= window.length) {
+                index -= window.length;
+            }
+            window[index] = utilization;
+            if (windowSize < window.length) {
+                windowSize++;
+            } else {
+                windowStart = windowStart + 1 == window.length ? 0 : windowStart + 1;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0.0;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getPeak() {
+        return peak;
+    }
+
+    public double getLast() {
+        return last;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Returns the i-th most recent sample kept in the window, 0 being the oldest
+     */
+    public double getRecentSample(int i) {
+        if (i < 0 || i >= windowSize) {
+            throw new IndexOutOfBoundsException("Sample " + i + " of " + windowSize);
+        }
+        int index = windowStart + i;
+        return window[index >= window.length ? index - window.length : index];
+    }
+
+    /**
+     * Copies the recent samples, oldest first
+     */
+    public List<Double> getRecentSamples() {
+        List<Double> samples = new ArrayList<>(windowSize);
+        for (int i = 0; i < windowSize; i++) {
+            samples.add(getRecentSample(i));
+        }
+        return samples;
+    }
+}
@@ -1,84 +1,516 @@
 package org.cloudbus.cloudsim;
 
 import java.util.*;
+import java.util.function.ToDoubleFunction;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.power.models.PowerModel;
+import org.cloudbus.cloudsim.utils.TimeSeriesWriter;
 
 public class VmAllocationPolicyEnergyAware extends VmAllocationPolicy {
-    private final Map<Integer, Double> hostEnergyConsumption = new HashMap<>();
-    private final Map<Integer, List<Double>> hostUtilizationHistory = new HashMap<>();
-    private final Map<Integer, Double> lastUpdateTime = new HashMap<>();
-    private final Map<Integer, Integer> maxVmsPerHost = new HashMap<>();
-    private final Map<Integer, Boolean> hostEverUtilized = new HashMap<>();
+    /**
+     * How host energy is accounted between samples. SAMPLED charges the
+     * utilization read at a sample, placement or removal for the whole time
+     * since the previous one. EXACT integrates power over time up to every
+     * placement, removal and processing update, the only events that change
+     * a host's VMs or their cloudlets. In between, utilization only moves
+     * with the cloudlets' utilization models, and the integral follows them
+     * by adaptive Simpson quadrature, so energy does not depend on the
+     * sampling interval.
+     */
+    public enum EnergyIntegration {
+        SAMPLED,
+        EXACT
+    }
+
+    // Adaptive Simpson quadrature of EXACT integration: joules allowed per
+    // integrated interval and how deep it splits. Each interval gets at least
+    // four panels (nine points) before the error estimate is trusted, so a
+    // periodic model is not taken for a constant from a few points that
+    // happen to agree. Noise-like models never converge and stop at 512.
+    private static final double QUADRATURE_TOLERANCE = 1e-6;
+    private static final int QUADRATURE_MIN_DEPTH = 1;
+    private static final int QUADRATURE_MAX_DEPTH = 8;
+
+    // Per-host state, indexed by the host's position in the host list
+    private final HostPositions hostPositions;
+    private final double[] hostEnergyConsumption;
+    // Points of every distinct power table back to back, and each host's table offset
+    private double[] powerPoints = new double[0];
+    private final List<PowerTable> powerTables = new ArrayList<>();
+    private final int[] powerTableOffset;
+    private final UtilizationStats[] hostUtilizationStats;
+    private final double[] lastUpdateTime;
+    private final int[] maxVmsPerHost;
+    private final boolean[] hostEverUtilized;
+    private int hostsUtilizedCount = 0;
     private double simulationStartTime = 0.0;
+    private final UtilizationLedger utilizationLedger;
+    private final HostIndex hostIndex;
+    private final ConsolidationEngine consolidationEngine;
+    private boolean verifyUtilizationLedger = Boolean.getBoolean("energyaware.ledger.verify");
+    // Per-run attachments, not part of a SimulationCheckpoint
+    private transient TimeSeriesWriter timeSeries;
+    private transient ParallelHostUpdate parallelHostUpdate;
+    private EnergyIntegration energyIntegration = EnergyIntegration.SAMPLED;
+    private double lastHostChangeTime = 0.0;
+    private transient EventLog eventLog;
+    private ClusterSeries clusterSeries;
+
+    private final int utilizationHistoryWindow;
+    private VmPacker.Strategy packingStrategy = VmPacker.Strategy.BEST_FIT_DECREASING;
 
     public VmAllocationPolicyEnergyAware(List<? extends Host> list) {
+        this(list, Constants.UTILIZATION_HISTORY_WINDOW);
+    }
+
+    /**
+     * @param utilizationHistoryWindow Number of recent utilization samples kept per host
+     */
+    public VmAllocationPolicyEnergyAware(List<? extends Host> list, int utilizationHistoryWindow) {
         super(list);
+        this.utilizationHistoryWindow = utilizationHistoryWindow;
+        hostPositions = new HostPositions(list);
+        hostEnergyConsumption = new double[list.size()];
+        hostUtilizationStats = new UtilizationStats[list.size()];
+        lastUpdateTime = new double[list.size()];
+        maxVmsPerHost = new int[list.size()];
+        hostEverUtilized = new boolean[list.size()];
+        powerTableOffset = new int[list.size()];
         initializeHostTracking(list);
+        utilizationLedger = new UtilizationLedger(list, hostPositions);
+        consolidationEngine = new ConsolidationEngine(list, hostPositions,
+            Constants.OVERLOAD_THRESHOLD, Constants.UNDERLOAD_THRESHOLD, Constants.CONSOLIDATION_HOSTS_PER_PASS);
+        hostIndex = new HostIndex(list, hostPositions, new LedgerUtilization());
+        for (Host host : list) {
+            consolidationEngine.hostChanged(host, utilizationLedger.getUtilization(host));
+        }
     }
 
     private void initializeHostTracking(List<? extends Host> hosts) {
-        for (Host host : hosts) {
-            int hostId = host.getId();
-            hostEnergyConsumption.put(hostId, 0.0);
-            hostUtilizationHistory.put(hostId, new ArrayList<>());
-            lastUpdateTime.put(hostId, simulationStartTime);
-            hostEverUtilized.put(hostId, false);
-            maxVmsPerHost.put(hostId, 0);
+        // PowerHosts sharing a power model share its table
+        Map<PowerModel, PowerTable> modelTables = new IdentityHashMap<>();
+        for (int i = 0; i < hosts.size(); i++) {
+            hostUtilizationStats[i] = new UtilizationStats(utilizationHistoryWindow);
+            lastUpdateTime[i] = simulationStartTime;
+            Host host = hosts.get(i);
+            PowerTable table = PowerTable.DEFAULT;
+            if (host instanceof PowerHost && ((PowerHost) host).getPowerModel() != null) {
+                PowerModel model = ((PowerHost) host).getPowerModel();
+                table = modelTables.computeIfAbsent(model,
+                    key -> PowerTable.of(key.getClass().getSimpleName(), key));
+            }
+            powerTableOffset[i] = offsetOf(table);
+        }
+    }
+
+    /**
+     * Sets the power curve used for a host's energy from now on. Hosts
+     * given the same PowerTable instance share its points.
+     */
+    public void setPowerTable(Host host, PowerTable table) {
+        powerTableOffset[hostPositions.positionOf(host)] = offsetOf(table);
+    }
+
+    public PowerTable getPowerTable(int hostId) {
+        int position = hostPositions.positionOf(hostId);
+        return position >= 0 ? powerTables.get(powerTableOffset[position] / PowerTable.POINTS) : null;
+    }
+
+    /**
+     * @return Power draw of a host at a utilization, from its table
+     */
+    public double getPower(int hostId, double utilization) {
+        int position = hostPositions.positionOf(hostId);
+        return position >= 0 ? PowerTable.interpolate(powerPoints, powerTableOffset[position], utilization) : 0.0;
+    }
+
+    private int offsetOf(PowerTable table) {
+        for (int i = 0; i < powerTables.size(); i++) {
+            if (powerTables.get(i) == table) {
+                return i * PowerTable.POINTS;
+            }
         }
+        int offset = powerPoints.length;
+        powerPoints = Arrays.copyOf(powerPoints, offset + PowerTable.POINTS);
+        table.copyTo(powerPoints, offset);
+        powerTables.add(table);
+        return offset;
     }
 
     @Override
     public boolean allocateHostForVm(Vm vm, Host host) {
+        // Up to now with the VMs the host had before
+        integrateEnergy(hostPositions.positionOf(host));
         boolean result = host.vmCreate(vm);
+        if (Instrumentation.ENABLED) {
+            Instrumentation.allocation(result);
+        }
         if (result) {
+            utilizationLedger.vmCreated(vm, host);
+            ledgerChanged(host);
             updateHostMetrics(host);
-            maxVmsPerHost.merge(host.getId(), 1, Integer::sum);
-            hostEverUtilized.put(host.getId(), true);
+            int position = hostPositions.positionOf(host);
+            maxVmsPerHost[position]++;
+            if (!hostEverUtilized[position]) {
+                hostEverUtilized[position] = true;
+                hostsUtilizedCount++;
+            }
+            hostIndex.markDirty(host);
+            if (eventLog != null) {
+                eventLog.record(EventLog.Type.VM_ALLOCATED, CloudSim.clock(), vm.getId(), host.getId(),
+                    utilizationLedger.getUtilization(position));
+            }
+        } else if (eventLog != null) {
+            eventLog.record(EventLog.Type.VM_ALLOCATION_FAILED, CloudSim.clock(), vm.getId(), host.getId(),
+                utilizationLedger.getUtilization(hostPositions.positionOf(host)));
         }
         return result;
     }
 
     @Override
     public boolean allocateHostForVm(Vm vm) {
+        long start = Instrumentation.ENABLED ? System.nanoTime() : 0L;
         Host selectedHost = selectHostForVm(vm);
-        return selectedHost != null && allocateHostForVm(vm, selectedHost);
+        boolean result = selectedHost != null && allocateHostForVm(vm, selectedHost);
+        if (selectedHost == null && eventLog != null) {
+            eventLog.record(EventLog.Type.VM_ALLOCATION_FAILED, CloudSim.clock(), vm.getId(), -1, 0.0);
+        }
+        if (Instrumentation.ENABLED) {
+            if (selectedHost == null) {
+                Instrumentation.allocationFailed();
+            }
+            Instrumentation.allocationLatency(start);
+        }
+        return result;
+    }
+
+    /**
+     * Places a whole batch in one pass: VMs are sorted by decreasing demand
+     * and packed with the policy's packing strategy.
+     * @return Per-VM results, in the order of the given list
+     */
+    public boolean[] allocateHostsForVms(List<? extends Vm> vms) {
+        return allocateHostsForVms(vms, packingStrategy);
+    }
+
+    public boolean[] allocateHostsForVms(List<? extends Vm> vms, VmPacker.Strategy strategy) {
+        boolean[] results = new boolean[vms.size()];
+        VmPacker packer = new VmPacker(getHostList(), hostPositions, strategy);
+        for (int index : VmPacker.orderByDemand(vms)) {
+            long start = Instrumentation.ENABLED ? System.nanoTime() : 0L;
+            Vm vm = vms.get(index);
+            Host host = packer.findHost(vm);
+            if (host != null && allocateHostForVm(vm, host)) {
+                results[index] = true;
+                packer.update(host);
+            } else if (host == null && eventLog != null) {
+                eventLog.record(EventLog.Type.VM_ALLOCATION_FAILED, CloudSim.clock(), vm.getId(), -1, 0.0);
+            }
+            if (Instrumentation.ENABLED) {
+                if (host == null) {
+                    Instrumentation.allocationFailed();
+                }
+                Instrumentation.allocationLatency(start);
+            }
+        }
+        return results;
+    }
+
+    public void setPackingStrategy(VmPacker.Strategy packingStrategy) {
+        this.packingStrategy = packingStrategy;
     }
 
     private Host selectHostForVm(Vm vm) {
-        return getHostList().stream()
-            .filter(host -> host.isSuitableForVm(vm))
-            .min(Comparator.comparingDouble(this::calculateCurrentUtilization))
-            .orElse(null);
+        hostIndex.refreshDirty();
+        return hostIndex.findLeastUtilizedSuitable(vm);
     }
 
     private void updateHostMetrics(Host host) {
+        long start = Instrumentation.ENABLED ? System.nanoTime() : 0L;
         double currentTime = CloudSim.clock();
         double utilization = calculateCurrentUtilization(host);
+        int position = hostPositions.positionOf(host);
         
-        recordHostUtilization(host, utilization);
+        hostUtilizationStats[position].record(utilization);
         
-        double timeDelta = currentTime - lastUpdateTime.get(host.getId());
-        updateHostEnergy(host, utilization, timeDelta);
+        double timeDelta = currentTime - lastUpdateTime[position];
+        hostEnergyConsumption[position] += calculateEnergyConsumption(position, utilization, timeDelta);
         
-        lastUpdateTime.put(host.getId(), currentTime);
+        lastUpdateTime[position] = currentTime;
+        if (timeSeries != null) {
+            writeSeries(host.getId(), position, currentTime, utilization);
+        }
+        if (Instrumentation.ENABLED) {
+            Instrumentation.metricUpdate(start);
+        }
+    }
+
+    /**
+     * Records utilization and energy of every host up to the given time in
+     * one pass over the per-host arrays, in host order. Each host's VMs are
+     * read again at that time first, so time-varying utilization models are
+     * sampled at every tick and not only at datacenter events. Power comes
+     * from the shared table points, so there are no virtual calls. Allocates
+     * nothing unless a time series writer or parallel host update is set.
+     */
+    public void sampleHosts(double currentTime) {
+        long start = Instrumentation.ENABLED ? System.nanoTime() : 0L;
+        hostIndex.refreshDirty();
+        List<? extends Host> hosts = getHostList();
+        if (parallelHostUpdate == null) {
+            for (int i = 0; i < hosts.size(); i++) {
+                sampleHost(i, currentTime);
+            }
+        } else {
+            parallelHostUpdate.forEach(hosts.size(), i -> sampleHost(i, currentTime));
+        }
+        // Index and consolidation state are shared, so changed hosts follow serially
+        for (int i = 0; i < hosts.size(); i++) {
+            if (hostIndex.getUtilization(i) != utilizationLedger.getUtilization(i)) {
+                ledgerChanged(hosts.get(i));
+                hostIndex.update(hosts.get(i));
+            }
+        }
+        if (verifyUtilizationLedger) {
+            for (Host host : hosts) {
+                utilizationLedger.verify(host);
+            }
+        }
+        if (timeSeries != null) {
+            for (int i = 0; i < hosts.size(); i++) {
+                writeSeries(hosts.get(i).getId(), i, currentTime, utilizationLedger.getUtilization(i));
+            }
+        }
+        if (eventLog != null) {
+            for (int i = 0; i < hosts.size(); i++) {
+                eventLog.record(EventLog.Type.HOST_SAMPLED, currentTime, -1, hosts.get(i).getId(),
+                    utilizationLedger.getUtilization(i));
+            }
+        }
+        if (clusterSeries != null) {
+            recordCluster(currentTime, hosts.size());
+        }
+        if (Instrumentation.ENABLED) {
+            Instrumentation.sample(hosts.size(), start);
+        }
+    }
+
+    /**
+     * Touches only the position's slots, so hosts can be sampled in parallel
+     */
+    private void sampleHost(int position, double currentTime) {
+        Host host = getHostList().get(position);
+        if (!host.getVmList().isEmpty()) {
+            integrateEnergy(position, currentTime);
+            utilizationLedger.refreshHost(host, currentTime);
+        }
+        double utilization = utilizationLedger.getUtilization(position);
+        hostUtilizationStats[position].record(utilization);
+        double power = PowerTable.interpolate(powerPoints, powerTableOffset[position], utilization);
+        hostEnergyConsumption[position] += power * (currentTime - lastUpdateTime[position]);
+        lastUpdateTime[position] = currentTime;
+    }
+
+    private void recordCluster(double currentTime, int hostCount) {
+        double utilization = 0.0;
+        double energy = 0.0;
+        int activeHosts = 0;
+        for (int i = 0; i < hostCount; i++) {
+            double hostUtilization = utilizationLedger.getUtilization(i);
+            utilization += hostUtilization;
+            if (hostUtilization > 0) {
+                activeHosts++;
+            }
+            energy += hostEnergyConsumption[i];
+        }
+        clusterSeries.record(currentTime, hostCount > 0 ? utilization / hostCount : 0.0, activeHosts, energy);
+    }
+
+    /**
+     * Samples hosts in parallel partitions from now on, null for serial.
+     * Results are the same either way.
+     */
+    public void setParallelHostUpdate(ParallelHostUpdate parallelHostUpdate) {
+        this.parallelHostUpdate = parallelHostUpdate;
     }
 
     public void recordHostUtilization(Host host, double utilization) {
-        hostUtilizationHistory.get(host.getId()).add(utilization);
+        int position = hostPositions.positionOf(host);
+        hostUtilizationStats[position].record(utilization);
+        if (timeSeries != null) {
+            writeSeries(host.getId(), position, CloudSim.clock(), utilization);
+        }
+    }
+
+    /**
+     * Also writes every utilization sample recorded from now on, with the
+     * host's energy so far, to the given writer: series
+     * utilizationSeries(hostId) and energySeries(hostId). Null stops
+     * writing. The caller closes the writer.
+     */
+    public void setTimeSeriesWriter(TimeSeriesWriter timeSeries) {
+        this.timeSeries = timeSeries;
+    }
+
+    /**
+     * Records placements, removals and samples to the event log from now
+     * on, null to stop. The caller closes the log.
+     */
+    public void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    public EventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Also records datacenter-wide totals at every host sample from now on,
+     * null to stop. Unlike the other attachments it is saved with a
+     * SimulationCheckpoint, so a resumed run keeps the whole history.
+     */
+    public void setClusterSeries(ClusterSeries clusterSeries) {
+        this.clusterSeries = clusterSeries;
+    }
+
+    public ClusterSeries getClusterSeries() {
+        return clusterSeries;
+    }
+
+    /**
+     * @return Time series id of a host's utilization, in [0, 1]
+     */
+    public static int utilizationSeries(int hostId) {
+        return hostId * 2;
+    }
+
+    /**
+     * @return Time series id of a host's cumulative energy, in joules
+     */
+    public static int energySeries(int hostId) {
+        return hostId * 2 + 1;
+    }
+
+    private void writeSeries(int hostId, int position, double time, double utilization) {
+        timeSeries.append(utilizationSeries(hostId), time, utilization);
+        timeSeries.append(energySeries(hostId), time, hostEnergyConsumption[position]);
     }
     
     public void updateHostEnergy(Host host, double utilization, double timeDelta) {
-        double energy = calculateEnergyConsumption(host, utilization, timeDelta);
-        hostEnergyConsumption.merge(host.getId(), energy, Double::sum);
+        int position = hostPositions.positionOf(host);
+        hostEnergyConsumption[position] += calculateEnergyConsumption(position, utilization, timeDelta);
+    }
+
+    public void setEnergyIntegration(EnergyIntegration energyIntegration) {
+        this.energyIntegration = energyIntegration;
+    }
+
+    public EnergyIntegration getEnergyIntegration() {
+        return energyIntegration;
+    }
+
+    /**
+     * In EXACT mode, integrates the energy of every host with VMs up to now.
+     * Called before the datacenter processes its hosts, as processing
+     * finishes cloudlets and so changes what the VMs use from then on. Idle
+     * hosts are left to the next sample or placement, like the ledger
+     * refresh after processing.
+     */
+    public void integrateHostEnergy() {
+        if (energyIntegration != EnergyIntegration.EXACT) {
+            return;
+        }
+        double now = CloudSim.clock();
+        List<? extends Host> hosts = getHostList();
+        if (parallelHostUpdate == null) {
+            for (int i = 0; i < hosts.size(); i++) {
+                integrateBusyHost(i, now);
+            }
+        } else {
+            parallelHostUpdate.forEach(hosts.size(), i -> integrateBusyHost(i, now));
+        }
+        lastHostChangeTime = now;
+    }
+
+    private void integrateBusyHost(int position, double time) {
+        if (!getHostList().get(position).getVmList().isEmpty()) {
+            integrateEnergy(position, time);
+        }
+    }
+
+    /**
+     * In EXACT mode, integrates a host's energy up to now; called right
+     * before its VMs or their cloudlets change
+     */
+    private void integrateEnergy(int position) {
+        if (energyIntegration != EnergyIntegration.EXACT || position < 0) {
+            return;
+        }
+        integrateEnergy(position, CloudSim.clock());
+        lastHostChangeTime = CloudSim.clock();
     }
 
-    private double calculateEnergyConsumption(Host host, double utilization, double timeDelta) {
-        if (host instanceof PowerHost) {
-            PowerHost powerHost = (PowerHost)host;
-            return powerHost.getPower() * utilization * timeDelta;
+    /**
+     * In EXACT mode, integrates a host's power from its last update up to
+     * the given time, with its current VMs and cloudlets. Touches only the
+     * position's slots, so hosts can be integrated in parallel.
+     */
+    private void integrateEnergy(int position, double time) {
+        double from = lastUpdateTime[position];
+        if (energyIntegration != EnergyIntegration.EXACT || time <= from) {
+            return;
+        }
+        Host host = getHostList().get(position);
+        if (host.getVmList().isEmpty()) {
+            hostEnergyConsumption[position] += calculateEnergyConsumption(position, 0.0, time - from);
+        } else {
+            UtilizationLedger.HostDemand demand = new UtilizationLedger.HostDemand(host);
+            double powerFrom = powerAt(position, demand, from);
+            double powerMid = powerAt(position, demand, (from + time) / 2);
+            double powerTo = powerAt(position, demand, time);
+            hostEnergyConsumption[position] += integratePower(position, demand, from, time,
+                powerFrom, powerMid, powerTo, (time - from) / 6 * (powerFrom + 4 * powerMid + powerTo),
+                QUADRATURE_TOLERANCE, 0);
         }
-        return (100 + 100 * utilization) * timeDelta;
+        lastUpdateTime[position] = time;
+    }
+
+    /**
+     * Adaptive Simpson over [from, to], given the power at both ends and the
+     * midpoint and the Simpson estimate built from them
+     */
+    private double integratePower(int position, UtilizationLedger.HostDemand demand, double from, double to,
+                                  double powerFrom, double powerMid, double powerTo,
+                                  double whole, double tolerance, int depth) {
+        double mid = (from + to) / 2;
+        double powerLeft = powerAt(position, demand, (from + mid) / 2);
+        double powerRight = powerAt(position, demand, (mid + to) / 2);
+        double left = (mid - from) / 6 * (powerFrom + 4 * powerLeft + powerMid);
+        double right = (to - mid) / 6 * (powerMid + 4 * powerRight + powerTo);
+        double error = left + right - whole;
+        if (depth >= QUADRATURE_MAX_DEPTH
+                || (depth >= QUADRATURE_MIN_DEPTH && Math.abs(error) <= 15 * tolerance)) {
+            return left + right + error / 15;
+        }
+        return integratePower(position, demand, from, mid, powerFrom, powerLeft, powerMid, left, tolerance / 2, depth + 1)
+            + integratePower(position, demand, mid, to, powerMid, powerRight, powerTo, right, tolerance / 2, depth + 1);
+    }
+
+    private double powerAt(int position, UtilizationLedger.HostDemand demand, double time) {
+        return PowerTable.interpolate(powerPoints, powerTableOffset[position], demand.utilizationAt(time));
+    }
+
+    /**
+     * @return In EXACT mode, the last time any host's utilization could have
+     *         changed: a placement, removal, MIPS change or processing update
+     */
+    public double getLastHostChangeTime() {
+        return lastHostChangeTime;
+    }
+
+    private double calculateEnergyConsumption(int position, double utilization, double timeDelta) {
+        return PowerTable.interpolate(powerPoints, powerTableOffset[position], utilization) * timeDelta;
     }
 
     private void logAllocation(Vm vm, Host host) {
@@ -89,56 +521,120 @@ public class VmAllocationPolicyEnergyAware extends VmAllocationPolicy {
     }
 
     protected double calculateCurrentUtilization(Host host) {
-        double usedMips = host.getVmList().stream()
-            .mapToDouble(vm -> vm.getCurrentRequestedTotalMips())
-            .sum();
-        double utilization = host.getTotalMips() > 0 ? usedMips / host.getTotalMips() : 0;
-        return Math.min(utilization, 1.0);
+        hostIndex.refreshDirty();
+        if (verifyUtilizationLedger) {
+            utilizationLedger.verify(host);
+        }
+        return utilizationLedger.getUtilization(host);
     }
 
-    public double getPeakUtilization(int hostId) {
-        List<Double> utilizations = getUtilizationHistory(hostId);
-        if (utilizations == null || utilizations.isEmpty()) {
-            return 0.0;
+    /**
+     * Reclassifies a host for consolidation after its ledger entry changed
+     */
+    private void ledgerChanged(Host host) {
+        consolidationEngine.hostChanged(host, utilizationLedger.getUtilization(host));
+    }
+
+    /**
+     * The index's view of a host's utilization: a plain ledger read, so
+     * reading the index changes no energy or consolidation state. A named
+     * class rather than a method reference, so the index can be saved in a
+     * SimulationCheckpoint.
+     */
+    private final class LedgerUtilization implements ToDoubleFunction<Host> {
+        @Override
+        public double applyAsDouble(Host host) {
+            return utilizationLedger.getUtilization(host);
         }
-        return utilizations.stream()
-            .mapToDouble(Double::doubleValue)
-            .max()
-            .orElse(0.0);
+    }
+
+    /**
+     * Applies a change in the MIPS a VM uses to its host's utilization
+     */
+    public void updateVmMips(Vm vm) {
+        Host host = vm.getHost();
+        if (host != null) {
+            integrateEnergy(hostPositions.positionOf(host));
+            utilizationLedger.vmMipsChanged(vm);
+            ledgerChanged(host);
+            hostIndex.update(host);
+        }
+    }
+
+    /**
+     * Re-reads the used MIPS of every VM on a host after it was processed
+     */
+    public void refreshHost(Host host) {
+        integrateEnergy(hostPositions.positionOf(host));
+        utilizationLedger.refreshHost(host);
+        ledgerChanged(host);
+        hostIndex.update(host);
+    }
+
+    /**
+     * Checks every utilization read against a full recomputation over the
+     * host's VMs. Also enabled with -Denergyaware.ledger.verify=true.
+     */
+    public void setVerifyUtilizationLedger(boolean verifyUtilizationLedger) {
+        this.verifyUtilizationLedger = verifyUtilizationLedger;
+    }
+
+    public double getPeakUtilization(int hostId) {
+        UtilizationStats stats = getUtilizationStats(hostId);
+        return stats == null ? 0.0 : stats.getPeak();
     }
 
     public double getAverageUtilization(int hostId) {
-        List<Double> utilizations = hostUtilizationHistory.get(hostId);
-        return utilizations == null || utilizations.isEmpty() ? 0.0 :
-            utilizations.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        UtilizationStats stats = getUtilizationStats(hostId);
+        return stats == null ? 0.0 : stats.getMean();
+    }
+
+    public UtilizationStats getUtilizationStats(int hostId) {
+        int position = hostPositions.positionOf(hostId);
+        return position >= 0 ? hostUtilizationStats[position] : null;
     }
 
     public double getTotalEnergy(int hostId) {
-        return hostEnergyConsumption.getOrDefault(hostId, 0.0);
+        int position = hostPositions.positionOf(hostId);
+        return position >= 0 ? hostEnergyConsumption[position] : 0.0;
     }
 
+    /**
+     * Returns the most recent utilization samples of a host, oldest first.
+     * Only the last utilizationHistoryWindow samples are kept.
+     */
     public List<Double> getUtilizationHistory(int hostId) {
-        return hostUtilizationHistory.getOrDefault(hostId, Collections.emptyList());
+        UtilizationStats stats = getUtilizationStats(hostId);
+        return stats == null ? Collections.emptyList() : stats.getRecentSamples();
     }
 
     public int getActiveHostCount() {
-        return (int) hostEverUtilized.values().stream().filter(Boolean::booleanValue).count();
+        return hostsUtilizedCount;
     }
 
     public int getHostsUtilizedCount() {
-        return (int) hostEverUtilized.values().stream().filter(Boolean::booleanValue).count();
+        return hostsUtilizedCount;
     }
 
     public int getMaxVmsPerHost(int hostId) {
-        return maxVmsPerHost.getOrDefault(hostId, 0);
+        int position = hostPositions.positionOf(hostId);
+        return position >= 0 ? maxVmsPerHost[position] : 0;
     }
 
     @Override
     public void deallocateHostForVm(Vm vm) {
         Host host = vm.getHost();
         if (host != null) {
+            integrateEnergy(hostPositions.positionOf(host));
             updateHostMetrics(host);
             host.vmDestroy(vm);
+            utilizationLedger.vmDestroyed(vm);
+            ledgerChanged(host);
+            hostIndex.markDirty(host);
+            if (eventLog != null) {
+                eventLog.record(EventLog.Type.VM_DEALLOCATED, CloudSim.clock(), vm.getId(), host.getId(),
+                    utilizationLedger.getUtilization(host));
+            }
         }
     }
 
@@ -147,16 +643,51 @@ public class VmAllocationPolicyEnergyAware extends VmAllocationPolicy {
         return vm.getHost();
     }
 
+    /**
+     * Looks the VM up in the utilization ledger, which is updated on every
+     * allocation and deallocation. A migration deallocates from the source
+     * and allocates on the target, so the entry follows the VM.
+     */
     @Override
     public Host getHost(int vmId, int userId) {
-        return getHostList().stream()
-            .filter(h -> h.getVm(vmId, userId) != null)
+        int position = utilizationLedger.hostPositionOf(vmId, userId);
+        Host host = position >= 0 ? getHostList().get(position) : null;
+        if (verifyUtilizationLedger) {
+            verifyHostOf(vmId, userId, host);
+        }
+        return host;
+    }
+
+    /**
+     * A migrating VM is also in its target's VM list, so only the host the
+     * VM says it runs on counts
+     */
+    private void verifyHostOf(int vmId, int userId, Host host) {
+        Host expected = getHostList().stream()
+            .filter(h -> {
+                Vm vm = h.getVm(vmId, userId);
+                return vm != null && vm.getHost() == h;
+            })
             .findFirst()
             .orElse(null);
+        if (expected != host) {
+            throw new IllegalStateException(String.format(
+                "VM %d of user %d is on Host %s, ledger says Host %s", vmId, userId,
+                expected == null ? "none" : expected.getId(), host == null ? "none" : host.getId()));
+        }
     }
 
+    /**
+     * Plans migrations off hosts overloaded or underloaded by the MIPS their
+     * VMs use. Only hosts whose classification is current are visited, not
+     * the given VM list.
+     */
     @Override
     public List<Map<String, Object>> optimizeAllocation(List<? extends Vm> vmList) {
-        return Collections.emptyList();
+        return consolidationEngine.optimize(hostIndex);
+    }
+
+    public ConsolidationEngine getConsolidationEngine() {
+        return consolidationEngine;
     }
 }
\ No newline at end of file
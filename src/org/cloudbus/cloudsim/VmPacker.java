@@ -0,0 +1,181 @@
+package org.cloudbus.cloudsim;
+
+import java.util.*;
+
+/**
+ * Finds hosts for a batch of VMs placed in decreasing order of demand.
+ *
+ * Best fit keeps the hosts in a tree ordered by free MIPS and takes the
+ * first host at or above the VM's demand that also has the RAM and
+ * bandwidth, i.e. the tightest fit. First fit keeps a max-tree of free MIPS
+ * over the host list and descends to the leftmost host with enough free
+ * MIPS. Both only touch the hosts that could fit, and update one host per
+ * placement.
+ */
+public class VmPacker {
+    public enum Strategy {
+        BEST_FIT_DECREASING,
+        FIRST_FIT_DECREASING
+    }
+
+    private final List<? extends Host> hosts;
+    private final HostPositions positions;
+    private final Strategy strategy;
+    private final double[] free;
+
+    // Best fit: positions ordered by (free MIPS, position); index n is a search probe
+    private final TreeSet<Integer> byFreeMips;
+    private final int probe;
+
+    // First fit: max of free MIPS over a complete binary tree of positions
+    private final double[] maxTree;
+    private final int leaves;
+
+    public VmPacker(List<? extends Host> hosts, HostPositions positions, Strategy strategy) {
+        this.hosts = hosts;
+        this.positions = positions;
+        this.strategy = strategy;
+        int n = hosts.size();
+        this.free = new double[n + 1];
+        this.probe = n;
+        for (int i = 0; i < n; i++) {
+            free[i] = hosts.get(i).getVmScheduler().getAvailableMips();
+        }
+
+        if (strategy == Strategy.BEST_FIT_DECREASING) {
+            byFreeMips = new TreeSet<>((a, b) -> {
+                int cmp = Double.compare(free[a], free[b]);
+                if (cmp != 0) {
+                    return cmp;
+                }
+                return Integer.compare(a == probe ? -1 : a, b == probe ? -1 : b);
+            });
+            for (int i = 0; i < n; i++) {
+                byFreeMips.add(i);
+            }
+            maxTree = null;
+            leaves = 0;
+        } else {
+            byFreeMips = null;
+            leaves = Integer.highestOneBit(Math.max(1, n - 1)) << 1;
+            maxTree = new double[2 * leaves];
+            Arrays.fill(maxTree, Double.NEGATIVE_INFINITY);
+            for (int i = 0; i < n; i++) {
+                maxTree[leaves + i] = free[i];
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                maxTree[node] = Math.max(maxTree[2 * node], maxTree[2 * node + 1]);
+            }
+        }
+    }
+
+    /**
+     * Orders VMs by requested MIPS, then RAM, largest first. Ties keep the
+     * submission order.
+     * @return Indexes into vms in placement order
+     */
+    public static int[] orderByDemand(List<? extends Vm> vms) {
+        int n = vms.size();
+        double[] mips = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            mips[i] = vms.get(i).getCurrentRequestedTotalMips();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int cmp = Double.compare(mips[b], mips[a]);
+            return cmp != 0 ? cmp : Integer.compare(vms.get(b).getRam(), vms.get(a).getRam());
+        });
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * @return Host for the VM according to the strategy, or null if none fits
+     */
+    public Host findHost(Vm vm) {
+        // The VM's requested MIPS lists are built on every call, so read them once
+        double demand = vm.getCurrentRequestedTotalMips();
+        double maxPeDemand = vm.getCurrentRequestedMaxMips();
+        double ram = vm.getCurrentRequestedRam();
+        long bw = vm.getCurrentRequestedBw();
+        int scanned = 0;
+        Host found = null;
+        if (strategy == Strategy.BEST_FIT_DECREASING) {
+            free[probe] = demand;
+            for (int position : byFreeMips.tailSet(probe, false)) {
+                scanned++;
+                if (fits(hosts.get(position), maxPeDemand, ram, bw)) {
+                    found = hosts.get(position);
+                    break;
+                }
+            }
+        } else {
+            for (int position = findFirst(demand, 0); position >= 0; position = findFirst(demand, position + 1)) {
+                scanned++;
+                if (fits(hosts.get(position), maxPeDemand, ram, bw)) {
+                    found = hosts.get(position);
+                    break;
+                }
+            }
+        }
+        if (Instrumentation.ENABLED) {
+            Instrumentation.placement(scanned);
+        }
+        return found;
+    }
+
+    /**
+     * Re-reads the free MIPS of a host after a VM was placed on it
+     */
+    public void update(Host host) {
+        int position = positions.positionOf(host);
+        if (position < 0) {
+            return;
+        }
+        if (strategy == Strategy.BEST_FIT_DECREASING) {
+            byFreeMips.remove(position);
+            free[position] = host.getVmScheduler().getAvailableMips();
+            byFreeMips.add(position);
+        } else {
+            free[position] = host.getVmScheduler().getAvailableMips();
+            int node = leaves + position;
+            maxTree[node] = free[position];
+            for (node >>= 1; node > 0; node >>= 1) {
+                maxTree[node] = Math.max(maxTree[2 * node], maxTree[2 * node + 1]);
+            }
+        }
+    }
+
+    /**
+     * Host.isSuitableForVm minus the free MIPS check, which the search
+     * structures already guarantee
+     */
+    private static boolean fits(Host host, double maxPeDemand, double ram, long bw) {
+        return host.getRamProvisioner().getAvailableRam() >= ram
+            && host.getBwProvisioner().getAvailableBw() >= bw
+            && host.getVmScheduler().getPeCapacity() >= maxPeDemand;
+    }
+
+    /**
+     * Leftmost position at or after from with at least demand free MIPS, or -1
+     */
+    private int findFirst(double demand, int from) {
+        return findFirst(1, 0, leaves, demand, from);
+    }
+
+    private int findFirst(int node, int low, int high, double demand, int from) {
+        if (high <= from || maxTree[node] < demand) {
+            return -1;
+        }
+        if (node >= leaves) {
+            return low;
+        }
+        int middle = (low + high) >>> 1;
+        int left = findFirst(2 * node, low, middle, demand, from);
+        return left >= 0 ? left : findFirst(2 * node + 1, middle, high, demand, from);
+    }
+}
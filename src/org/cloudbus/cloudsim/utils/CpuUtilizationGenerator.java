@@ -1,12 +1,25 @@
 package org.cloudbus.cloudsim.utils;
 
+import org.cloudbus.cloudsim.CompactTraceUtilizationModel;
+import org.cloudbus.cloudsim.TraceUtilizationModel;
 import org.cloudbus.cloudsim.UtilizationModel;
 import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.cloudbus.cloudsim.UtilizationModelStochastic;
-import java.util.Random;
+import java.util.SplittableRandom;
 
+/**
+ * Factory for CPU utilization models.
+ *
+ * Random models are pure functions of (seed, time): each instance draws its
+ * own seed once and hashes the queried time with it, so asking twice about
+ * the same time returns the same value and no state is shared between
+ * models or threads.
+ */
 public class CpuUtilizationGenerator {
-    private static final Random random = new Random();
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private static SplittableRandom seeds = new SplittableRandom();
 
     public enum UtilizationPattern {
         CONSTANT,
@@ -16,28 +29,85 @@ public class CpuUtilizationGenerator {
         STOCHASTIC
     }
 
+    /**
+     * Reseeds the source of per-model seeds used by the factory methods that
+     * take no explicit seed
+     * @param seed Seed for reproducible runs
+     */
+    public static synchronized void setSeed(long seed) {
+        seeds = new SplittableRandom(seed);
+    }
+
+    private static synchronized long nextSeed() {
+        return seeds.nextLong();
+    }
+
     /**
      * Creates a utilization model based on the specified pattern
      * @param pattern The utilization pattern to use
      * @return Configured UtilizationModel
      */
     public static UtilizationModel create(UtilizationPattern pattern) {
+        return create(pattern, nextSeed());
+    }
+
+    /**
+     * Creates a utilization model based on the specified pattern
+     * @param pattern The utilization pattern to use
+     * @param seed Seed of the random, spiking and stochastic models
+     * @return Configured UtilizationModel
+     */
+    public static UtilizationModel create(UtilizationPattern pattern, long seed) {
         switch (pattern) {
             case CONSTANT:
                 return createConstantModel();
             case RANDOM:
-                return createRandomModel();
+                return createRandomModel(0.3, 0.8, seed);
             case SINUSOIDAL:
                 return createSinusoidalModel();
             case SPIKING:
-                return createSpikingModel();
+                return createSpikingModel(0.4, 0.05, 0.5, seed);
             case STOCHASTIC:
-                return new UtilizationModelStochastic();
+                return new UtilizationModelStochastic(seed);
             default:
                 return new UtilizationModelFull();
         }
     }
 
+    /**
+     * Samples a model every interval seconds up to horizon into a lookup
+     * table, linearly interpolated in between and held after the horizon
+     */
+    public static TraceUtilizationModel precompute(UtilizationModel model, double interval, double horizon) {
+        double[] samples = new double[sampleCount(interval, horizon)];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = model.getUtilization(i * interval);
+        }
+        return new TraceUtilizationModel(samples, interval);
+    }
+
+    /**
+     * Same as precompute, with single-precision samples at half the memory
+     */
+    public static CompactTraceUtilizationModel precomputeCompact(UtilizationModel model, double interval, double horizon) {
+        float[] samples = new float[sampleCount(interval, horizon)];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) model.getUtilization(i * interval);
+        }
+        return new CompactTraceUtilizationModel(samples, interval);
+    }
+
+    private static int sampleCount(double interval, double horizon) {
+        if (!(interval > 0) || horizon < 0) {
+            throw new IllegalArgumentException("Interval must be positive and horizon non-negative");
+        }
+        long count = (long) Math.ceil(horizon / interval) + 1;
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many samples: " + count);
+        }
+        return (int) count;
+    }
+
     /**
      * Creates a constant utilization model
      * @param utilization Fixed utilization percentage (0-1)
@@ -64,10 +134,21 @@ public class CpuUtilizationGenerator {
      * @param maxUtilization Maximum utilization (0-1)
      */
     public static UtilizationModel createRandomModel(double minUtilization, double maxUtilization) {
+        return createRandomModel(minUtilization, maxUtilization, nextSeed());
+    }
+
+    /**
+     * Creates a random utilization model
+     * @param minUtilization Minimum utilization (0-1)
+     * @param maxUtilization Maximum utilization (0-1)
+     * @param seed Seed of this model
+     */
+    public static UtilizationModel createRandomModel(double minUtilization, double maxUtilization, long seed) {
+        long modelSeed = new SplittableRandom(seed).nextLong();
         return new UtilizationModel() {
             @Override
             public double getUtilization(double time) {
-                return minUtilization + (maxUtilization - minUtilization) * random.nextDouble();
+                return minUtilization + (maxUtilization - minUtilization) * uniform(modelSeed, time);
             }
         };
     }
@@ -109,11 +190,26 @@ public class CpuUtilizationGenerator {
      * @param spikeIntensity How intense spikes are (0-1)
      */
     public static UtilizationModel createSpikingModel(double baseUtilization, double spikeProbability, double spikeIntensity) {
+        return createSpikingModel(baseUtilization, spikeProbability, spikeIntensity, nextSeed());
+    }
+
+    /**
+     * Creates a spiking utilization model with random spikes
+     * @param baseUtilization Base utilization (0-1)
+     * @param spikeProbability Probability of spike occurring at any time
+     * @param spikeIntensity How intense spikes are (0-1)
+     * @param seed Seed of this model
+     */
+    public static UtilizationModel createSpikingModel(double baseUtilization, double spikeProbability,
+                                                      double spikeIntensity, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long spikeSeed = random.nextLong();
+        long intensitySeed = random.nextLong();
         return new UtilizationModel() {
             @Override
             public double getUtilization(double time) {
-                if (random.nextDouble() < spikeProbability) {
-                    return Math.min(1.0, baseUtilization + spikeIntensity * random.nextDouble());
+                if (uniform(spikeSeed, time) < spikeProbability) {
+                    return Math.min(1.0, baseUtilization + spikeIntensity * uniform(intensitySeed, time));
                 }
                 return baseUtilization;
             }
@@ -126,4 +222,16 @@ public class CpuUtilizationGenerator {
     public static UtilizationModel createSpikingModel() {
         return createSpikingModel(0.4, 0.05, 0.5);
     }
-}
\ No newline at end of file
+
+    /**
+     * Uniform double in [0, 1) determined by a seed and a time. Uses the
+     * SplitMix64 finalizer that SplittableRandom applies to its own state.
+     */
+    static double uniform(long seed, double time) {
+        long z = seed + (Double.doubleToLongBits(time + 0.0) + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * DOUBLE_UNIT;
+    }
+}
@@ -0,0 +1,55 @@
+package org.cloudbus.cloudsim.utils;
+
+import java.util.Arrays;
+
+/**
+ * Set of ints in [0, capacity) with O(1) add, remove and contains, and
+ * iteration by index over a dense array of members.
+ */
+public class IndexedIntSet {
+    private final int[] members;
+    private final int[] indexOf;
+    private int size = 0;
+
+    public IndexedIntSet(int capacity) {
+        members = new int[capacity];
+        indexOf = new int[capacity];
+        Arrays.fill(indexOf, -1);
+    }
+
+    public boolean add(int value) {
+        if (indexOf[value] >= 0) {
+            return false;
+        }
+        indexOf[value] = size;
+        members[size++] = value;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int index = indexOf[value];
+        if (index < 0) {
+            return false;
+        }
+        int last = members[--size];
+        members[index] = last;
+        indexOf[last] = index;
+        indexOf[value] = -1;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return indexOf[value] >= 0;
+    }
+
+    /**
+     * @return Member at an index in [0, size()); the order changes on remove
+     */
+    public int get(int index) {
+        return members[index];
+    }
+
+    public int size() {
+        return size;
+    }
+}
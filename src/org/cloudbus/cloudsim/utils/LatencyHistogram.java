@@ -0,0 +1,144 @@
+package org.cloudbus.cloudsim.utils;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-memory histogram of non-negative long values (e.g. nanoseconds),
+ * in the style of HdrHistogram: values below 64 are counted exactly, larger
+ * ones in 32 linear sub-buckets per power of two, so any recorded value is
+ * reported within about 3% of itself. Recording is a few shifts and one
+ * array increment and never allocates. Bucket boundaries are fixed, so two
+ * histograms merge exactly with add(), whatever values they saw.
+ *
+ * Not thread-safe; concurrent readers may see a slightly stale snapshot.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BITS = 6;
+    private static final int LINEAR_COUNT = 1 << LINEAR_BITS;
+    private static final int SUB_BUCKETS = LINEAR_COUNT >> 1;
+    private static final int BUCKET_COUNT = LINEAR_COUNT + (63 - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    public LatencyHistogram() {
+    }
+
+    public LatencyHistogram(LatencyHistogram other) {
+        add(other);
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds every value recorded in other, as if recorded here
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile Percentile in [0, 100]
+     * @return Upper bound of the bucket holding the value at that percentile
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return Number of recorded values in buckets up to the one holding
+     *         value, so counts between two values are exact to a bucket
+     */
+    public long getCountAtOrBelow(long value) {
+        if (value < 0) {
+            return 0;
+        }
+        int last = indexOf(value);
+        long seen = 0;
+        for (int i = 0; i <= last; i++) {
+            seen += counts[i];
+        }
+        return seen;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - LINEAR_BITS + 1;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_COUNT + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < LINEAR_COUNT) {
+            return index;
+        }
+        int offset = index - LINEAR_COUNT;
+        int shift = offset / SUB_BUCKETS + 1;
+        long lowest = (long) (SUB_BUCKETS + offset % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
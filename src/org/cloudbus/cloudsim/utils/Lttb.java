@@ -0,0 +1,95 @@
+package org.cloudbus.cloudsim.utils;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013).
+ *
+ * Keeps the first and last points and splits the rest into equal-count
+ * buckets. From each bucket it keeps the point forming the largest triangle
+ * with the point kept from the previous bucket and the average of the next
+ * bucket. Unlike bucket averages, this keeps peaks and dips, so a chart of
+ * a few hundred points looks like the full series.
+ */
+public final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * Picks at most threshold of the first length points, in time order.
+     * Series no longer than threshold are copied as they are.
+     *
+     * @param threshold Number of points to keep, at least 3; outTimes and
+     *                  outValues need this many slots
+     * @return Number of points written to outTimes and outValues
+     */
+    public static int downsample(double[] times, double[] values, int length, int threshold,
+                                 double[] outTimes, double[] outValues) {
+        if (outTimes.length < threshold || outValues.length < threshold) {
+            throw new IllegalArgumentException("Need " + threshold + " output slots");
+        }
+        int[] indices = new int[threshold];
+        int kept = select(times, values, length, threshold, indices);
+        for (int i = 0; i < kept; i++) {
+            outTimes[i] = times[indices[i]];
+            outValues[i] = values[indices[i]];
+        }
+        return kept;
+    }
+
+    /**
+     * Like downsample, but returns the positions of the kept points, so
+     * other values recorded with them can be kept too.
+     *
+     * @param threshold Number of points to keep, at least 3; outIndices
+     *                  needs this many slots
+     * @return Number of increasing positions written to outIndices
+     */
+    public static int select(double[] times, double[] values, int length, int threshold, int[] outIndices) {
+        if (threshold < 3 || outIndices.length < threshold) {
+            throw new IllegalArgumentException("Need at least 3 points and " + threshold + " output slots");
+        }
+        if (length <= threshold) {
+            for (int i = 0; i < length; i++) {
+                outIndices[i] = i;
+            }
+            return length;
+        }
+        double every = (double) (length - 2) / (threshold - 2);
+        int kept = 0;
+        int previous = 0;
+        outIndices[kept++] = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket; the last point for the last bucket
+            int nextStart = (int) ((bucket + 1) * every) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * every) + 1, length);
+            double averageTime = 0.0;
+            double averageValue = 0.0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageTime += times[i];
+                averageValue += values[i];
+            }
+            averageTime /= nextEnd - nextStart;
+            averageValue /= nextEnd - nextStart;
+
+            int start = (int) (bucket * every) + 1;
+            int end = (int) ((bucket + 1) * every) + 1;
+            double previousTime = times[previous];
+            double previousValue = values[previous];
+            double largestArea = -1.0;
+            int selected = start;
+            for (int i = start; i < end; i++) {
+                // Twice the triangle area; only the comparison matters
+                double area = Math.abs((previousTime - averageTime) * (values[i] - previousValue)
+                    - (previousTime - times[i]) * (averageValue - previousValue));
+                if (area > largestArea) {
+                    largestArea = area;
+                    selected = i;
+                }
+            }
+            outIndices[kept++] = selected;
+            previous = selected;
+        }
+        outIndices[kept++] = length - 1;
+        return kept;
+    }
+}
@@ -0,0 +1,232 @@
+package org.cloudbus.cloudsim.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.cloudbus.cloudsim.SimulationCheckpoint;
+
+/**
+ * Reads delimited numeric text through a sliding memory-mapped window.
+ *
+ * Lines are parsed straight from the mapped bytes into a caller-owned
+ * double[], so no String is created per line or per field. Files larger
+ * than the window are remapped starting at the first unread line.
+ *
+ * A reader restored from a SimulationCheckpoint reopens its file and
+ * continues at the same line; the file must not have changed.
+ */
+public class MappedTextReader implements Closeable, SimulationCheckpoint.Restorable {
+    private static final long DEFAULT_WINDOW_SIZE = 256L << 20;
+    private static final double[] POWERS_OF_TEN = new double[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final Path path;
+    private transient FileChannel channel;
+    private final long fileSize;
+    private final long windowSize;
+    private transient MappedByteBuffer window;
+    private long windowStart = 0;
+    private int position = 0;
+    private long lineNumber = 0;
+
+    public MappedTextReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize Bytes mapped at a time; lines must be shorter than this
+     */
+    public MappedTextReader(Path path, long windowSize) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = Math.min(windowSize, Integer.MAX_VALUE);
+        map(0);
+    }
+
+    /**
+     * Skips the next line
+     * @return false if the end of the file was reached
+     */
+    public boolean skipLine() throws IOException {
+        int end = findLineEnd();
+        if (end < 0) {
+            return false;
+        }
+        position = end + 1;
+        lineNumber++;
+        return true;
+    }
+
+    /**
+     * Parses the next line into fields. Empty and non-numeric fields are
+     * stored as NaN. Fields beyond fields.length are ignored.
+     * @return Number of fields on the line, or -1 at the end of the file
+     */
+    public int readLine(byte delimiter, double[] fields) throws IOException {
+        int end = findLineEnd();
+        if (end < 0) {
+            return -1;
+        }
+        int count = 0;
+        int fieldStart = position;
+        for (int i = position; i <= end; i++) {
+            byte b = i < end ? window.get(i) : delimiter;
+            if (b == delimiter) {
+                if (count < fields.length) {
+                    fields[count] = parseDouble(fieldStart, i);
+                }
+                count++;
+                fieldStart = i + 1;
+            }
+        }
+        position = end + 1;
+        lineNumber++;
+        return count;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    @Override
+    public void restored() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        if (channel.size() != fileSize) {
+            channel.close();
+            throw new IOException(path + " changed since the checkpoint: " + fileSize + " bytes expected");
+        }
+        int offset = position;
+        map(windowStart);
+        position = offset;
+    }
+
+    /**
+     * Returns the window index of the current line's terminator (or of the
+     * end of the file), remapping so the whole line is inside the window.
+     */
+    private int findLineEnd() throws IOException {
+        if (windowStart + position >= fileSize) {
+            return -1;
+        }
+        while (true) {
+            int limit = window.limit();
+            for (int i = position; i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    return i;
+                }
+            }
+            if (windowStart + limit >= fileSize) {
+                return limit;
+            }
+            if (position == 0) {
+                throw new IOException("Line " + (lineNumber + 1) + " is longer than the mapping window");
+            }
+            map(windowStart + position);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        position = 0;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+    }
+
+    private double parseDouble(int start, int end) {
+        // Trim spaces and a trailing carriage return
+        while (start < end && window.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && (window.get(end - 1) == ' ' || window.get(end - 1) == '\r')) {
+            end--;
+        }
+        if (start == end) {
+            return Double.NaN;
+        }
+
+        boolean negative = false;
+        byte first = window.get(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean fraction = false;
+        int i = start;
+        for (; i < end; i++) {
+            byte b = window.get(i);
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    if (fraction) {
+                        exponent--;
+                    }
+                } else if (!fraction) {
+                    exponent++;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (!seenDigit) {
+            return Double.NaN;
+        }
+        if (i < end) {
+            byte b = window.get(i);
+            if (b != 'e' && b != 'E') {
+                return Double.NaN;
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+                negativeExponent = window.get(i) == '-';
+                i++;
+            }
+            int value = 0;
+            if (i == end) {
+                return Double.NaN;
+            }
+            for (; i < end; i++) {
+                b = window.get(i);
+                if (b < '0' || b > '9') {
+                    return Double.NaN;
+                }
+                value = Math.min(value * 10 + (b - '0'), 10000);
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        double result = mantissa;
+        if (exponent < 0) {
+            result = -exponent < POWERS_OF_TEN.length ? result / POWERS_OF_TEN[-exponent] : result * Math.pow(10, exponent);
+        } else if (exponent > 0) {
+            result = exponent < POWERS_OF_TEN.length ? result * POWERS_OF_TEN[exponent] : result * Math.pow(10, exponent);
+        }
+        return negative ? -result : result;
+    }
+}
@@ -0,0 +1,334 @@
+package org.cloudbus.cloudsim.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.cloudbus.cloudsim.utils.TimeSeriesWriter.*;
+
+/**
+ * Reads a file written by TimeSeriesWriter without loading it into the heap.
+ *
+ * Only the chunk directory is read up front. Chunk data is decoded straight
+ * from memory-mapped regions of the file, mapped on first use. A range scan
+ * binary-searches the series' chunks by time and decodes only the chunks
+ * that overlap the range.
+ */
+public class TimeSeriesReader implements Closeable {
+
+    /**
+     * Receives decoded samples, without boxing
+     */
+    public interface SampleConsumer {
+        void accept(double time, double value);
+    }
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final MappedByteBuffer[] regions;
+
+    // Distinct series ids in ascending order, and their range in the chunk arrays
+    private final int[] seriesIds;
+    private final int[] seriesChunkStart;
+
+    // Chunk directory sorted by series, then time
+    private final int[] chunkSizes;
+    private final long[] chunkFirstTicks;
+    private final long[] chunkLastTicks;
+    private final long[] chunkOffsets;
+
+    public TimeSeriesReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            fileSize = channel.size();
+            if (fileSize < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("Not a time series file: " + path);
+            }
+            ByteBuffer trailer = read(fileSize - TRAILER_BYTES, TRAILER_BYTES);
+            long directoryOffset = trailer.getLong();
+            int chunkCount = trailer.getInt();
+            if (trailer.getInt() != MAGIC || read(0, 4).getInt() != MAGIC) {
+                throw new IOException("Not a time series file: " + path);
+            }
+            ByteBuffer directory = read(directoryOffset, chunkCount * DIRECTORY_ENTRY_BYTES);
+            chunkSizes = new int[chunkCount];
+            chunkFirstTicks = new long[chunkCount];
+            chunkLastTicks = new long[chunkCount];
+            chunkOffsets = new long[chunkCount];
+
+            // Counting sort by series keeps each series' chunks in time order
+            int[] raw = new int[chunkCount * 3]; // series, size, words
+            long[] rawLongs = new long[chunkCount * 3];
+            int maxSeries = -1;
+            for (int i = 0; i < chunkCount; i++) {
+                raw[i * 3] = directory.getInt();
+                raw[i * 3 + 1] = directory.getInt();
+                raw[i * 3 + 2] = directory.getInt();
+                rawLongs[i * 3] = directory.getLong();
+                rawLongs[i * 3 + 1] = directory.getLong();
+                rawLongs[i * 3 + 2] = directory.getLong();
+                maxSeries = Math.max(maxSeries, raw[i * 3]);
+            }
+            int[] next = new int[maxSeries + 2];
+            for (int i = 0; i < chunkCount; i++) {
+                next[raw[i * 3] + 1]++;
+            }
+            int distinct = 0;
+            for (int s = 0; s <= maxSeries; s++) {
+                if (next[s + 1] > 0) {
+                    distinct++;
+                }
+                next[s + 1] += next[s];
+            }
+            seriesIds = new int[distinct];
+            seriesChunkStart = new int[distinct + 1];
+            for (int s = 0, d = 0; s <= maxSeries; s++) {
+                if (next[s + 1] > next[s]) {
+                    seriesIds[d] = s;
+                    seriesChunkStart[d] = next[s];
+                    d++;
+                }
+            }
+            seriesChunkStart[distinct] = chunkCount;
+            for (int i = 0; i < chunkCount; i++) {
+                int target = next[raw[i * 3]]++;
+                chunkSizes[target] = raw[i * 3 + 1];
+                chunkFirstTicks[target] = rawLongs[i * 3];
+                chunkLastTicks[target] = rawLongs[i * 3 + 1];
+                chunkOffsets[target] = rawLongs[i * 3 + 2];
+            }
+            regions = new MappedByteBuffer[(int) ((directoryOffset + REGION_BYTES - 1) / REGION_BYTES)];
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Ids of all series in the file, ascending
+     */
+    public int[] getSeriesIds() {
+        return seriesIds.clone();
+    }
+
+    public long getSampleCount(int series) {
+        int index = indexOf(series);
+        long count = 0;
+        for (int chunk = seriesChunkStart[index]; chunk < seriesChunkStart[index + 1]; chunk++) {
+            count += chunkSizes[chunk];
+        }
+        return count;
+    }
+
+    public double getFirstTime(int series) {
+        return chunkFirstTicks[seriesChunkStart[indexOf(series)]] / TICKS_PER_SECOND;
+    }
+
+    public double getLastTime(int series) {
+        return chunkLastTicks[seriesChunkStart[indexOf(series) + 1] - 1] / TICKS_PER_SECOND;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Passes every sample of the series with from &lt;= time &lt;= to to the
+     * consumer, in time order
+     */
+    public void scan(int series, double from, double to, SampleConsumer consumer) {
+        int index = indexOf(series);
+        long fromTick = Math.round(from * TICKS_PER_SECOND);
+        long toTick = Math.round(to * TICKS_PER_SECOND);
+        int end = seriesChunkStart[index + 1];
+
+        // First chunk that ends at or after fromTick
+        int low = seriesChunkStart[index];
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (chunkLastTicks[middle] < fromTick) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        ChunkDecoder decoder = new ChunkDecoder();
+        for (int chunk = low; chunk < end && chunkFirstTicks[chunk] <= toTick; chunk++) {
+            decoder.open(chunk);
+            for (int i = 0; i < chunkSizes[chunk]; i++) {
+                decoder.next();
+                if (decoder.tick > toTick) {
+                    return;
+                }
+                if (decoder.tick >= fromTick) {
+                    consumer.accept(decoder.tick / TICKS_PER_SECOND, Double.longBitsToDouble(decoder.bits));
+                }
+            }
+        }
+    }
+
+    /**
+     * Averages the samples of [from, to] into equal-width time buckets.
+     * Empty buckets are skipped, so the first n entries of times and values
+     * are filled, n being the return value.
+     *
+     * @param buckets Number of buckets; times and values need this many slots
+     * @return Number of non-empty buckets
+     */
+    public int downsample(int series, double from, double to, int buckets, double[] times, double[] values) {
+        if (buckets < 1 || times.length < buckets || values.length < buckets) {
+            throw new IllegalArgumentException("Need " + buckets + " slots for " + buckets + " buckets");
+        }
+        double width = (to - from) / buckets;
+        double[] timeSums = new double[buckets];
+        double[] valueSums = new double[buckets];
+        long[] counts = new long[buckets];
+        scan(series, from, to, (time, value) -> {
+            int bucket = width > 0 ? Math.min((int) ((time - from) / width), buckets - 1) : 0;
+            timeSums[bucket] += time;
+            valueSums[bucket] += value;
+            counts[bucket]++;
+        });
+        int filled = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (counts[bucket] > 0) {
+                times[filled] = timeSums[bucket] / counts[bucket];
+                values[filled] = valueSums[bucket] / counts[bucket];
+                filled++;
+            }
+        }
+        return filled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int indexOf(int series) {
+        int index = Arrays.binarySearch(seriesIds, series);
+        if (index < 0) {
+            throw new IllegalArgumentException("No series " + series);
+        }
+        return index;
+    }
+
+    private ByteBuffer read(long offset, int length) throws IOException {
+        if (offset < 0 || offset + length > channel.size()) {
+            throw new IOException("Truncated time series file");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Truncated time series file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private MappedByteBuffer region(int index) {
+        MappedByteBuffer region = regions[index];
+        if (region == null) {
+            long start = index * REGION_BYTES;
+            try {
+                region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_BYTES, fileSize - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            regions[index] = region;
+        }
+        return region;
+    }
+
+    /**
+     * Mirror of TimeSeriesWriter's encoder over one mapped chunk
+     */
+    private final class ChunkDecoder {
+        private MappedByteBuffer region;
+        private int base;
+        private int bitPosition;
+        private int count;
+        long tick;
+        long bits;
+        private long delta;
+        private int leading;
+        private int trailing;
+
+        void open(int chunk) {
+            long offset = chunkOffsets[chunk];
+            region = region((int) (offset / REGION_BYTES));
+            base = (int) (offset % REGION_BYTES);
+            bitPosition = 0;
+            count = 0;
+        }
+
+        void next() {
+            if (count == 0) {
+                tick = readBits(64);
+                bits = readBits(64);
+                delta = 0;
+            } else {
+                delta += readDeltaOfDelta();
+                tick += delta;
+                bits ^= readXor();
+            }
+            count++;
+        }
+
+        private long readDeltaOfDelta() {
+            if (readBits(1) == 0) {
+                return 0;
+            }
+            if (readBits(1) == 0) {
+                return signed(readBits(7), 7);
+            }
+            if (readBits(1) == 0) {
+                return signed(readBits(9), 9);
+            }
+            if (readBits(1) == 0) {
+                return signed(readBits(12), 12);
+            }
+            return readBits(64);
+        }
+
+        private long readXor() {
+            if (readBits(1) == 0) {
+                return 0;
+            }
+            if (readBits(1) == 1) {
+                leading = (int) readBits(5);
+                int meaningful = (int) readBits(6) + 1;
+                trailing = 64 - leading - meaningful;
+            }
+            return readBits(64 - leading - trailing) << trailing;
+        }
+
+        private long readBits(int count) {
+            int index = bitPosition >>> 6;
+            int free = 64 - (bitPosition & 63);
+            long word = region.getLong(base + index * 8);
+            long result;
+            if (count <= free) {
+                result = word >>> (free - count);
+            } else {
+                long high = word & ((1L << free) - 1);
+                long low = region.getLong(base + (index + 1) * 8) >>> (64 - (count - free));
+                result = (high << (count - free)) | low;
+            }
+            bitPosition += count;
+            return count < 64 ? result & ((1L << count) - 1) : result;
+        }
+
+        private long signed(long value, int bits) {
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package org.cloudbus.cloudsim.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Appends (time, value) samples of many series to a compressed file, in the
+ * style of Facebook's Gorilla: timestamps as delta-of-deltas and values as
+ * the XOR with the previous value, both bit-packed. A series sampled at a
+ * fixed interval with a steady value costs two bits per sample.
+ *
+ * Each series encodes into its own small buffer; every chunkSamples samples
+ * the buffer is copied into the file through a memory-mapped region, so
+ * the heap only ever holds one open chunk per series. close() flushes the
+ * open chunks and writes the chunk directory read by TimeSeriesReader.
+ *
+ * Times are stored in whole microseconds. Series ids are non-negative ints
+ * chosen by the caller. Samples of one series must be appended in time
+ * order. Not thread-safe.
+ */
+public class TimeSeriesWriter implements Closeable {
+    static final int MAGIC = 0x54534731; // "TSG1"
+    static final int HEADER_BYTES = 16;
+    static final int TRAILER_BYTES = 16;
+    static final int DIRECTORY_ENTRY_BYTES = 36;
+    /** Chunks never straddle a region, so readers map one region per chunk */
+    static final long REGION_BYTES = 64L << 20;
+    static final double TICKS_PER_SECOND = 1e6;
+
+    private static final int DEFAULT_CHUNK_SAMPLES = 1024;
+    private static final int MAX_CHUNK_SAMPLES = 1 << 16;
+
+    private final FileChannel channel;
+    private final int chunkSamples;
+    private MappedByteBuffer region;
+    private long regionStart = 0;
+    private long position = HEADER_BYTES;
+    private SeriesEncoder[] encoders = new SeriesEncoder[16];
+    private long sampleCount = 0;
+
+    // Chunk directory, one entry per flushed chunk
+    private int chunkCount = 0;
+    private int[] chunkSeries = new int[64];
+    private int[] chunkSizes = new int[64];
+    private int[] chunkWords = new int[64];
+    private long[] chunkFirstTicks = new long[64];
+    private long[] chunkLastTicks = new long[64];
+    private long[] chunkOffsets = new long[64];
+
+    public TimeSeriesWriter(Path path) throws IOException {
+        this(path, DEFAULT_CHUNK_SAMPLES);
+    }
+
+    /**
+     * @param chunkSamples Samples per chunk, the unit of range scans
+     */
+    public TimeSeriesWriter(Path path, int chunkSamples) throws IOException {
+        if (chunkSamples < 1 || chunkSamples > MAX_CHUNK_SAMPLES) {
+            throw new IllegalArgumentException("Chunk samples must be between 1 and " + MAX_CHUNK_SAMPLES + ": " + chunkSamples);
+        }
+        this.chunkSamples = chunkSamples;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_BYTES);
+        region.putInt(0, MAGIC);
+        region.putInt(4, chunkSamples);
+    }
+
+    /**
+     * @param series Non-negative series id
+     * @param time Sample time in seconds
+     */
+    public void append(int series, double time, double value) {
+        if (series < 0) {
+            throw new IllegalArgumentException("Series id must not be negative: " + series);
+        }
+        if (series >= encoders.length) {
+            encoders = Arrays.copyOf(encoders, Math.max(series + 1, encoders.length * 2));
+        }
+        SeriesEncoder encoder = encoders[series];
+        if (encoder == null) {
+            encoder = new SeriesEncoder();
+            encoders[series] = encoder;
+        }
+        encoder.append(Math.round(time * TICKS_PER_SECOND), Double.doubleToRawLongBits(value));
+        sampleCount++;
+        if (encoder.count == chunkSamples) {
+            flush(series, encoder);
+        }
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return Bytes of encoded samples written to the file so far, without
+     *         open chunks, padding and directory
+     */
+    public long getEncodedBytes() {
+        long bytes = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            bytes += chunkWords[i] * 8L;
+        }
+        return bytes;
+    }
+
+    /**
+     * Flushes every open chunk, in series order, then writes the directory
+     * and trims the file to its content.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (int series = 0; series < encoders.length; series++) {
+                if (encoders[series] != null && encoders[series].count > 0) {
+                    flush(series, encoders[series]);
+                }
+            }
+            ByteBuffer directory = ByteBuffer.allocate(chunkCount * DIRECTORY_ENTRY_BYTES + TRAILER_BYTES);
+            for (int i = 0; i < chunkCount; i++) {
+                directory.putInt(chunkSeries[i]).putInt(chunkSizes[i]).putInt(chunkWords[i])
+                    .putLong(chunkFirstTicks[i]).putLong(chunkLastTicks[i]).putLong(chunkOffsets[i]);
+            }
+            directory.putLong(position).putInt(chunkCount).putInt(MAGIC);
+            directory.flip();
+            region.force();
+            region = null;
+            long end = position + directory.remaining();
+            while (directory.hasRemaining()) {
+                position += channel.write(directory, position);
+            }
+            channel.truncate(end);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flush(int series, SeriesEncoder encoder) {
+        int words = (encoder.bitCount + 63) >>> 6;
+        long bytes = words * 8L;
+        try {
+            if (position + bytes > regionStart + REGION_BYTES) {
+                region.force();
+                regionStart += REGION_BYTES;
+                position = regionStart;
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_BYTES);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int offset = (int) (position - regionStart);
+        for (int i = 0; i < words; i++) {
+            region.putLong(offset + i * 8, encoder.words[i]);
+        }
+        addChunk(series, encoder.count, words, encoder.firstTick, encoder.lastTick, position);
+        position += bytes;
+        encoder.reset();
+    }
+
+    private void addChunk(int series, int size, int words, long firstTick, long lastTick, long offset) {
+        if (chunkCount == chunkSeries.length) {
+            int capacity = chunkCount * 2;
+            chunkSeries = Arrays.copyOf(chunkSeries, capacity);
+            chunkSizes = Arrays.copyOf(chunkSizes, capacity);
+            chunkWords = Arrays.copyOf(chunkWords, capacity);
+            chunkFirstTicks = Arrays.copyOf(chunkFirstTicks, capacity);
+            chunkLastTicks = Arrays.copyOf(chunkLastTicks, capacity);
+            chunkOffsets = Arrays.copyOf(chunkOffsets, capacity);
+        }
+        chunkSeries[chunkCount] = series;
+        chunkSizes[chunkCount] = size;
+        chunkWords[chunkCount] = words;
+        chunkFirstTicks[chunkCount] = firstTick;
+        chunkLastTicks[chunkCount] = lastTick;
+        chunkOffsets[chunkCount] = offset;
+        chunkCount++;
+    }
+
+    /**
+     * Open chunk of one series. The first sample is stored raw; each later
+     * one as a delta-of-delta control code ('0', '10', '110', '1110' or
+     * '1111' followed by 0, 7, 9, 12 or 64 bits) and an XOR control code
+     * ('0' for an unchanged value, '10' for meaningful bits inside the
+     * previous window, '11' plus 5 bits of leading zeros and 6 bits of
+     * length for a new window).
+     */
+    private static final class SeriesEncoder {
+        long[] words = new long[4];
+        int bitCount = 0;
+        int count = 0;
+        long firstTick;
+        long lastTick;
+        long lastDelta;
+        long lastBits;
+        int lastLeading;
+        int lastTrailing;
+
+        void append(long tick, long bits) {
+            if (count == 0) {
+                firstTick = tick;
+                writeBits(tick, 64);
+                writeBits(bits, 64);
+                lastDelta = 0;
+                lastLeading = -1;
+            } else {
+                long delta = tick - lastTick;
+                writeDeltaOfDelta(delta - lastDelta);
+                lastDelta = delta;
+                writeXor(bits ^ lastBits);
+            }
+            lastTick = tick;
+            lastBits = bits;
+            count++;
+        }
+
+        private void writeDeltaOfDelta(long deltaOfDelta) {
+            if (deltaOfDelta == 0) {
+                writeBits(0b0, 1);
+            } else if (deltaOfDelta >= -64 && deltaOfDelta < 64) {
+                writeBits(0b10, 2);
+                writeBits(deltaOfDelta, 7);
+            } else if (deltaOfDelta >= -256 && deltaOfDelta < 256) {
+                writeBits(0b110, 3);
+                writeBits(deltaOfDelta, 9);
+            } else if (deltaOfDelta >= -2048 && deltaOfDelta < 2048) {
+                writeBits(0b1110, 4);
+                writeBits(deltaOfDelta, 12);
+            } else {
+                writeBits(0b1111, 4);
+                writeBits(deltaOfDelta, 64);
+            }
+        }
+
+        private void writeXor(long xor) {
+            if (xor == 0) {
+                writeBits(0b0, 1);
+                return;
+            }
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+                writeBits(0b10, 2);
+                writeBits(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+            } else {
+                int meaningful = 64 - leading - trailing;
+                writeBits(0b11, 2);
+                writeBits(leading, 5);
+                writeBits(meaningful - 1, 6);
+                writeBits(xor >>> trailing, meaningful);
+                lastLeading = leading;
+                lastTrailing = trailing;
+            }
+        }
+
+        /**
+         * Appends the low bits of value, most significant first
+         */
+        private void writeBits(long value, int bits) {
+            int index = bitCount >>> 6;
+            if (index + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            if (bits < 64) {
+                value &= (1L << bits) - 1;
+            }
+            int free = 64 - (bitCount & 63);
+            if (bits <= free) {
+                words[index] |= value << (free - bits);
+            } else {
+                words[index] |= value >>> (bits - free);
+                words[index + 1] |= value << (64 - (bits - free));
+            }
+            bitCount += bits;
+        }
+
+        void reset() {
+            Arrays.fill(words, 0, (bitCount + 63) >>> 6, 0L);
+            bitCount = 0;
+            count = 0;
+        }
+    }
+}